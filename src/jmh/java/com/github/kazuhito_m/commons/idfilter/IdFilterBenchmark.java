@@ -0,0 +1,66 @@
+package com.github.kazuhito_m.commons.idfilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdFilter.filtering()の性能計測。<br>
+ * 条件はプラグイン実行用pom.xmlのテンプレートに倣い、前方一致・完全一致・正規表現を混ぜたもの。
+ *
+ * @author Kazuhito Miura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IdFilterBenchmark {
+
+    /**
+     * 絞り込むID(job名・ディレクトリ名)の件数。
+     */
+    @Param({"100", "5000"})
+    public int idCount;
+
+    private static final String[] PREFIXES = {"l", "commons-", "base-", "app-", "legacy-"};
+
+    private IdFilter filter;
+
+    private List<String> ids;
+
+    @Setup
+    public void setUp() {
+        filter = new IdFilter();
+        filter.setTargetIds(new ArrayList<String>(Arrays.asList(
+                "l.*", "commons-.*", "^app-[0-9]+-web$", "^legacy-app$")));
+        filter.setExcludeIds(new ArrayList<String>(Arrays.asList(
+                "base-.*", "-old$", "(?i)sandbox")));
+
+        ids = new ArrayList<String>(idCount);
+        for (int i = 0; i < idCount; i++) {
+            String suffix = i % 17 == 0 ? "-old" : (i % 23 == 0 ? "-Sandbox" : "");
+            ids.add(PREFIXES[i % PREFIXES.length] + i + "-web" + suffix);
+        }
+    }
+
+    @Benchmark
+    public List<String> filtering() {
+        return filter.filtering(ids);
+    }
+
+}
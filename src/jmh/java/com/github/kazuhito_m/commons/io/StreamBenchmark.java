@@ -0,0 +1,97 @@
+package com.github.kazuhito_m.commons.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CharSequenceInputStream・StringBuilderDecodingOutputStream・LineConsumerOutputStreamの
+ * スループット計測。(Jenkins-cliとの入出力に使われる)<br>
+ * 内容はjob一覧の応答に近い「一行一job名」のテキスト。
+ *
+ * @author Kazuhito Miura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 行数。
+     */
+    @Param({"1000", "20000"})
+    public int lineCount;
+
+    private StringBuilder text;
+
+    private byte[] bytes;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        text = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            text.append(String.format("project%05d", i)).append('\n');
+        }
+        bytes = text.toString().getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public int charSequenceInputStream() throws IOException {
+        InputStream is = new CharSequenceInputStream(text, UTF_8);
+        int total = 0;
+        int len;
+        while ((len = is.read(buffer, 0, buffer.length)) >= 0) {
+            total += len;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public StringBuilder stringBuilderDecodingOutputStream() throws IOException {
+        StringBuilder sb = new StringBuilder(bytes.length);
+        writeInChunks(new StringBuilderDecodingOutputStream(sb, UTF_8));
+        return sb;
+    }
+
+    @Benchmark
+    public void lineConsumerOutputStream(Blackhole bh) throws IOException {
+        List<String> lines = new ArrayList<String>(lineCount);
+        writeInChunks(new LineConsumerOutputStream(UTF_8, lines::add));
+        bh.consume(lines);
+    }
+
+    /**
+     * プロセスのパイプから読んだ時と同じく、8KBずつ書き込む。
+     */
+    private void writeInChunks(OutputStream os) throws IOException {
+        for (int off = 0; off < bytes.length; off += buffer.length) {
+            os.write(bytes, off, Math.min(buffer.length, bytes.length - off));
+        }
+        os.flush();
+    }
+
+}
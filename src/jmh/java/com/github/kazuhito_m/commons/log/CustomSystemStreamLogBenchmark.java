@@ -0,0 +1,96 @@
+package com.github.kazuhito_m.commons.log;
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomSystemStreamLogによる、ログ呼び出し一回あたりの上乗せ分の計測。<br>
+ * 出力そのものの時間を含めないよう、しきい値未満(debug)のログで比べる。
+ *
+ * @author Kazuhito Miura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CustomSystemStreamLogBenchmark {
+
+    private static final String MESSAGE = "ci job 'project00001' added.";
+
+    /**
+     * 組み立てが必要なメッセージの部品。
+     */
+    private String jobName = "project00001";
+
+    /**
+     * 比較の基準。素のConsoleLogger。
+     */
+    private ConsoleLogger direct;
+
+    /**
+     * 履歴機能が無効なCustomSystemStreamLog。
+     */
+    private CustomSystemStreamLog wrapped;
+
+    /**
+     * 履歴機能が有効なCustomSystemStreamLog。
+     */
+    private CustomSystemStreamLog recording;
+
+    @Setup
+    public void setUp() {
+        direct = new ConsoleLogger(Logger.LEVEL_WARN, "benchmark");
+        wrapped = new CustomSystemStreamLog(Logger.LEVEL_WARN, "benchmark");
+        recording = new CustomSystemStreamLog(Logger.LEVEL_WARN, "benchmark");
+    }
+
+    /**
+     * 反復ごとに空の履歴から始める。
+     */
+    @Setup(Level.Iteration)
+    public void resetHistory() {
+        recording.setHistoryOn(false);
+        recording.setHistoryOn(true);
+    }
+
+    @Benchmark
+    public void direct() {
+        direct.debug(MESSAGE);
+    }
+
+    @Benchmark
+    public void wrapped() {
+        wrapped.debug(MESSAGE);
+    }
+
+    @Benchmark
+    public void withHistory() {
+        recording.debug(MESSAGE);
+    }
+
+    @Benchmark
+    public void eagerMessage() {
+        wrapped.debug("ci job '" + jobName + "' added.");
+    }
+
+    @Benchmark
+    public void lazyMessage() {
+        wrapped.debug(() -> "ci job '" + jobName + "' added.");
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import org.apache.velocity.VelocityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScmToCiSynchronizer.getReplaceText()(job追加時のconfig.xml作成)の性能計測。<br>
+ * テンプレートはテスト用のconfig.xmlを使う。(プロジェクト直下で実行する前提)
+ *
+ * @author Kazuhito Miura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScmToCiSynchronizerBenchmark {
+
+    private static final String TEMPLATE_PATH =
+            "src/test/resources/com/github/kazuhito_m/scm2cisync/core/config.xml";
+
+    private ScmToCiSynchronizer synchronizer;
+
+    private File templateFile;
+
+    private int count = 0;
+
+    @Setup
+    public void setUp() {
+        synchronizer = new ScmToCiSynchronizer();
+        templateFile = new File(TEMPLATE_PATH);
+        if (!templateFile.exists()) {
+            throw new IllegalStateException("not found template : "
+                    + templateFile.getAbsolutePath());
+        }
+    }
+
+    @Benchmark
+    public String getReplaceText() throws Exception {
+        VelocityContext context = new VelocityContext();
+        context.put("jobName", "project" + (count++ & 0xFFF));
+        return synchronizer.getReplaceText(templateFile, context);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 前回と今回のディレクトリ一覧の差分(SubversionControler.getAddedDirNameList()・
+ * getDeletedDirNameList()の中身であるDirectoryDelta.diff())の性能計測。<br>
+ * SVNへの問い合わせは含まず、一覧同士の比較のみを計る。
+ *
+ * @author Kazuhito Miura
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DirectoryDeltaBenchmark {
+
+    /**
+     * ディレクトリ数。
+     */
+    @Param({"1000", "20000"})
+    public int dirCount;
+
+    private List<String> lastNames;
+
+    private List<String> headNames;
+
+    @Setup
+    public void setUp() {
+        // 前回から1%が削除され、1%が追加された状態。(SVNの一覧は順不同として扱う)
+        lastNames = new ArrayList<String>(dirCount);
+        headNames = new ArrayList<String>(dirCount);
+        for (int i = 0; i < dirCount; i++) {
+            String name = String.format("project%05d", i);
+            lastNames.add(name);
+            if (i % 100 != 0) {
+                headNames.add(name);
+            }
+        }
+        for (int i = 0; i < dirCount / 100; i++) {
+            headNames.add(String.format("added%05d", i));
+        }
+        Collections.shuffle(headNames, new java.util.Random(1));
+    }
+
+    @Benchmark
+    public DirectoryDelta diff() {
+        return DirectoryDelta.diff(lastNames, headNames);
+    }
+
+}
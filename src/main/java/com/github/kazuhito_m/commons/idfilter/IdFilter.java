@@ -4,8 +4,9 @@ import com.github.kazuhito_m.commons.vo.BaseVO;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * 汎用文字列フィルタクラス。ID(正規表現)の規則ごとの設定値を保持する。
@@ -30,6 +31,16 @@ public class IdFilter extends BaseVO {
      */
     private ArrayList<String> excludeIds = new ArrayList<String>();
 
+    /**
+     * targetIdsを前処理したもの。(キャッシュ)
+     */
+    private transient volatile CompiledIds compiledTargetIds = null;
+
+    /**
+     * excludeIdsを前処理したもの。(キャッシュ)
+     */
+    private transient volatile CompiledIds compiledExcludeIds = null;
+
     /**
      * 指定されたIdがこのパターンに該当するか否か。
      *
@@ -71,20 +82,9 @@ public class IdFilter extends BaseVO {
      * @return 真偽値。該当:true。
      */
     public boolean isTarget(final String id, int flag) {
-        boolean isHit = false;
-        if (targetIds != null && targetIds.size() > 0) {
-            // 絞り込み条件は指定されている。全量検査。
-            for (String regex : targetIds) {
-                // 正規表現にマッチしたら、フラグを立てループ脱出。
-                if (isHit = isHitRegex(regex, id, flag)) {
-                    break;
-                }
-            }
-        } else {
-            // 絞り込み条件未指定 ＝ 対象とする
-            isHit = true;
-        }
-        return isHit;
+        IdPatternSet patterns = getTargetPatterns(flag);
+        // 絞り込み条件未指定 ＝ 対象とする
+        return patterns == null || patterns.matches(id);
     }
 
     /**
@@ -105,20 +105,9 @@ public class IdFilter extends BaseVO {
      * @return 真偽値。該当:true。
      */
     public boolean isExclude(final String id, int flag) {
-        boolean isHit = false;
-        if (excludeIds != null && excludeIds.size() > 0) {
-            // 除外条件は指定されている。全量検査。
-            for (String regex : excludeIds) {
-                // 正規表現にマッチしたら、フラグを立てループ脱出。
-                if (isHit = isHitRegex(regex, id, flag)) {
-                    break;
-                }
-            }
-        } else {
-            // 除外条件未指定 ＝ AllOKとする
-            isHit = false;
-        }
-        return isHit;
+        IdPatternSet patterns = getExcludePatterns(flag);
+        // 除外条件未指定 ＝ AllOKとする
+        return patterns != null && patterns.matches(id);
     }
 
     /**
@@ -129,14 +118,37 @@ public class IdFilter extends BaseVO {
      */
     public List<String> filtering(List<String> idList) {
         List<String> result = new ArrayList<String>();
+        // 条件の取り出しはループの外で一度だけ行う。
+        IdPatternSet targets = getTargetPatterns(COMARE_FLAG_OMIT);
+        IdPatternSet excludes = getExcludePatterns(COMARE_FLAG_OMIT);
         for (String id : idList) {
-            if (this.isAppropriate(id)) {
+            if ((targets == null || targets.matches(id))
+                    && (excludes == null || !excludes.matches(id))) {
                 result.add(id);
             }
         }
         return result;
     }
 
+    /**
+     * 条件に該当するIDだけをconsumerへ渡す、絞り込み付きのConsumerを返す。<br>
+     * 一覧を溜めずに、流れてくるIDをその場で絞り込むためのもの。
+     * 条件の取り出しは、このメソッドの呼び出し時に一度だけ行う。
+     *
+     * @param consumer 該当したIDを受け取る処理。
+     * @return IDを一件ずつ受け取るConsumer。
+     */
+    public Consumer<String> filtering(final Consumer<String> consumer) {
+        final IdPatternSet targets = getTargetPatterns(COMARE_FLAG_OMIT);
+        final IdPatternSet excludes = getExcludePatterns(COMARE_FLAG_OMIT);
+        return id -> {
+            if ((targets == null || targets.matches(id))
+                    && (excludes == null || !excludes.matches(id))) {
+                consumer.accept(id);
+            }
+        };
+    }
+
     /**
      * 指定されたIdがexcludeのパターンだけに該当するか否か(比較フラグ省略版)。
      *
@@ -153,19 +165,78 @@ public class IdFilter extends BaseVO {
     public void reset() {
         targetIds.clear();
         excludeIds.clear();
+        compiledTargetIds = null;
+        compiledExcludeIds = null;
+    }
+
+    /**
+     * targetIdsを前処理したものを返す。条件未指定ならnull。
+     *
+     * @param flag 比較フラグ(Patternのflag引数参照)
+     * @return 前処理済みの条件。
+     */
+    private IdPatternSet getTargetPatterns(int flag) {
+        if (targetIds == null || targetIds.isEmpty()) {
+            return null;
+        }
+        CompiledIds compiled = compiledTargetIds;
+        if (compiled == null || !compiled.isCompiledFrom(targetIds)) {
+            compiled = new CompiledIds(targetIds);
+            compiledTargetIds = compiled;
+        }
+        return compiled.get(flag);
     }
 
     /**
-     * 文字列が正規表現にマッチするか検査する。
+     * excludeIdsを前処理したものを返す。条件未指定ならnull。
      *
-     * @param target 検査対象文字列。
-     * @param regex  検査する正規表現文字列。
-     * @return 結果。該当:true;
+     * @param flag 比較フラグ(Patternのflag引数参照)
+     * @return 前処理済みの条件。
+     */
+    private IdPatternSet getExcludePatterns(int flag) {
+        if (excludeIds == null || excludeIds.isEmpty()) {
+            return null;
+        }
+        CompiledIds compiled = compiledExcludeIds;
+        if (compiled == null || !compiled.isCompiledFrom(excludeIds)) {
+            compiled = new CompiledIds(excludeIds);
+            compiledExcludeIds = compiled;
+        }
+        return compiled.get(flag);
+    }
+
+    /**
+     * 条件(正規表現のList)一つ分の、比較フラグごとの前処理結果。<br>
+     * Getterで取り出したListが直接変更されることもあるため、元Listの内容の写しも控えておき、
+     * 変わっていたら作り直す。
      */
-    private boolean isHitRegex(String regex, String target, int flag) {
-        Pattern pattern = Pattern.compile(regex, flag);
-        Matcher matcher = pattern.matcher(target);
-        return matcher.find();
+    private static final class CompiledIds {
+
+        private final List<String> source;
+
+        private final List<String> snapshot;
+
+        private final ConcurrentMap<Integer, IdPatternSet> byFlag =
+                new ConcurrentHashMap<Integer, IdPatternSet>();
+
+        CompiledIds(List<String> source) {
+            this.source = source;
+            this.snapshot = new ArrayList<String>(source);
+        }
+
+        boolean isCompiledFrom(List<String> ids) {
+            return ids == source && ids.equals(snapshot);
+        }
+
+        IdPatternSet get(int flag) {
+            IdPatternSet patterns = byFlag.get(flag);
+            if (patterns == null) {
+                patterns = new IdPatternSet(snapshot, flag);
+                byFlag.put(flag, patterns);
+            }
+            return patterns;
+        }
+
     }
 
     // プロパティ:Setter/Getter
@@ -182,6 +253,7 @@ public class IdFilter extends BaseVO {
      */
     public void setExcludeIds(ArrayList<String> excludeIds) {
         this.excludeIds = excludeIds;
+        this.compiledExcludeIds = null;
     }
 
     /**
@@ -196,5 +268,6 @@ public class IdFilter extends BaseVO {
      */
     public void setTargetIds(ArrayList<String> targetIds) {
         this.targetIds = targetIds;
+        this.compiledTargetIds = null;
     }
 }
@@ -0,0 +1,206 @@
+package com.github.kazuhito_m.commons.idfilter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * IdFilterの条件(正規表現のList)一つ分を、検査しやすい形に前処理したもの。<br>
+ * 「いずれかの正規表現にfind()で該当するか」を、検査の度に正規表現をコンパイルすること無く判定する。
+ * <ul>
+ * <li>メタ文字を含まない正規表現は、文字列の包含・前方一致・後方一致・完全一致で判定。</li>
+ * <li>残りは一つの選択("(?:a)|(?:b)")にまとめ、一度のfind()で判定。</li>
+ * <li>後方参照・名前付きグループ・引用(\Q)・埋め込みフラグ((?x)等)を含むものは、
+ * まとめると意味が変わるため個別に判定。</li>
+ * </ul>
+ * 作成後は変更されないため、複数スレッドから同時に使ってよい。
+ *
+ * @author Kazuhito Miura
+ */
+final class IdPatternSet {
+
+    /**
+     * 正規表現のメタ文字。これらを含まなければ、単なる文字列として扱える。
+     */
+    private static final String META_CHARS = "\\[](){}.*+?^$|";
+
+    /**
+     * 「^文字列$」の文字列群。
+     */
+    private final Set<String> exacts = new HashSet<String>();
+
+    /**
+     * 「^文字列」の文字列群。
+     */
+    private final List<String> prefixes = new ArrayList<String>();
+
+    /**
+     * 「文字列$」の文字列群。
+     */
+    private final List<String> suffixes = new ArrayList<String>();
+
+    /**
+     * 「文字列」(どこかに含む)の文字列群。
+     */
+    private final List<String> contains = new ArrayList<String>();
+
+    /**
+     * 残りの正規表現をまとめたもの。無ければnull。
+     */
+    private final Pattern combined;
+
+    /**
+     * まとめられない正規表現群。
+     */
+    private final List<Pattern> separates = new ArrayList<Pattern>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param regexes 正規表現のList。
+     * @param flag    比較フラグ(Patternのflag引数参照)
+     */
+    IdPatternSet(List<String> regexes, int flag) {
+        StringBuilder alternation = new StringBuilder();
+        for (String regex : regexes) {
+            // 不正な正規表現は、ここで従来通りの例外とする。
+            Pattern pattern = Pattern.compile(regex, flag);
+
+            // フラグ指定があれば(大文字小文字無視等)、文字列比較はできない。
+            if (flag == 0 && addLiteral(regex)) {
+                continue;
+            }
+            if ((flag & Pattern.COMMENTS) == 0 && isCombinable(regex)) {
+                if (alternation.length() > 0) {
+                    alternation.append('|');
+                }
+                alternation.append("(?:").append(regex).append(')');
+            } else {
+                separates.add(pattern);
+            }
+        }
+        combined = alternation.length() > 0
+                ? Pattern.compile(alternation.toString(), flag) : null;
+    }
+
+    /**
+     * 指定されたIDが、いずれかの正規表現に該当するか否か。
+     *
+     * @param id 対象となるID文字列。
+     * @return 真偽値。該当:true。
+     */
+    boolean matches(String id) {
+        if (!exacts.isEmpty() || !suffixes.isEmpty()) {
+            // "$"は末尾の改行の直前にも一致するため、改行を除いたものでも比べる。
+            String body = removeLastLineTerminator(id);
+            if (exacts.contains(id) || (body != id && exacts.contains(body))) {
+                return true;
+            }
+            for (String suffix : suffixes) {
+                if (id.endsWith(suffix) || (body != id && body.endsWith(suffix))) {
+                    return true;
+                }
+            }
+        }
+        for (String prefix : prefixes) {
+            if (id.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (String literal : contains) {
+            if (id.contains(literal)) {
+                return true;
+            }
+        }
+        if (combined != null && combined.matcher(id).find()) {
+            return true;
+        }
+        for (Pattern pattern : separates) {
+            if (pattern.matcher(id).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * メタ文字を含まない(前後の"^","$"を除く)正規表現なら、文字列として登録する。
+     *
+     * @return 登録した:true。
+     */
+    private boolean addLiteral(String regex) {
+        boolean head = regex.startsWith("^");
+        boolean tail = regex.endsWith("$") && regex.length() > (head ? 1 : 0);
+        String body = regex.substring(head ? 1 : 0,
+                tail ? regex.length() - 1 : regex.length());
+        for (int i = 0; i < body.length(); i++) {
+            if (META_CHARS.indexOf(body.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        if (head && tail) {
+            exacts.add(body);
+        } else if (head) {
+            prefixes.add(body);
+        } else if (tail) {
+            suffixes.add(body);
+        } else {
+            contains.add(body);
+        }
+        return true;
+    }
+
+    /**
+     * 埋め込みフラグ("(?x)","(?i:"等)に使われる文字。
+     */
+    private static final String INLINE_FLAG_CHARS = "idmsuxU-";
+
+    /**
+     * 他の正規表現と一つの選択にまとめてよいか。
+     * 後方参照(\1,\k)・名前付きグループはグループ番号・名前が変わってしまうため、
+     * 引用(\Q)は閉じ忘れると後ろの選択まで飲み込んでしまうため、
+     * 埋め込みフラグは(?x)の"#"以降のように後ろの選択の解釈まで変えうるため不可。
+     */
+    private static boolean isCombinable(String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            char c = regex.charAt(i);
+            char next = regex.charAt(i + 1);
+            if (c == '\\') {
+                if (Character.isDigit(next) || next == 'k' || next == 'Q') {
+                    return false;
+                }
+                i++; // エスケープされた文字は読み飛ばす。
+            } else if (c == '(' && next == '?' && i + 3 < regex.length()
+                    && regex.charAt(i + 2) == '<'
+                    && Character.isLetter(regex.charAt(i + 3))) {
+                return false;
+            } else if (c == '(' && next == '?' && i + 2 < regex.length()
+                    && INLINE_FLAG_CHARS.indexOf(regex.charAt(i + 2)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 末尾の改行(Patternの言う行末文字)を一つ取り除く。無ければ引数そのものを返す。
+     */
+    private static String removeLastLineTerminator(String id) {
+        int len = id.length();
+        if (len == 0) {
+            return id;
+        }
+        char last = id.charAt(len - 1);
+        if (last == '\n') {
+            return id.substring(0, len >= 2 && id.charAt(len - 2) == '\r'
+                    ? len - 2 : len - 1);
+        }
+        if (last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+            return id.substring(0, len - 1);
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * 書き込んだ内容を、配列の写しを作らずにInputStreamとして読み直せるByteArrayOutputStream。<br>
+ * 受け取ったデータをそのまま次の処理へ渡す場合の、一時ファイルの代わりに使う。
+ *
+ * @author Kazuhito Miura
+ */
+public class ByteArrayBufferOutputStream extends ByteArrayOutputStream {
+
+    /**
+     * コンストラクタ。
+     */
+    public ByteArrayBufferOutputStream() {
+        super();
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param size 初期容量(バイト数)
+     */
+    public ByteArrayBufferOutputStream(int size) {
+        super(size);
+    }
+
+    /**
+     * ここまでに書き込まれた内容を読むInputStreamを返す。<br>
+     * 内部の配列を共有するため、読み終えるまでこのストリームへは書き込まないこと。
+     *
+     * @return 書き込まれた内容を読むInputStream。
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+}
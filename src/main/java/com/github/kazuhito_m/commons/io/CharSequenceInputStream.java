@@ -0,0 +1,191 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * CharSequence(String,StringBuilder等)を、指定の文字コードのバイト列として読むInputStream。<br>
+ * 元の文字列の写しは作らず、CharsetEncoderで一定量ずつバッファへ変換しながら渡す。
+ * 変換できない文字は、String.getBytes()と同じく文字コードの置換文字になる。
+ * 読み終えるまで、元のCharSequenceは変更しないこと。
+ *
+ * @author Kazuhito Miura
+ */
+public class CharSequenceInputStream extends InputStream {
+
+    /**
+     * 変換用バッファの大きさ(バイト数)の省略値。
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final CharsetEncoder encoder;
+
+    /**
+     * 元の文字列の(写しでない)ビュー。
+     */
+    private final CharBuffer chars;
+
+    /**
+     * 変換済みバイトのバッファ。(読み出し側の状態で保持)
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * 今バッファにある分の、変換を始めた文字位置。
+     */
+    private int chunkCharPosition = 0;
+
+    /**
+     * 最後まで変換し終えたか否か。
+     */
+    private boolean finished = false;
+
+    /**
+     * mark()した時点の、変換を始めた文字位置とバッファ内の読み出し位置。
+     */
+    private int markCharPosition = 0;
+
+    private int markBytePosition = 0;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param cs      元の文字列。
+     * @param charset 文字コード。
+     */
+    public CharSequenceInputStream(CharSequence cs, Charset charset) {
+        this(cs, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param cs         元の文字列。
+     * @param charset    文字コード。
+     * @param bufferSize 変換用バッファの大きさ(バイト数)
+     */
+    public CharSequenceInputStream(CharSequence cs, Charset charset, int bufferSize) {
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // 一文字分が収まらない大きさでは変換が進まないため、最低限は確保する。
+        int size = Math.max(bufferSize, (int) Math.ceil(encoder.maxBytesPerChar()) * 2);
+        this.chars = CharBuffer.wrap(cs);
+        this.bytes = ByteBuffer.allocate(size);
+        this.bytes.flip(); // 空の読み出し状態から始める。
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!bytes.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return bytes.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int total = 0;
+        while (total < len) {
+            if (!bytes.hasRemaining() && !fill()) {
+                break;
+            }
+            int n = Math.min(len - total, bytes.remaining());
+            bytes.get(b, off + total, n);
+            total += n;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (!bytes.hasRemaining() && !fill()) {
+                break;
+            }
+            int step = (int) Math.min(n - skipped, bytes.remaining());
+            bytes.position(bytes.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return bytes.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * 現在の位置を記録する。readlimitは無視する。(元の文字列から変換し直すため)<br>
+     * 状態を持つ文字コード(ISO-2022-JP等)では、先頭以外の位置へは正しく戻れない。
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+        markCharPosition = chunkCharPosition;
+        markBytePosition = bytes.position();
+    }
+
+    /**
+     * mark()した位置(無ければ先頭)へ戻る。
+     */
+    @Override
+    public synchronized void reset() throws IOException {
+        chars.position(markCharPosition);
+        encoder.reset();
+        finished = false;
+        bytes.clear();
+        bytes.flip();
+        fill();
+        bytes.position(Math.min(markBytePosition, bytes.limit()));
+    }
+
+    /**
+     * バッファが空になったところで、次の分を変換する。
+     *
+     * @return 変換した:true。すでに最後まで変換済み:false。
+     */
+    private boolean fill() throws CharacterCodingException {
+        while (!finished) {
+            chunkCharPosition = chars.position();
+            bytes.clear();
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isUnderflow()) {
+                // 入力を使い切った。残り(状態を戻すバイト列等)を出し切る。
+                result = encoder.flush(bytes);
+                if (result.isUnderflow()) {
+                    finished = true;
+                }
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            bytes.flip();
+            if (bytes.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 流れてきたバイト列を、指定の文字コードで文字へ変換しながら受け取るOutputStreamの基底クラス。<br>
+ * CharsetDecoderで一定量ずつ変換し、変換できた文字をdecoded()へ渡す。
+ * 複数バイトの文字が書き込みの境目で分かれていても、続きが来るまで持ち越して正しく変換する。
+ * 変換できないバイト列は、new String(byte[])と同じく置換文字になる。
+ *
+ * @author Kazuhito Miura
+ */
+public abstract class DecodingOutputStream extends OutputStream {
+
+    /**
+     * 変換用バッファの大きさ(バイト数)の省略値。
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final CharsetDecoder decoder;
+
+    /**
+     * 変換待ちのバイトのバッファ。(書き込み側の状態で保持)
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * 変換済み文字のバッファ。(書き込み側の状態で保持)
+     */
+    private final CharBuffer chars;
+
+    private boolean closed = false;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param charset    文字コード。
+     * @param bufferSize 変換用バッファの大きさ(バイト数)
+     */
+    protected DecodingOutputStream(Charset charset, int bufferSize) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // 途中で分かれた一文字分を持ち越せる大きさは、最低限確保する。
+        int size = Math.max(bufferSize, 16);
+        this.bytes = ByteBuffer.allocate(size);
+        this.chars = CharBuffer.allocate(
+                Math.max((int) Math.ceil(size * decoder.maxCharsPerByte()), 2));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (closed) return;
+
+        bytes.put((byte) b);
+        if (!bytes.hasRemaining() || (b & 0x80) == 0) {
+            // 一バイトずつの書き込みでは、ASCII(改行等)が来た時とバッファが満ちた時にだけ変換する。
+            decode(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        if (closed) return;
+
+        if (b == null)
+            throw new NullPointerException("The byte array is null");
+        if (offset < 0 || length < 0 || (offset + length) > b.length)
+            throw new IndexOutOfBoundsException(
+                    "offset and length are negative or extend outside array bounds");
+
+        while (length > 0) {
+            int n = Math.min(length, bytes.remaining());
+            bytes.put(b, offset, n);
+            offset += n;
+            length -= n;
+            decode(false);
+        }
+    }
+
+    /**
+     * 変換できる分をすべて変換して渡す。(文字の途中までのバイトは持ち越す)
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) return;
+
+        decode(false);
+    }
+
+    /**
+     * 残りのバイトをすべて変換して渡す。(文字の途中で終わっていれば置換文字となる)
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+
+        decode(true);
+        while (decoder.flush(chars).isOverflow()) {
+            emit();
+        }
+        emit();
+        closed = true;
+        onClose();
+    }
+
+    /**
+     * 変換できた文字を受け取る。
+     *
+     * @param decoded 変換できた文字。(読み出し側の状態。呼び出し後は再利用されるため、保持しないこと)
+     * @throws IOException 受け取り側の入出力エラー。
+     */
+    protected abstract void decoded(CharBuffer decoded) throws IOException;
+
+    /**
+     * close()で残りをすべて渡し終えた後に呼ばれる。
+     *
+     * @throws IOException 受け取り側の入出力エラー。
+     */
+    protected void onClose() throws IOException {
+    }
+
+    /**
+     * バッファのバイトを変換する。
+     *
+     * @param endOfInput 以降の入力が無い:true。
+     */
+    private void decode(boolean endOfInput) throws IOException {
+        bytes.flip();
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isOverflow()) {
+                emit();
+                continue;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            break;
+        }
+        bytes.compact();
+        emit();
+    }
+
+    private void emit() throws IOException {
+        chars.flip();
+        if (chars.hasRemaining()) {
+            decoded(chars);
+        }
+        chars.clear();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/**
+ * 流れてきたバイト列を指定の文字コードで文字へ変換し、一行ごとにConsumerへ渡すストリーム。<br>
+ * 行の区切りは'\n'で、'\r'は取り除く。改行で終わらない末尾の行は、close()時に渡す。
+ *
+ * @author Kazuhito Miura
+ */
+public class LineConsumerOutputStream extends DecodingOutputStream {
+
+    /**
+     * 一行分を蓄積するStringBuilder
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * 一行ごとに呼ばれる受け取り先
+     */
+    private final Consumer<String> consumer;
+
+    /**
+     * コンストラクタ
+     *
+     * @param charset  文字コード。
+     * @param consumer 一行(改行を含まない)ごとに呼ばれる受け取り先。
+     */
+    public LineConsumerOutputStream(Charset charset, Consumer<String> consumer) {
+        super(charset, DEFAULT_BUFFER_SIZE);
+        this.consumer = consumer;
+    }
+
+    @Override
+    protected void decoded(CharBuffer decoded) {
+        char[] a = decoded.array();
+        int start = decoded.arrayOffset() + decoded.position();
+        int end = start + decoded.remaining();
+        // 区切り文字の間をまとめて追記する。
+        int from = start;
+        for (int i = start; i < end; i++) {
+            char c = a[i];
+            if (c == '\n' || c == '\r') {
+                line.append(a, from, i - from);
+                from = i + 1;
+                if (c == '\n') {
+                    consumer.accept(line.toString());
+                    line.setLength(0);
+                }
+            }
+        }
+        line.append(a, from, end - from);
+    }
+
+    @Override
+    protected void onClose() {
+        if (line.length() > 0) {
+            consumer.accept(line.toString());
+            line.setLength(0);
+        }
+    }
+
+}
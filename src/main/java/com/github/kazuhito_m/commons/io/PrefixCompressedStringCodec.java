@@ -0,0 +1,81 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 文字列の集合を「整列+前方一致部分の省略(front coding)」で一つの文字列へ詰める変換クラス。<br>
+ * 一行一要素で、各行は「直前の要素と共通する先頭文字数」","「残りの文字列」の形となる。
+ * 要素に改行文字を含むものは扱えない。
+ *
+ * @author Kazuhito Miura
+ */
+public class PrefixCompressedStringCodec {
+
+    /**
+     * 文字列の集合を整列し、前方一致部分を省略した一つの文字列にする。
+     *
+     * @param values 文字列の集合(重複は一つにまとめる)。
+     * @return 詰めた後の文字列。
+     */
+    public static String encode(Collection<String> values) {
+        StringBuilder sb = new StringBuilder();
+        String prev = "";
+        for (String value : new TreeSet<String>(values)) {
+            if (value.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException(
+                        "value contains line separator : " + value);
+            }
+            int common = commonPrefixLength(prev, value);
+            sb.append(common).append(',').append(value, common, value.length())
+                    .append('\n');
+            prev = value;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * encode()で詰めた文字列を、元の(整列済みの)文字列リストへ戻す。
+     *
+     * @param encoded 詰めた後の文字列。
+     * @return 整列済みの文字列リスト。
+     */
+    public static List<String> decode(String encoded) {
+        List<String> values = new ArrayList<String>();
+        String prev = "";
+        int pos = 0;
+        while (pos < encoded.length()) {
+            int comma = encoded.indexOf(',', pos);
+            int end = encoded.indexOf('\n', pos);
+            if (comma < 0 || end < 0 || comma > end) {
+                throw new IllegalArgumentException("broken data at : " + pos);
+            }
+            int common = Integer.parseInt(encoded.substring(pos, comma));
+            String value = prev.substring(0, common)
+                    + encoded.substring(comma + 1, end);
+            values.add(value);
+            prev = value;
+            pos = end + 1;
+        }
+        return values;
+    }
+
+    /**
+     * 二つの文字列の先頭から共通する文字数を返す。
+     */
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // サロゲートペアの途中で区切らない。
+        if (i > 0 && i < b.length() && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.github.kazuhito_m.commons.io;
+
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * StringBuilderを出力先とし、バイト列を指定の文字コードで文字へ変換して追記するOutputStreamクラス。<br>
+ * 書き込みの境目で分かれた複数バイトの文字も崩れない。
+ *
+ * @author Kazuhito Miura
+ */
+public class StringBuilderDecodingOutputStream extends DecodingOutputStream {
+
+    private final StringBuilder sb;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param buffer  出力先となるStringBuilderオブジェクト。
+     * @param charset 文字コード。
+     */
+    public StringBuilderDecodingOutputStream(StringBuilder buffer, Charset charset) {
+        super(charset, DEFAULT_BUFFER_SIZE);
+        this.sb = buffer;
+    }
+
+    @Override
+    protected void decoded(CharBuffer decoded) {
+        sb.append(decoded.array(), decoded.arrayOffset() + decoded.position(),
+                decoded.remaining());
+    }
+
+}
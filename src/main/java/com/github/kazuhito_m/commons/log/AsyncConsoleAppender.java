@@ -0,0 +1,267 @@
+package com.github.kazuhito_m.commons.log;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ログの行を別スレッドでまとめてコンソールへ書き出すクラス。<br>
+ * 呼び出し側は有限のキューに積むだけで戻り、書き出し用スレッドが溜まった分を一度に出力・flushする。
+ * キューが満杯の場合の振る舞いはOverflowPolicyで指定する。
+ * flush()・close()を呼べば、それまでに積まれた行はすべて書き出される。
+ *
+ * @author Kazuhito Miura
+ */
+public class AsyncConsoleAppender {
+
+    /**
+     * キューが満杯の場合の振る舞い。
+     */
+    public enum OverflowPolicy {
+        /**
+         * 空きができるまで呼び出し側が待つ。(行は失われない)
+         */
+        BLOCK,
+        /**
+         * その行を捨てる。捨てた件数は次のflush時に報告する。
+         */
+        DISCARD
+    }
+
+    /**
+     * キューの容量の省略値。
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 8192;
+
+    /**
+     * 一度に書き出す最大行数の省略値。
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final PrintStream out;
+
+    private final BlockingQueue<String> queue;
+
+    private final OverflowPolicy policy;
+
+    private final int batchSize;
+
+    private final Thread writer;
+
+    /**
+     * キューに積んだ行数。
+     */
+    private final AtomicLong appended = new AtomicLong();
+
+    /**
+     * 捨てた行数。(未報告の分)
+     */
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * 書き出し終えた行数。(lockで保護)
+     */
+    private long written = 0;
+
+    private final Object lock = new Object();
+
+    /**
+     * closedの確認と積む処理(読み取り)を、close()(書き込み)と入れ違わせないためのロック。
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed = false;
+
+    /**
+     * コンストラクタ。標準出力へ、省略値の容量で書き出す。
+     *
+     * @param policy キューが満杯の場合の振る舞い。
+     */
+    public AsyncConsoleAppender(OverflowPolicy policy) {
+        this(System.out, DEFAULT_QUEUE_SIZE, policy, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * コンストラクタ。書き出し用スレッドを開始する。
+     *
+     * @param out       出力先。
+     * @param queueSize キューの容量(行数)。
+     * @param policy    キューが満杯の場合の振る舞い。
+     * @param batchSize 一度に書き出す最大行数。
+     */
+    public AsyncConsoleAppender(PrintStream out, int queueSize,
+                                OverflowPolicy policy, int batchSize) {
+        if (queueSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("queueSize and batchSize must be positive.");
+        }
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<String>(queueSize);
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                drainLoop();
+            }
+        }, "scm2cisync-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 一行(改行は含めない)を書き出し待ちに積む。close()後は呼び出し側で直接書き出す。
+     *
+     * @param line 行の内容。
+     */
+    public void append(String line) {
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                enqueue(line);
+                return;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        synchronized (lock) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * 一行をキューに積む。(closeLockの読み取りロックを取って呼ぶこと)
+     */
+    private void enqueue(String line) {
+        if (policy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(line);
+            } catch (InterruptedException e) {
+                // 待てないなら捨てる。割り込みは呼び出し側へ伝える。
+                Thread.currentThread().interrupt();
+                discarded.incrementAndGet();
+                return;
+            }
+        } else if (!queue.offer(line)) {
+            discarded.incrementAndGet();
+            return;
+        }
+        appended.incrementAndGet();
+    }
+
+    /**
+     * 呼び出し時点までに積まれた行が、すべて書き出されるまで待つ。
+     */
+    public void flush() {
+        long target = appended.get();
+        synchronized (lock) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            reportDiscarded();
+            out.flush();
+        }
+    }
+
+    /**
+     * 残りをすべて書き出し、書き出し用スレッドを止める。以後の行は呼び出し側で直接書き出す。
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        // 積んでいる最中の行があれば、それを終えてから閉じる。(以後は直接書き出される)
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        writer.interrupt();
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 止める間際に積まれた分があれば、ここで書き出す。
+        synchronized (lock) {
+            writeBatch(drain(Integer.MAX_VALUE));
+            reportDiscarded();
+        }
+    }
+
+    /**
+     * @return 捨てた(まだ報告していない)行数。
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * 書き出し用スレッドの本体。一行目を待ち、以降は溜まっている分をまとめて書き出す。
+     */
+    private void drainLoop() {
+        List<String> batch = new ArrayList<String>(batchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            synchronized (lock) {
+                writeBatch(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private List<String> drain(int max) {
+        List<String> batch = new ArrayList<String>();
+        queue.drainTo(batch, max);
+        return batch;
+    }
+
+    /**
+     * 行群を一度の書き込みで出力する。(lockを取って呼ぶこと)
+     */
+    private void writeBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String line : batch) {
+            sb.append(line).append(LINE_SEPARATOR);
+        }
+        out.print(sb);
+        out.flush();
+        written += batch.size();
+        lock.notifyAll();
+    }
+
+    /**
+     * 捨てた行があれば、その件数を出力する。(lockを取って呼ぶこと)
+     */
+    private void reportDiscarded() {
+        long count = discarded.getAndSet(0);
+        if (count > 0) {
+            out.println("[WARNING] " + count + " log messages discarded (log queue full).");
+        }
+    }
+
+}
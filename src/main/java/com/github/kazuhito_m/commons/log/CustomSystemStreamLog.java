@@ -4,14 +4,18 @@ import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 
-import java.lang.reflect.Proxy;
-import java.util.ArrayList;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * maven-plugin専用のログクラス。<br>
  * MavenのLog、plexusのLoggerの性質を併せ持つクラス。
  * また、「ログ履歴を参照できる」機能が追加されている。
+ * 各メソッドは内部のConsoleLoggerへ直接委譲し、出力しないレベルなら何もせず戻る。
+ * (メッセージの組み立てが重い場合は、Supplierを取るメソッドで遅延させられる)
+ * AsyncConsoleAppenderを設定すると、出力は別スレッドでまとめて行われる。
  *
  * @author Kazuhito Miura
  */
@@ -20,11 +24,24 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
     /**
      * 内部ロギング実処理クラス(org.codehaus.plexus.logging.console.ConsoleLogger)
      */
-    protected LevelChangeableLogger innerLogger;
+    protected ConsoleLogger innerLogger;
     /**
-     * ログ履歴リスト取得用、内部プロキシクラス
+     * ログ履歴。履歴機能が無効ならnull。
      */
-    LogInterceptHandler logProxy;
+    private volatile LogHistory history = null;
+    /**
+     * 非同期出力用のAppender。nullなら内部ロガーで直接出力する。
+     */
+    private volatile AsyncConsoleAppender appender = null;
+    /**
+     * レベルごとの出力の接頭辞。(ConsoleLoggerに合わせる)
+     */
+    private static final String[] LEVEL_PREFIXES =
+            {"[DEBUG] ", "[INFO] ", "[WARNING] ", "[ERROR] ", "[FATAL ERROR] "};
+    /**
+     * ログ履歴の容量(件数)。溢れたら古いものから捨てられる。
+     */
+    private int historyCapacity = LogHistory.DEFAULT_CAPACITY;
 
     /**
      * コンストラクタ。<br>
@@ -38,26 +55,12 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
     /**
      * コンストラクタ。<br>
      * 内部実処理クラスConsoleLoggerのコンストラクタを呼ぶ。
-     * さらにそれを核として、JavaのDynamicProxyを利用し、
-     * LogInterceptHandlerによる「ログの履歴取り機能」を加える。
      *
      * @param threshold 初期ログレベル。
      * @param name      ログの名前。
      */
     public CustomSystemStreamLog(int threshold, String name) {
-
-        // 通常のnewで得られるインスタンスを用意しておきます。
-        ConsoleLogger logger = new ConsoleLogger(threshold, name);
-
-        // 呼び出しハンドラクラスを生成します。
-        // その際に実際のインスタンスを渡しておきます。
-        this.logProxy = new LogInterceptHandler(logger);
-
-        // Proxy.newProxyInstanceメソッドを使ってインスタンスを生成します。
-        innerLogger =
-                (LevelChangeableLogger) Proxy.newProxyInstance(
-                        CustomSystemStreamLog.class.getClassLoader(),
-                        new Class[]{LevelChangeableLogger.class}, logProxy);
+        innerLogger = new ConsoleLogger(threshold, name);
     }
 
     /**
@@ -66,26 +69,24 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
      * @return 履歴機能が有効か否か。
      */
     public boolean isHistoryOn() {
-        return logProxy.getHistory() != null;
+        return history != null;
     }
 
     /**
      * 履歴機能が有効・無効を指定する。<br>
      * <p>
-     * 無効から有効にする場合、新たに内部履歴リストが作成され、
-     * 有効から無効とする場合、内部履歴リストが削除される。
+     * 無効から有効にする場合、新たに内部履歴(容量はhistoryCapacity)が作成され、
+     * 有効から無効とする場合、内部履歴が削除される。
      *
      * @param historyOn true:有効、false:無効
      */
     public void setHistoryOn(boolean historyOn) {
         if (historyOn) {
-            if (logProxy.getHistory() == null) {
-                logProxy.setHistory(new ArrayList<LogDetail>());
+            if (history == null) {
+                history = new LogHistory(historyCapacity);
             }
         } else {
-            if (logProxy.getHistory() != null) {
-                logProxy.setHistory(null);
-            }
+            history = null;
         }
     }
 
@@ -99,29 +100,16 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
     public List<LogDetail> getHistory(int... logLevels) {
 
         // まず、無い場合を省く。
-        if (logProxy.getHistory() == null) {
+        LogHistory history = this.history;
+        if (history == null) {
             return null;
         }
 
-        List<LogDetail> results = new ArrayList<LogDetail>();
-
-        // 「指定されていた」フラグを用意。
-        List<Integer> lavels = null;
-        if (logLevels != null && logLevels.length > 0) {
-            lavels = new ArrayList<Integer>();
-            for (int i = 0; i < logLevels.length; i++) {
-                lavels.add(logLevels[i]);
-            }
+        // 指定が無ければ全件、あればレベルごとの履歴から該当分のみ。
+        if (logLevels == null || logLevels.length == 0) {
+            return history.toList();
         }
-
-        // 今まで溜まっている履歴を検査しながらループ
-        for (LogDetail log : this.logProxy.getHistory()) {
-            if (lavels == null || lavels.contains(log.getLevel())) {
-                results.add(log);
-            }
-
-        }
-        return results;
+        return history.toList(logLevels);
     }
 
     /**
@@ -133,6 +121,39 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
         return this.getHistory(null);
     }
 
+    /**
+     * @return ログ履歴の容量(件数)
+     */
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+
+    /**
+     * ログ履歴の容量(件数)を指定する。次に履歴機能を有効にした時から反映される。
+     *
+     * @param historyCapacity 容量。(2のべき乗に切り上げられる)
+     */
+    public void setHistoryCapacity(int historyCapacity) {
+        this.historyCapacity = historyCapacity;
+    }
+
+    /**
+     * @return 非同期出力用のAppender。(未設定ならnull)
+     */
+    public AsyncConsoleAppender getAppender() {
+        return appender;
+    }
+
+    /**
+     * 非同期出力用のAppenderを設定する。nullなら内部ロガーで直接出力する。<br>
+     * Appenderのflush()・close()は設定した側の責任で行うこと。
+     *
+     * @param appender 非同期出力用のAppender。
+     */
+    public void setAppender(AsyncConsoleAppender appender) {
+        this.appender = appender;
+    }
+
     /**
      * 自身の子ロガーを取得する。
      */
@@ -140,6 +161,55 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
         return innerLogger.getChildLogger(name);
     }
 
+    /**
+     * 履歴機能が有効なら、ログの内容を履歴に追加する。(出力しないレベルのものも記録する)
+     */
+    private void record(int level, String message, Throwable throwable) {
+        LogHistory history = this.history;
+        if (history != null) {
+            LogDetail detail = new LogDetail();
+            detail.setLevel(level);
+            detail.setOutputTimeMillis(System.currentTimeMillis());
+            detail.setMessage(message);
+            detail.setThrowItem(throwable);
+            history.add(detail);
+        }
+    }
+
+    /**
+     * 非同期出力が設定されていれば、ConsoleLoggerと同じ形式でAppenderへ積む。
+     *
+     * @return 処理した(内部ロガーでの出力は不要):true。
+     */
+    private boolean appendAsync(int level, String message, Throwable throwable) {
+        AsyncConsoleAppender appender = this.appender;
+        if (appender == null) {
+            return false;
+        }
+        if (innerLogger.getThreshold() > level) {
+            return true;
+        }
+        String line = LEVEL_PREFIXES[level] + message;
+        if (throwable != null) {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            pw.println(line);
+            throwable.printStackTrace(pw);
+            pw.flush();
+            line = sw.toString().trim();
+        }
+        appender.append(line);
+        return true;
+    }
+
+    /**
+     * 指定レベルのログが、出力か履歴のいずれかに使われるか否か。
+     * 使われないならメッセージを組み立てる必要は無い。
+     */
+    private boolean isLogging(int level) {
+        return innerLogger.getThreshold() <= level || history != null;
+    }
+
     /**
      * ログレベルの設定を変更する。
      *
@@ -239,154 +309,280 @@ public class CustomSystemStreamLog implements LevelChangeableLogger, Log {
      * infoレベルのログを出力する。
      */
     public void info(String message) {
-        this.innerLogger.info(message);
+        record(LEVEL_INFO, message, null);
+        if (!appendAsync(LEVEL_INFO, message, null)) {
+            this.innerLogger.info(message);
+        }
     }
 
     /**
      * infoレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void info(String message, Throwable throwable) {
-        this.innerLogger.info(message, throwable);
+        record(LEVEL_INFO, message, throwable);
+        if (!appendAsync(LEVEL_INFO, message, throwable)) {
+            this.innerLogger.info(message, throwable);
+        }
     }
 
     /**
      * infoレベルのログをCharSequenceで出力する。
      */
     public void info(CharSequence content) {
-        this.info(content.toString());
+        if (isLogging(LEVEL_INFO)) {
+            this.info(content.toString());
+        }
     }
 
     /**
      * infoレベルのログへthrowableオブジェクトを出力する。
      */
     public void info(Throwable error) {
-        this.info(error.getMessage(), error);
+        if (isLogging(LEVEL_INFO)) {
+            this.info(error.getMessage(), error);
+        }
     }
 
     /**
      * infoレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void info(CharSequence content, Throwable error) {
-        this.info(content.toString(), error);
+        if (isLogging(LEVEL_INFO)) {
+            this.info(content.toString(), error);
+        }
+    }
+
+    /**
+     * infoレベルのログを出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void info(Supplier<? extends CharSequence> message) {
+        if (isLogging(LEVEL_INFO)) {
+            this.info(message.get().toString());
+        }
+    }
+
+    /**
+     * infoレベルのログをthrowableオブジェクト付きで出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void info(Supplier<? extends CharSequence> message, Throwable error) {
+        if (isLogging(LEVEL_INFO)) {
+            this.info(message.get().toString(), error);
+        }
     }
 
     /**
      * warnレベルのログを出力する。
      */
     public void warn(String message) {
-        this.innerLogger.warn(message);
+        record(LEVEL_WARN, message, null);
+        if (!appendAsync(LEVEL_WARN, message, null)) {
+            this.innerLogger.warn(message);
+        }
     }
 
     /**
      * warnレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void warn(String message, Throwable throwable) {
-        this.innerLogger.warn(message, throwable);
+        record(LEVEL_WARN, message, throwable);
+        if (!appendAsync(LEVEL_WARN, message, throwable)) {
+            this.innerLogger.warn(message, throwable);
+        }
     }
 
     /**
      * warnレベルのログを出力する。
      */
     public void warn(CharSequence content) {
-        this.warn(content.toString());
+        if (isLogging(LEVEL_WARN)) {
+            this.warn(content.toString());
+        }
     }
 
     /**
      * warnレベルのログへthrowableオブジェクトを出力する。
      */
     public void warn(Throwable error) {
-        this.warn(error.getMessage(), error);
+        if (isLogging(LEVEL_WARN)) {
+            this.warn(error.getMessage(), error);
+        }
     }
 
     /**
      * warnレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void warn(CharSequence content, Throwable error) {
-        this.warn(content.toString(), error);
+        if (isLogging(LEVEL_WARN)) {
+            this.warn(content.toString(), error);
+        }
+    }
+
+    /**
+     * warnレベルのログを出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void warn(Supplier<? extends CharSequence> message) {
+        if (isLogging(LEVEL_WARN)) {
+            this.warn(message.get().toString());
+        }
+    }
+
+    /**
+     * warnレベルのログをthrowableオブジェクト付きで出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void warn(Supplier<? extends CharSequence> message, Throwable error) {
+        if (isLogging(LEVEL_WARN)) {
+            this.warn(message.get().toString(), error);
+        }
     }
 
     /**
      * debugレベルのログを出力する。
      */
     public void debug(String message) {
-        this.innerLogger.debug(message);
+        record(LEVEL_DEBUG, message, null);
+        if (!appendAsync(LEVEL_DEBUG, message, null)) {
+            this.innerLogger.debug(message);
+        }
     }
 
     /**
      * debugレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void debug(String message, Throwable throwable) {
-        this.innerLogger.debug(message, throwable);
+        record(LEVEL_DEBUG, message, throwable);
+        if (!appendAsync(LEVEL_DEBUG, message, throwable)) {
+            this.innerLogger.debug(message, throwable);
+        }
     }
 
     /**
      * debugレベルのログを出力する。
      */
     public void debug(CharSequence content) {
-        this.debug(content.toString());
+        if (isLogging(LEVEL_DEBUG)) {
+            this.debug(content.toString());
+        }
     }
 
     /**
      * debugレベルのログへthrowableオブジェクトを出力する。
      */
     public void debug(Throwable error) {
-        this.debug(error.getMessage(), error);
+        if (isLogging(LEVEL_DEBUG)) {
+            this.debug(error.getMessage(), error);
+        }
     }
 
     /**
      * debugレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void debug(CharSequence content, Throwable error) {
-        this.debug(content.toString(), error);
+        if (isLogging(LEVEL_DEBUG)) {
+            this.debug(content.toString(), error);
+        }
+    }
+
+    /**
+     * debugレベルのログを出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void debug(Supplier<? extends CharSequence> message) {
+        if (isLogging(LEVEL_DEBUG)) {
+            this.debug(message.get().toString());
+        }
+    }
+
+    /**
+     * debugレベルのログをthrowableオブジェクト付きで出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void debug(Supplier<? extends CharSequence> message, Throwable error) {
+        if (isLogging(LEVEL_DEBUG)) {
+            this.debug(message.get().toString(), error);
+        }
     }
 
     /**
      * errorレベルのログを出力する。
      */
     public void error(String message) {
-        this.innerLogger.error(message);
+        record(LEVEL_ERROR, message, null);
+        if (!appendAsync(LEVEL_ERROR, message, null)) {
+            this.innerLogger.error(message);
+        }
     }
 
     /**
      * errorレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void error(String message, Throwable throwable) {
-        this.innerLogger.error(message, throwable);
+        record(LEVEL_ERROR, message, throwable);
+        if (!appendAsync(LEVEL_ERROR, message, throwable)) {
+            this.innerLogger.error(message, throwable);
+        }
     }
 
     /**
      * errorレベルのログを出力する。
      */
     public void error(CharSequence content) {
-        this.error(content.toString());
+        if (isLogging(LEVEL_ERROR)) {
+            this.error(content.toString());
+        }
     }
 
     /**
      * errorレベルのログへthrowableオブジェクトを出力する。
      */
     public void error(Throwable error) {
-        this.error(error.getMessage(), error);
+        if (isLogging(LEVEL_ERROR)) {
+            this.error(error.getMessage(), error);
+        }
     }
 
     /**
      * errorレベルのログをthrowableオブジェクト付きで出力する。
      */
     public void error(CharSequence content, Throwable error) {
-        this.error(content.toString(), error);
+        if (isLogging(LEVEL_ERROR)) {
+            this.error(content.toString(), error);
+        }
+    }
+
+    /**
+     * errorレベルのログを出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void error(Supplier<? extends CharSequence> message) {
+        if (isLogging(LEVEL_ERROR)) {
+            this.error(message.get().toString());
+        }
+    }
+
+    /**
+     * errorレベルのログをthrowableオブジェクト付きで出力する。メッセージは出力する場合のみ組み立てる。
+     */
+    public void error(Supplier<? extends CharSequence> message, Throwable error) {
+        if (isLogging(LEVEL_ERROR)) {
+            this.error(message.get().toString(), error);
+        }
     }
 
     /**
      * fatalErrorレベルのログを出力する。
      */
     public void fatalError(String message) {
-        this.innerLogger.fatalError(message);
+        record(LEVEL_FATAL, message, null);
+        if (!appendAsync(LEVEL_FATAL, message, null)) {
+            this.innerLogger.fatalError(message);
+        }
     }
 
     /**
      * fatalErrorレベルのログを出力する。
      */
     public void fatalError(String message, Throwable throwable) {
-        this.innerLogger.fatalError(message, throwable);
+        record(LEVEL_FATAL, message, throwable);
+        if (!appendAsync(LEVEL_FATAL, message, throwable)) {
+            this.innerLogger.fatalError(message, throwable);
+        }
     }
 
 }
@@ -0,0 +1,47 @@
+package com.github.kazuhito_m.commons.log;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.function.Supplier;
+
+/**
+ * MavenのLogに対し、メッセージを「出力する場合のみ」組み立ててログを出すための道具。<br>
+ * CustomSystemStreamLogならSupplierを取るメソッドへそのまま渡し、
+ * それ以外のLogならレベルを確かめてから組み立てる。
+ *
+ * @author Kazuhito Miura
+ */
+public final class LazyLog {
+
+    private LazyLog() {
+    }
+
+    /**
+     * debugレベルのログを出力する。
+     *
+     * @param log     ログオブジェクト。(nullなら何もしない)
+     * @param message メッセージを組み立てる処理。
+     */
+    public static void debug(Log log, Supplier<? extends CharSequence> message) {
+        if (log instanceof CustomSystemStreamLog) {
+            ((CustomSystemStreamLog) log).debug(message);
+        } else if (log != null && log.isDebugEnabled()) {
+            log.debug(message.get());
+        }
+    }
+
+    /**
+     * infoレベルのログを出力する。
+     *
+     * @param log     ログオブジェクト。(nullなら何もしない)
+     * @param message メッセージを組み立てる処理。
+     */
+    public static void info(Log log, Supplier<? extends CharSequence> message) {
+        if (log instanceof CustomSystemStreamLog) {
+            ((CustomSystemStreamLog) log).info(message);
+        } else if (log != null && log.isInfoEnabled()) {
+            log.info(message.get());
+        }
+    }
+
+}
@@ -13,9 +13,9 @@ public class LogDetail {
     // 内部フィールド値
 
     /**
-     * 出力された日付時刻
+     * 出力された日付時刻(エポックからのミリ秒)
      */
-    private Date outputTime;
+    private long outputTimeMillis;
 
     /**
      * ログレベル(org.codehaus.plexus.logging.Loggerのログレベル値に準拠)
@@ -32,6 +32,16 @@ public class LogDetail {
      */
     private Throwable throwItem;
 
+    /**
+     * 履歴(LogHistory)内での通し番号。履歴に加えられた時に振られる。
+     */
+    long sequence;
+
+    /**
+     * 履歴(LogHistory)内での、同じレベル内の通し番号。履歴に加えられた時に振られる。
+     */
+    long levelSequence;
+
     // Getter/Setter群
 
     /**
@@ -66,14 +76,28 @@ public class LogDetail {
      * @return the outputTime
      */
     public Date getOutputTime() {
-        return outputTime;
+        return new Date(outputTimeMillis);
     }
 
     /**
      * @param outputTime the outputTime to set
      */
     public void setOutputTime(Date outputTime) {
-        this.outputTime = outputTime;
+        this.outputTimeMillis = outputTime.getTime();
+    }
+
+    /**
+     * @return the outputTimeMillis
+     */
+    public long getOutputTimeMillis() {
+        return outputTimeMillis;
+    }
+
+    /**
+     * @param outputTimeMillis the outputTimeMillis to set
+     */
+    public void setOutputTimeMillis(long outputTimeMillis) {
+        this.outputTimeMillis = outputTimeMillis;
     }
 
     /**
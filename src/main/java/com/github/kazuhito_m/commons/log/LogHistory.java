@@ -0,0 +1,207 @@
+package com.github.kazuhito_m.commons.log;
+
+import org.codehaus.plexus.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ログ履歴を、決まった件数だけ保持するリングバッファ。<br>
+ * 満杯になると古いものから捨てられる。(保持されるのは直近の「容量」件)
+ * <ul>
+ * <li>ログレベルごとにリングを持ち、レベル指定の取得は該当する件数分だけ読む。</li>
+ * <li>追加はロック無し(通し番号の払い出しのみ)で、複数スレッドから同時に行ってよい。</li>
+ * <li>取得は追加と同時に行ってよい。その時点で書き込みを終えているものが返る。</li>
+ * </ul>
+ *
+ * @author Kazuhito Miura
+ */
+public class LogHistory {
+
+    /**
+     * 省略時の容量。
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * 扱うログレベルの数。(Logger.LEVEL_DEBUG 〜 Logger.LEVEL_FATAL)
+     */
+    private static final int LEVEL_COUNT = Logger.LEVEL_FATAL + 1;
+
+    /**
+     * 通し番号順の並び替え。
+     */
+    private static final Comparator<LogDetail> BY_SEQUENCE = new Comparator<LogDetail>() {
+        public int compare(LogDetail a, LogDetail b) {
+            return Long.compare(a.sequence, b.sequence);
+        }
+    };
+
+    /**
+     * 容量。(2のべき乗に切り上げたもの)
+     */
+    private final int capacity;
+
+    /**
+     * リングの位置を求めるためのマスク。
+     */
+    private final int mask;
+
+    /**
+     * 次に振る通し番号。
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * レベルごとの、次に振るレベル内通し番号。
+     */
+    private final AtomicLong[] levelNext = new AtomicLong[LEVEL_COUNT];
+
+    /**
+     * レベルごとのリング。
+     */
+    private final AtomicReferenceArray<?>[] rings = new AtomicReferenceArray<?>[LEVEL_COUNT];
+
+    /**
+     * コンストラクタ。容量は省略値。
+     */
+    public LogHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param capacity 容量。(2のべき乗に切り上げられる)
+     */
+    public LogHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive : " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        for (int i = 0; i < LEVEL_COUNT; i++) {
+            levelNext[i] = new AtomicLong();
+            rings[i] = new AtomicReferenceArray<LogDetail>(size);
+        }
+    }
+
+    /**
+     * 履歴を一件追加する。扱わないレベルのものは無視する。
+     *
+     * @param detail ログの内容。(追加後は変更しないこと)
+     */
+    public void add(LogDetail detail) {
+        int level = detail.getLevel();
+        if (level < 0 || level >= LEVEL_COUNT) {
+            return;
+        }
+        detail.sequence = next.getAndIncrement();
+        detail.levelSequence = levelNext[level].getAndIncrement();
+        store(detail);
+    }
+
+    /**
+     * 通し番号を振り終えた履歴を、リングの位置へ書き込む。<br>
+     * 遅れて書き込む側が、一周後の新しい履歴を上書きして消さないよう、
+     * 今あるものより新しい場合だけ置き換える。
+     *
+     * @param detail 通し番号を振り終えたログの内容。
+     */
+    void store(LogDetail detail) {
+        AtomicReferenceArray<LogDetail> ring = ringOf(detail.getLevel());
+        int slot = (int) detail.levelSequence & mask;
+        while (true) {
+            LogDetail current = ring.get(slot);
+            if (current != null && current.levelSequence >= detail.levelSequence) {
+                return;
+            }
+            if (ring.compareAndSet(slot, current, detail)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 保持しているすべての履歴を、古い順に返す。
+     *
+     * @return ログ内容のList。(呼び出し側で変更してよい写し)
+     */
+    public List<LogDetail> toList() {
+        List<LogDetail> results = new ArrayList<LogDetail>();
+        long oldest = next.get() - capacity;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            collect(level, oldest, results);
+        }
+        Collections.sort(results, BY_SEQUENCE);
+        return results;
+    }
+
+    /**
+     * 指定されたレベルの履歴を、古い順に返す。
+     *
+     * @param levels 取得したいログレベル。(扱わないレベル・重複は無視する)
+     * @return ログ内容のList。(呼び出し側で変更してよい写し)
+     */
+    public List<LogDetail> toList(int... levels) {
+        List<LogDetail> results = new ArrayList<LogDetail>();
+        long oldest = next.get() - capacity;
+        boolean[] done = new boolean[LEVEL_COUNT];
+        for (int level : levels) {
+            if (level >= 0 && level < LEVEL_COUNT && !done[level]) {
+                done[level] = true;
+                collect(level, oldest, results);
+            }
+        }
+        Collections.sort(results, BY_SEQUENCE);
+        return results;
+    }
+
+    /**
+     * 保持している(捨てられていない)件数を返す。
+     */
+    public int size() {
+        return (int) Math.min(next.get(), capacity);
+    }
+
+    /**
+     * @return 容量。
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 指定レベルのリングから、通し番号がoldestより新しいものを新しい側から集める。
+     */
+    private void collect(int level, long oldest, List<LogDetail> results) {
+        AtomicReferenceArray<LogDetail> ring = ringOf(level);
+        long top = levelNext[level].get();
+        long bottom = Math.max(0, top - capacity);
+        for (long s = top - 1; s >= bottom; s--) {
+            LogDetail detail = ring.get((int) s & mask);
+            if (detail == null || detail.levelSequence != s) {
+                // 書き込み途中か、すでに新しいものに上書きされている。
+                continue;
+            }
+            if (detail.sequence < oldest) {
+                break; // ここより前は全体の容量から溢れたもの。
+            }
+            results.add(detail);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<LogDetail> ringOf(int level) {
+        return (AtomicReferenceArray<LogDetail>) rings[level];
+    }
+
+}
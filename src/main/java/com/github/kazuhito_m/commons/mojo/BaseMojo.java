@@ -5,6 +5,7 @@ import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import com.github.kazuhito_m.commons.log.AsyncConsoleAppender;
 import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
 
 /**
@@ -40,6 +41,32 @@ public abstract class BaseMojo extends AbstractMojo {
      */
     protected String basedir;
 
+    /**
+     * ログを別スレッドでまとめて出力するか否か。(遅いコンソールで処理が止まらないように)
+     *
+     * @parameter expression="${asyncLog}" default-value="false"
+     */
+    protected boolean asyncLog;
+
+    /**
+     * 非同期出力時の、出力待ちログの最大行数。
+     *
+     * @parameter expression="${asyncLogQueueSize}" default-value="8192"
+     */
+    protected int asyncLogQueueSize = AsyncConsoleAppender.DEFAULT_QUEUE_SIZE;
+
+    /**
+     * 非同期出力時、出力待ちが満杯の場合の振る舞い。(BLOCK:空くまで待つ , DISCARD:捨てて件数を報告)
+     *
+     * @parameter expression="${asyncLogOverflowPolicy}" default-value="BLOCK"
+     */
+    protected String asyncLogOverflowPolicy = AsyncConsoleAppender.OverflowPolicy.BLOCK.name();
+
+    /**
+     * 非同期出力用のAppender。(非同期出力時のみ、ログオブジェクト間で共有)
+     */
+    private AsyncConsoleAppender appender;
+
     /**
      * デバッグ用ログオブジェクト。
      */
@@ -82,10 +109,30 @@ public abstract class BaseMojo extends AbstractMojo {
     public Log getLog() {
         CustomSystemStreamLog customLog = new CustomSystemStreamLog();
         customLog.setDebugEnabled(this.debug);
+        if (asyncLog) {
+            if (appender == null) {
+                appender = new AsyncConsoleAppender(System.out, asyncLogQueueSize,
+                        AsyncConsoleAppender.OverflowPolicy.valueOf(
+                                asyncLogOverflowPolicy.trim().toUpperCase()),
+                        AsyncConsoleAppender.DEFAULT_BATCH_SIZE);
+            }
+            customLog.setAppender(appender);
+        }
         log = customLog;
         return this.log;
     }
 
+    /**
+     * 非同期出力していたなら、出力待ちのログをすべて書き出して止める。<br>
+     * Mojoの処理の終わりに(成否に関わらず)必ず呼ぶこと。以後のログは直接出力される。
+     */
+    protected void closeLog() {
+        if (appender != null) {
+            appender.close();
+            appender = null;
+        }
+    }
+
     /**
      * 自身オブジェクトの文字列表現を返す。 プロパティを列挙するようにオーバーライドしている。
      */
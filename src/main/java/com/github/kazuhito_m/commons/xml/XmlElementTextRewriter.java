@@ -0,0 +1,181 @@
+package com.github.kazuhito_m.commons.xml;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * XMLを読みながら書き出し、指定された経路の要素の内容(テキスト)だけを差し替えるクラス。<br>
+ * StAXで一要素ずつ流すため、文書全体をメモリ上の木(DOM)にはしない。
+ * 経路はルート要素の子からの要素名の並びで、各段は最初に現れたものを対象とする。(XPathのselectSingleNode相当)
+ * 経路の先頭の要素が無ければ何も変更しない。二段目以降の要素が無ければ作成する。
+ *
+ * @author Kazuhito Miura
+ */
+public class XmlElementTextRewriter {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /**
+     * ルート要素の子からの要素名の並び。
+     */
+    private final String[] path;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param path ルート要素の子からの要素名の並び。(例:"publishers","hudson.tasks.BuildTrigger","childProjects")
+     */
+    public XmlElementTextRewriter(String... path) {
+        if (path.length == 0) {
+            throw new IllegalArgumentException("path is empty.");
+        }
+        this.path = path.clone();
+    }
+
+    /**
+     * XMLを読み、対象要素の内容を差し替えて書き出す。
+     *
+     * @param in       元のXML。
+     * @param out      書き出し先。(closeはしない)
+     * @param text     対象要素の新しい内容。
+     * @param previous 対象要素の元の内容を受け取るStringBuilder。不要ならnull。
+     * @return 差し替えた:true。経路の先頭の要素が無く、変更しなかった:false。
+     * @throws IOException XMLとして読めない場合、または入出力エラー。
+     */
+    public boolean rewrite(InputStream in, OutputStream out, String text,
+                           StringBuilder previous) throws IOException {
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+        try {
+            reader = INPUT_FACTORY.createXMLEventReader(in);
+
+            // 元の文書の文字コードで書き出す。
+            String encoding = "UTF-8";
+            XMLEvent first = reader.peek();
+            if (first != null && first.isStartDocument()
+                    && ((StartDocument) first).encodingSet()) {
+                encoding = ((StartDocument) first).getCharacterEncodingScheme();
+            }
+            writer = OUTPUT_FACTORY.createXMLEventWriter(out, encoding);
+
+            boolean rewritten = copy(reader, writer, text, previous);
+            writer.flush();
+            return rewritten;
+        } catch (XMLStreamException e) {
+            throw new IOException("xml rewrite failed : " + e.getMessage(), e);
+        } finally {
+            close(reader, writer);
+        }
+    }
+
+    /**
+     * 要素を一つずつ書き写しながら、経路をたどる。
+     */
+    private boolean copy(XMLEventReader reader, XMLEventWriter writer, String text,
+                         StringBuilder previous) throws XMLStreamException {
+        int depth = -1;     // ルート要素を0とする、今いる要素の深さ。
+        int matched = 0;    // 今いる要素の祖先(自身含む)で、経路に一致している段数。
+        boolean done = false;
+
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                depth++;
+                writer.add(event);
+                if (!done && depth == matched + 1 && depth <= path.length
+                        && path[depth - 1].equals(event.asStartElement().getName().getLocalPart())) {
+                    matched++;
+                    if (matched == path.length) {
+                        // 対象要素。中身を読み飛ばし、新しい内容に差し替える。
+                        skipContent(reader, previous);
+                        writer.add(EVENT_FACTORY.createCharacters(text));
+                        done = true;
+                    }
+                }
+                continue;
+            }
+
+            if (event.isEndElement()) {
+                if (!done && depth >= 1 && depth == matched) {
+                    // 経路上の要素が、続きの要素を含まないまま閉じる。足りない分を作る。
+                    for (int i = matched; i < path.length; i++) {
+                        writer.add(EVENT_FACTORY.createStartElement("", "", path[i]));
+                    }
+                    writer.add(EVENT_FACTORY.createCharacters(text));
+                    for (int i = path.length - 1; i >= matched; i--) {
+                        writer.add(EVENT_FACTORY.createEndElement("", "", path[i]));
+                    }
+                    done = true;
+                }
+                if (depth == matched && matched > 0) {
+                    matched--;
+                }
+                depth--;
+            }
+            writer.add(event);
+        }
+        return done;
+    }
+
+    /**
+     * 対象要素の中身を、閉じタグの直前まで読み飛ばす。(必要なら元のテキストを集める)
+     */
+    private static void skipContent(XMLEventReader reader, StringBuilder previous)
+            throws XMLStreamException {
+        int nest = 0;
+        while (reader.hasNext()) {
+            XMLEvent next = reader.peek();
+            if (next.isEndElement() && nest == 0) {
+                return;
+            }
+            reader.nextEvent();
+            if (next.isStartElement()) {
+                nest++;
+            } else if (next.isEndElement()) {
+                nest--;
+            } else if (next.isCharacters() && previous != null) {
+                previous.append(next.asCharacters().getData());
+            }
+        }
+    }
+
+    private static void close(XMLEventReader reader, XMLEventWriter writer) {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            // 閉じる際のエラーは無視。(書き出し先のストリーム自体は閉じない)
+        }
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            // 同上
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // job設定にDTD・外部実体は無い。読み込まないようにしておく。
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+}
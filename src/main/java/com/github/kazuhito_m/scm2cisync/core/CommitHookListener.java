@@ -0,0 +1,234 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SCMのコミットフック(SVNのpost-commit等)からの通知を受ける、組み込みの小さなHTTPサーバ。<br>
+ * 「/commit」へ repository(リポジトリのURLかパス) と revision(リビジョン番号) を
+ * クエリ文字列、またはPOSTのフォーム形式で送ると、SynchronizeWatcher.notifyCommit()へ渡す。
+ * 同期自体は常駐側で(短い間の通知をまとめてから)行うため、応答はすぐに返る。
+ * 合言葉(secret)を設定した場合、同じ値の secret パラメータかX-Hook-Secretヘッダが無い通知は拒否する。
+ * <pre>
+ * curl -s -d "repository=http://svn.example.com/repos" -d "revision=$REV" http://ci-sync:8089/commit
+ * </pre>
+ *
+ * @author Kazuhito Miura
+ */
+public class CommitHookListener implements HttpHandler {
+
+    /**
+     * 通知を受けるパス。
+     */
+    public static final String CONTEXT_PATH = "/commit";
+
+    /**
+     * 合言葉を送るリクエストヘッダ名。
+     */
+    public static final String SECRET_HEADER = "X-Hook-Secret";
+
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * 通知を渡す常駐オブジェクト。
+     */
+    private final SynchronizeWatcher watcher;
+
+    /**
+     * デバッグ/情報表示用ログオブジェクト。
+     */
+    protected Log log = null;
+
+    /**
+     * 通知に求める合言葉。nullか空なら求めない。
+     */
+    private String secret = null;
+
+    private HttpServer server;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param watcher 通知を渡す常駐オブジェクト。
+     */
+    public CommitHookListener(SynchronizeWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    /**
+     * 指定のアドレスで待ち受けを始める。
+     *
+     * @param address 待ち受けるアドレス。(ポート0なら空いているポート)
+     * @throws IOException 待ち受けられない場合。
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext(CONTEXT_PATH, this);
+        server.start();
+    }
+
+    /**
+     * 待ち受けを止める。
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * @return 待ち受けているポート番号。
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return 待ち受けているアドレス。
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public void handle(HttpExchange ex) throws IOException {
+        try {
+            String method = ex.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method)) {
+                ex.getResponseHeaders().set("Allow", "GET, POST");
+                respond(ex, 405, "method not allowed : " + method);
+                return;
+            }
+
+            Map<String, String> params = new HashMap<String, String>();
+            try {
+                parseParameters(ex.getRequestURI().getRawQuery(), params);
+                if ("POST".equals(method)) {
+                    parseParameters(new String(readAll(ex.getRequestBody()), UTF_8), params);
+                }
+            } catch (IllegalArgumentException e) {
+                // 不正なエスケープ(%zz等)
+                respond(ex, 400, "malformed parameters : " + e.getMessage());
+                return;
+            }
+
+            if (!isAuthorized(params.get("secret"),
+                    ex.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                if (log != null) {
+                    log.warn("commit notification rejected (secret mismatch) from "
+                            + ex.getRemoteAddress());
+                }
+                respond(ex, 403, "secret mismatch.");
+                return;
+            }
+
+            String repository = params.get("repository");
+            if (repository == null || repository.trim().isEmpty()) {
+                respond(ex, 400, "parameter 'repository' is required.");
+                return;
+            }
+            long revision = 0;
+            String rev = params.get("revision");
+            if (rev != null && !rev.trim().isEmpty()) {
+                try {
+                    revision = Long.parseLong(rev.trim());
+                } catch (NumberFormatException e) {
+                    respond(ex, 400, "parameter 'revision' is not a number : " + rev);
+                    return;
+                }
+            }
+
+            int count = watcher.notifyCommit(repository.trim(), revision);
+            if (log != null) {
+                log.info("commit notified (" + repository + "@" + revision + ") : "
+                        + count + " synchronize targets queued.");
+            }
+            respond(ex, count > 0 ? 202 : 200, count + " synchronize targets queued.");
+        } finally {
+            ex.close();
+        }
+    }
+
+    /**
+     * 送られた合言葉が、設定したものと一致するか否かを返す。(比較は長さ以外の時間差を出さない)
+     *
+     * @param param  secretパラメータの値。
+     * @param header X-Hook-Secretヘッダの値。
+     * @return 合言葉を求めない、またはどちらかが一致すれば:true。
+     */
+    private boolean isAuthorized(String param, String header) throws IOException {
+        if (secret == null || secret.isEmpty()) {
+            return true;
+        }
+        byte[] expected = secret.getBytes(UTF_8);
+        for (String given : new String[]{param, header}) {
+            if (given != null && MessageDigest.isEqual(expected, given.getBytes(UTF_8))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * フォーム形式(a=1&amp;b=2)の文字列を、名前と値の組にして加える。
+     *
+     * @param form   フォーム形式の文字列。(nullなら何もしない)
+     * @param params 加える先。
+     * @throws IllegalArgumentException 不正なエスケープ(%zz等)を含む場合。
+     */
+    static void parseParameters(String form, Map<String, String> params) throws IOException {
+        if (form == null) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, UTF_8), URLDecoder.decode(value, UTF_8));
+        }
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        for (int n; (n = is.read(buf)) >= 0; ) {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void respond(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        OutputStream os = ex.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+
+    // Getter/Setter群
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret == null ? null : secret.trim();
+    }
+
+}
@@ -1,19 +1,27 @@
 package com.github.kazuhito_m.scm2cisync.core;
 
-import com.github.kazuhito_m.commons.io.StringBuilderInputStream;
-import com.github.kazuhito_m.scm2cisync.core.controller.ci.JenkinsControler;
+import com.github.kazuhito_m.commons.io.CharSequenceInputStream;
+import com.github.kazuhito_m.commons.log.LazyLog;
+import com.github.kazuhito_m.scm2cisync.core.controller.ControlerFactory;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.SnapshotCiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControler;
 import com.github.kazuhito_m.scm2cisync.core.controller.scm.SubversionControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.SvnSessionPool;
+import com.github.kazuhito_m.scm2cisync.core.store.JobNameSnapshotStore;
+import com.github.kazuhito_m.scm2cisync.core.store.LastRunInfomationStore;
+import com.github.kazuhito_m.scm2cisync.core.template.VelocityTemplateCache;
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
 import com.github.kazuhito_m.scm2cisync.core.vo.LastRunInfomation;
 import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
 import org.apache.maven.plugin.logging.Log;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
-import org.apache.velocity.app.VelocityEngine;
 
-import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -23,11 +31,36 @@ import java.util.*;
  */
 public class ScmToCiSynchronizer {
 
+    /**
+     * CIへ送るjob設定(config.xml)の文字コード。
+     */
+    private static final Charset JOB_CONFIG_CHARSET = Charset.forName("UTF-8");
+
     /**
      * デバッグ/情報表示用ログオブジェクト。
      */
     protected Log log = null;
 
+    /**
+     * 同期対象間で共有するSubversion接続のプール。nullなら共有しない。
+     */
+    private SvnSessionPool svnSessionPool = null;
+
+    /**
+     * 前回実行情報の読み書きを行うオブジェクト。
+     */
+    private LastRunInfomationStore lastRunInfoStore = new LastRunInfomationStore();
+
+    /**
+     * CIサーバごとのjob名一覧の控えを読み書きするオブジェクト。(同期対象間で共有)
+     */
+    private JobNameSnapshotStore jobNameSnapshotStore = new JobNameSnapshotStore();
+
+    /**
+     * jobのテンプレートファイルを解析済みの状態で保持するキャッシュ。
+     */
+    private VelocityTemplateCache templateCache = new VelocityTemplateCache();
+
     /**
      * svn-test前の準備処理。
      *
@@ -35,6 +68,19 @@ public class ScmToCiSynchronizer {
      * @throws Exception
      */
     public void synchronize(SynchronizeTarget st) throws Exception {
+        synchronize(st, new SynchronizeGroup(Collections.singletonList(st)));
+    }
+
+    /**
+     * 同じSCM・CIを向いた同期対象のまとまりの一つとして、同期処理を行う。<br>
+     * SCM・CIから取得する情報は、まとまり内で共有する。
+     *
+     * @param st    設定値オブジェクト。
+     * @param group 同期対象が属するまとまり。
+     * @throws Exception すべての例外。
+     */
+    public void synchronize(SynchronizeTarget st, SynchronizeGroup group)
+            throws Exception {
 
         LastRunInfomation lastRunInfo = null; // 過去実行情報
 
@@ -46,109 +92,233 @@ public class ScmToCiSynchronizer {
 
         // 道具の準備
 
-        // SCM(ソース管理システム)コントローラを用意。(現状Subversionのみ)
-        SubversionControler scmControler = new SubversionControler();
-        scmControler.setLog(log);
-        scmControler.setUrlPath(st.getScmUrl());
-
-        scmControler.setAuthType(st.getScmAuthType());
-        scmControler.setUserName(st.getScmUserName());
-        scmControler.setPassword(st.getScmPassword());
+        // SCM(ソース管理システム)コントローラを用意。(scmTypeに従う。まとまりで使い回すものがあればそれ)
+        ScmControler scmControler = group.getResidentScmControler();
+        if (scmControler == null) {
+            scmControler = createScmControler(st);
+            scmControler.setLog(log);
+        }
 
-        // CI(継続的インテグレーションサーバ)コントローラを用意。(現状Jenkinsのみ)
-        JenkinsControler ciControler = new JenkinsControler();
+        // CI(継続的インテグレーションサーバ)コントローラを用意。(ciTypeに従う。まとまりで使い回すものがあればそれ)
+        final boolean residentCi = group.getResidentCiControler() != null;
+        CiControler ciControler = residentCi ? group.getResidentCiControler()
+                : createCiControler(st);
         ciControler.setLog(log);
-        ciControler.setUrlPath(st.getCiUrl());
-
-        // 前の実行ファイルが存在し…設定をvoに取得できたら。
-        File lastProfile = new File(st.getLastProfilePath());
-        if (lastProfile.exists()) {
-            XMLDecoder xmlDec = new XMLDecoder(new BufferedInputStream(
-                    new FileInputStream(lastProfile)));
-            lastRunInfo = (LastRunInfomation) xmlDec.readObject();
-            xmlDec.close();
-        }
 
-        // 以前から変更があったか否かを判定。なければ処理をスキップ。
-        long headRev = scmControler.getHeadRevisionNo();
-        if (lastRunInfo != null) {
-            if (lastRunInfo.getScmHeadRevisionNumber() == headRev) {
-                log.info("scm not update (rev:" + headRev + "). sync skip.");
-                return;
+        try {
+
+            // 前の実行ファイルが存在し…設定をvoに取得できたら。
+            File lastProfile = new File(st.getLastProfilePath());
+            lastRunInfo = lastRunInfoStore.load(lastProfile);
+
+            // 以前から変更があったか否かを判定。なければ処理をスキップ。
+            long headRev = group.getHeadRevisionNo(scmControler);
+            if (lastRunInfo != null) {
+                if (lastRunInfo.getScmHeadRevisionNumber() == headRev) {
+                    log.info("scm not update (rev:" + headRev + "). sync skip.");
+                    return;
+                }
             }
-        }
 
-        // SCM(ソース管理システム)にあるか否かを聞く。
-        List<String> addedNames = new ArrayList<String>(); // SCMにて追加されたディレクトリ
-        List<String> deletedNames = new ArrayList<String>(); // SCMにて削除されたディレクトリ
+            // SCM(ソース管理システム)にあるか否かを聞く。
+            List<String> addedNames = new ArrayList<String>(); // SCMにて追加されたディレクトリ
+            List<String> deletedNames = new ArrayList<String>(); // SCMにて削除されたディレクトリ
+
+            // 前回実行ありか、そうでないかで処理を分ける。
+            if (lastRunInfo == null) {
+                // 最初の一回なら、HEADリビジョンの一覧を取得。
+                addedNames = group.getDirNameList(scmControler, headRev);
+                lastRunInfo = new LastRunInfomation();
+                lastRunInfo.storeScmDirNames(addedNames);
+            } else {
+                // 前回があれば「前回取得リビジョン以降で追加・削除されたもの」を取得
+                DirectoryDelta delta = getDirectoryDelta(scmControler, group, st,
+                        lastRunInfo, headRev);
+                addedNames = delta.getAddedNames();
+                deletedNames = delta.getDeletedNames();
+            }
+            lastRunInfo.setScmHeadRevisionNumber(headRev); // 最新リビジョンを保存。
 
-        // 前回実行ありか、そうでないかで処理を分ける。
-        if (lastRunInfo == null) {
-            // 最初の一回なら、HEADリビジョンの一覧を取得。
-            addedNames = scmControler.getDirNameList();
-            lastRunInfo = new LastRunInfomation();
-        } else {
-            // 前回があれば「前回取得リビジョン以降で追加・削除されたもの」を取得
-            long no = lastRunInfo.getScmHeadRevisionNumber();
-            addedNames = scmControler.getAddedDirNameList(no);
-            deletedNames = scmControler.getDeletedDirNameList(no);
-        }
-        lastRunInfo.setScmHeadRevisionNumber(headRev); // 最新リビジョンを保存。
-
-        // 設定にある条件でフィルタリング
-        addedNames = st.filtering(addedNames);
-        Set<String> addedNamesSet = new HashSet<String>(addedNames);
-
-        deletedNames = st.filtering(deletedNames);
-        Set<String> deletedNamesSet = new HashSet<String>(deletedNames);
-
-        // CI側のjobの名前を収集(こちらも条件に従いフィルタリング)
-        List<String> jobNames = st.filtering(ciControler.getJobNames());
-        Set<String> jobNamesSet = new HashSet<String>(jobNames);
-
-        // SCMとCIのマージ処理、開始。
-        boolean isModify = false;
-        for (String name : addedNamesSet) {
-            if (!jobNamesSet.contains(name)) {
-                // SCMで追加されたものがCI側に無いなら、新規jobとして追加。
-                addCiJob(ciControler, name, st, scmControler);
-                isModify = true;
-                log.info("ci job '" + name + "' added.");
+            // 設定にある条件でフィルタリング
+            addedNames = st.filtering(addedNames);
+            Set<String> addedNamesSet = new HashSet<String>(addedNames);
+
+            deletedNames = st.filtering(deletedNames);
+            Set<String> deletedNamesSet = new HashSet<String>(deletedNames);
+
+            // CI側のjobの名前を収集(こちらも条件に従いフィルタリング)
+            Set<String> jobNamesSet = group.getFilteredJobNameSet(ciControler, st);
+
+            // SCMとCIのマージ処理、開始。CI側への変更は集めて、まとめて一度に送る。
+            List<JobMutation> mutations = new ArrayList<JobMutation>();
+            for (String name : addedNamesSet) {
+                if (!jobNamesSet.contains(name)) {
+                    // SCMで追加されたものがCI側に無いなら、新規jobとして追加。
+                    mutations.add(JobMutation.create(name,
+                            createCiJobConfig(name, st, scmControler)));
+                }
             }
-        }
-        // 「SCM中で削除されていたものはjobを無効化する」がOnなら。
-        if (st.isJobDisableByScmDelete()) {
-            for (String name : deletedNamesSet) {
-                if (jobNamesSet.contains(name)) {
-                    // SCMで削除されたものがCI側に在るなら、jobを無効化。
-                    ciControler.desibleJob(name);
-                    isModify = true;
-                    log.info("ci job '" + name + "' disabled.");
+            // 「SCM中で削除されていたものはjobを無効化する」がOnなら。
+            if (st.isJobDisableByScmDelete()) {
+                for (String name : deletedNamesSet) {
+                    if (jobNamesSet.contains(name)) {
+                        // SCMで削除されたものがCI側に在るなら、jobを無効化。
+                        mutations.add(JobMutation.disable(name));
+                    }
+                }
+            }
+
+            boolean isModify = false;
+            int failedCount = 0;
+            if (!mutations.isEmpty()) {
+                try {
+                    for (JobMutationResult result : ciControler.applyJobMutations(mutations)) {
+                        JobMutation m = result.getMutation();
+                        if (result.isSucceed()) {
+                            isModify = true;
+                            LazyLog.info(log, () -> "ci job '" + m.getJobName() + "' "
+                                    + m.getType().getPastTense() + ".");
+                        } else {
+                            failedCount++;
+                            log.error("ci job '" + m.getJobName() + "' not "
+                                    + m.getType().getPastTense() + " : "
+                                    + result.getErrorMessage());
+                        }
+                    }
+                } finally {
+                    // CI側のjobが変わったため、まとまりで共有しているjob名一覧は取り直す。
+                    group.invalidateJobNames();
+                }
+            }
+
+            // 変更がなされていたら、コントロールjobの「他のプロジェクトのビルド」に現在あるすべてのjobを追加。
+            if (isModify) {
+                // 変更されたので、再度CI側のjobの名前を収集
+                String contJobName = st.getCiControlJobName();
+                List<String> jobNames = group.getFilteredJobNames(ciControler, st);
+                jobNames.remove(contJobName); // コントロールジョブ名が含まれているなら、削除
+                // コントロールジョブの下位job一覧を更新。(同じ内容で更新しなかった場合はログも出さない)
+                if (ciControler.updateManagingJobNamesForControlJob(contJobName, jobNames)) {
+                    log.info("ci control job '" + contJobName + "' update.");
+                }
+            }
+
+            // 失敗したものがあれば、次回やり直せるよう前回実行情報は保存しない。
+            if (failedCount > 0) {
+                throw new RuntimeException(failedCount + " of " + mutations.size()
+                        + " ci job operations failed.");
+            }
+
+            // 後始末。前回実行情報を保存する。
+            if (lastRunInfo != null) {
+                lastRunInfoStore.save(lastProfile, lastRunInfo);
+            }
+
+        } finally {
+            // 後始末の失敗は、同期自体の失敗(例外)を隠さないようログ出力のみとする。
+            // CLIセッションを使い回しているため、ここで切断する。(まとまりで使い回すものは与えた側が切断する)
+            try {
+                if (!residentCi) {
+                    ciControler.close();
+                }
+            } catch (Exception e) {
+                log.error("ci controler close failed : " + e.getMessage(), e);
+            }
+            // job名一覧の控えに変更があれば、次回のため保存する。
+            if (ciControler instanceof SnapshotCiControler) {
+                try {
+                    jobNameSnapshotStore.save(st.getCiJobNameSnapshotDirectory(),
+                            ((SnapshotCiControler) ciControler).getSnapshot());
+                } catch (Exception e) {
+                    log.error("ci job name snapshot save failed : " + e.getMessage(), e);
                 }
             }
         }
 
-        // 変更がなされていたら、コントロールjobの「他のプロジェクトのビルド」に現在あるすべてのjobを追加。
-        if (isModify) {
-            // 変更されたので、再度CI側のjobの名前を収集
-            String contJobName = st.getCiControlJobName();
-            jobNames = st.filtering(ciControler.getJobNames());
-            jobNamesSet = new HashSet<String>(jobNames);
-            jobNamesSet.remove(contJobName); // コントロールジョブ名が含まれているなら、削除
-            jobNames = new ArrayList<String>(jobNamesSet); // 引数に合わせるため再度リスト化
-            // コントロールジョブの下位job一覧を更新。
-            ciControler.updateManagingJobNamesForControlJob(contJobName,
-                    jobNames);
-            log.info("ci control job '" + contJobName + "' update.");
+    }
+
+    /**
+     * 設定値オブジェクトのscmTypeに従い、SCM側コントローラを作成する。
+     *
+     * @param st 設定値オブジェクト。
+     * @return SCM側コントローラ。
+     */
+    protected ScmControler createScmControler(SynchronizeTarget st) {
+        ScmControler controler = ControlerFactory.createScmControler(st);
+        if (controler instanceof SubversionControler) {
+            // Subversionの接続は同期対象間で使い回す。
+            ((SubversionControler) controler).setSessionPool(svnSessionPool);
         }
+        return controler;
+    }
 
-        // 後始末。前回実行情報を保存する。
-        if (lastRunInfo != null) {
-            XMLEncoder xmlEnc = new XMLEncoder(new BufferedOutputStream(
-                    new FileOutputStream(lastProfile)));
-            xmlEnc.writeObject(lastRunInfo);
-            xmlEnc.close();
+    /**
+     * 設定値オブジェクトのciTypeに従い、CI側コントローラを作成する。<br>
+     * job名一覧の控えを使う設定なら、控えから一覧を返すコントローラで包む。
+     *
+     * @param st 設定値オブジェクト。
+     * @return CI側コントローラ。"JenkinsHttp"ならHTTP経由、"Jenkins"(省略値)はJenkins-cli経由。
+     */
+    protected CiControler createCiControler(SynchronizeTarget st) {
+        CiControler controler = ControlerFactory.createCiControler(st);
+        if (st.getCiJobNameSnapshotMaxAge() == 0) {
+            return controler;
         }
+        JobNameSnapshot snapshot = jobNameSnapshotStore.get(
+                st.getCiJobNameSnapshotDirectory(), trimSlash(st.getCiUrl()));
+        return new SnapshotCiControler(controler, snapshot,
+                st.getCiJobNameSnapshotMaxAge() < 0 ? -1
+                        : st.getCiJobNameSnapshotMaxAge() * 1000);
+    }
+
+    private static String trimSlash(String url) {
+        return url != null && url.endsWith("/")
+                ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * 前回実行から最新リビジョンまでに、SCM直下で追加・削除されたディレクトリを求め、
+     * 前回実行情報のディレクトリ一覧を最新のものへ更新する。<br>
+     * 前回の一覧が保存されていれば、SCMからは最新の一覧のみを取得し手元で比較する。
+     *
+     * @param scmControler SCM側コントローラ。
+     * @param group        同期対象が属するまとまり。(一覧の取得を共有)
+     * @param st           設定値オブジェクト。
+     * @param lastRunInfo  前回実行情報。
+     * @param headRev      最新リビジョン番号。
+     * @return 追加・削除されたディレクトリ名。
+     * @throws Exception すべての例外。
+     */
+    protected DirectoryDelta getDirectoryDelta(ScmControler scmControler,
+                                               SynchronizeGroup group,
+                                               SynchronizeTarget st,
+                                               LastRunInfomation lastRunInfo,
+                                               long headRev) throws Exception {
+
+        long no = lastRunInfo.getScmHeadRevisionNumber();
+        List<String> lastNames = lastRunInfo.restoreScmDirNames();
+
+        if (st.isScmChangeDetectionByLog()) {
+            // SVNログの変更パスから、直下の追加・削除だけを拾う。
+            DirectoryDelta delta = scmControler.getDirectoryDeltaByLog(no, headRev);
+            // 次回のため一覧を更新。前回の一覧が無ければ最新の一覧を取得して保存。
+            lastRunInfo.storeScmDirNames(lastNames != null ? delta.applyTo(lastNames)
+                    : group.getDirNameList(scmControler, headRev));
+            return delta;
+        }
+
+        // 最新の一覧を取得し、前回の一覧と手元で突き合わせる。
+        List<String> headNames;
+        if (lastNames == null) {
+            // 前回の一覧が無い(旧形式の前回実行情報)なら、前回リビジョンの一覧も並行して取得。
+            List<List<String>> lists = group.getDirNameLists(scmControler, headRev, no);
+            headNames = lists.get(0);
+            lastNames = lists.get(1);
+        } else {
+            headNames = group.getDirNameList(scmControler, headRev);
+        }
+        lastRunInfo.storeScmDirNames(headNames);
+        return DirectoryDelta.diff(lastNames, headNames);
 
     }
 
@@ -161,8 +331,33 @@ public class ScmToCiSynchronizer {
      * @param scmControler SCM側コントローラ。(予約、今は扱っていない)
      * @throws Exception すべての例外。
      */
-    protected void addCiJob(JenkinsControler ciControler, String jobName,
-                            SynchronizeTarget st, SubversionControler scmControler)
+    protected void addCiJob(CiControler ciControler, String jobName,
+                            SynchronizeTarget st, ScmControler scmControler)
+            throws Exception {
+
+        String config = createCiJobConfig(jobName, st, scmControler);
+
+        // その文字列を種として(写しを作らず、UTF-8へ変換しながら読む)InputStreamを作成、
+        // CiControlerを使いjobを新規登録する。
+        InputStream is = new CharSequenceInputStream(config, JOB_CONFIG_CHARSET);
+        // 新規登録、実行。
+        ciControler.addJob(jobName, is);
+
+        is.close();
+
+    }
+
+    /**
+     * 引数に指定されたJob名と各種設定オブジェクトを元に、CI側の新規jobの設定(config.xml)を作成する。
+     *
+     * @param jobName      job名。
+     * @param st           設定値オブジェクト。
+     * @param scmControler SCM側コントローラ。(予約、今は扱っていない)
+     * @return config.xmlの内容。
+     * @throws Exception すべての例外。
+     */
+    protected String createCiJobConfig(String jobName, SynchronizeTarget st,
+                                       ScmControler scmControler)
             throws Exception {
 
         // Velocityコンテキストに値を設定
@@ -172,15 +367,7 @@ public class ScmToCiSynchronizer {
         // テンプレートファイルの値を置換、文字列で受け取る。
         File templateFile = new File(st.getJenkinsJobTemplatePath());
 
-        String config = getReplaceText(templateFile, context);
-
-        // その文字列を種としてInputStreamを作成、CiControlerを使いjobを新規登録する。
-        StringBuilder sb = new StringBuilder(config);
-        StringBuilderInputStream sbis = new StringBuilderInputStream(sb);
-        // 新規登録、実行。
-        ciControler.addJob(jobName, sbis);
-
-        sbis.close();
+        return getReplaceText(templateFile, context);
 
     }
 
@@ -194,27 +381,8 @@ public class ScmToCiSynchronizer {
      */
     protected String getReplaceText(File templateFile, VelocityContext context)
             throws Exception {
-
-        Velocity.init();
-
-        // テンプレートの読み込み設定。VelocityEngineはClassPath中からファイルを読むように
-        Properties props = new Properties();
-
-        props.setProperty("file.resource.loader.path", templateFile.getParentFile().getCanonicalPath());
-        VelocityEngine ve = new VelocityEngine();
-        ve.init(props);
-
-        // テンプレートの作成
-        Template template = ve.getTemplate(templateFile.getName(), "utf-8");
-
-        StringWriter sw = new StringWriter();
-        template.merge(context, sw);
-
-        String result = sw.toString();
-        sw.flush();
-
-        return result;
-
+        // エンジンと解析済みテンプレートは使い回し、ここでは置換のみ行う。
+        return templateCache.merge(templateFile, context);
     }
 
     /**
@@ -226,4 +394,13 @@ public class ScmToCiSynchronizer {
         this.log = log;
     }
 
+    /**
+     * 同期対象間で共有するSubversion接続のプールのセット。
+     *
+     * @param svnSessionPool the svnSessionPool to set
+     */
+    public void setSvnSessionPool(SvnSessionPool svnSessionPool) {
+        this.svnSessionPool = svnSessionPool;
+    }
+
 }
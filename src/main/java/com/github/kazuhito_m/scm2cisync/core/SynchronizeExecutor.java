@@ -0,0 +1,209 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 複数の同期対象を、指定されたスレッド数を上限として実行するクラス。<br>
+ * 同じSCM・CIを向いた同期対象はまとめ(SynchronizeGroup)、まとまり内では順番に、
+ * まとまり同士は並列に実行する。
+ * 一件の失敗で他の同期対象を止めることはせず、全件の結果を返す。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeExecutor {
+
+    /**
+     * 同期処理を行うオブジェクト。
+     */
+    private ScmToCiSynchronizer synchronizer;
+
+    /**
+     * 同時に実行するスレッド数。1以下なら呼び出し元スレッドで順番に実行する。
+     */
+    private int threadCount = 1;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param synchronizer 同期処理を行うオブジェクト。
+     */
+    public SynchronizeExecutor(ScmToCiSynchronizer synchronizer) {
+        this.synchronizer = synchronizer;
+    }
+
+    /**
+     * 指定された同期対象をすべて実行し、その結果を返す。
+     *
+     * @param targets 同期対象の設定値オブジェクト群。
+     * @return 同期対象ごとの実行結果(引数の順番通り)。
+     * @throws InterruptedException 待機中に割り込みが入った場合。
+     */
+    public List<SynchronizeResult> execute(List<SynchronizeTarget> targets)
+            throws InterruptedException {
+        Map<SynchronizeTarget, SynchronizeResult> done =
+                new IdentityHashMap<SynchronizeTarget, SynchronizeResult>();
+        for (SynchronizeResult result : executeGroups(SynchronizeGroup.group(targets))) {
+            done.put(result.getTarget(), result);
+        }
+        return inOrder(targets, done);
+    }
+
+    /**
+     * まとめ済みの同期対象をすべて実行し、その結果を返す。<br>
+     * まとまりが持つ取得済みの情報・使い回すコントローラは、そのまま使われる。
+     *
+     * @param groups 同期対象のまとまり群。
+     * @return 同期対象ごとの実行結果(まとまり順、まとまり内は設定順)。
+     * @throws InterruptedException 待機中に割り込みが入った場合。
+     */
+    public List<SynchronizeResult> executeGroups(List<SynchronizeGroup> groups)
+            throws InterruptedException {
+
+        List<SynchronizeTarget> targets = new ArrayList<SynchronizeTarget>();
+        for (SynchronizeGroup group : groups) {
+            targets.addAll(group.getTargets());
+        }
+
+        // 並列数が1以下(orまとまりが1つ)なら、従来通り順番に実行。
+        if (threadCount <= 1 || groups.size() <= 1) {
+            Map<SynchronizeTarget, SynchronizeResult> done =
+                    new IdentityHashMap<SynchronizeTarget, SynchronizeResult>();
+            for (SynchronizeGroup group : groups) {
+                for (SynchronizeResult result : synchronizeGroup(group)) {
+                    done.put(result.getTarget(), result);
+                }
+            }
+            return inOrder(targets, done);
+        }
+
+        // 前回実行情報ファイルを共有していると、並列では壊れるためチェック。
+        checkLastProfilePathDuplication(targets);
+
+        Map<SynchronizeTarget, SynchronizeResult> done =
+                new IdentityHashMap<SynchronizeTarget, SynchronizeResult>();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(threadCount, groups.size()));
+        try {
+            List<Future<List<SynchronizeResult>>> futures =
+                    new ArrayList<Future<List<SynchronizeResult>>>();
+            for (final SynchronizeGroup group : groups) {
+                futures.add(pool.submit(new Callable<List<SynchronizeResult>>() {
+                    public List<SynchronizeResult> call() {
+                        return synchronizeGroup(group);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    for (SynchronizeResult result : futures.get(i).get()) {
+                        done.put(result.getTarget(), result);
+                    }
+                } catch (ExecutionException e) {
+                    // synchronizeOne()内で捕捉しているため、通常ここには来ない。
+                    for (SynchronizeTarget st : groups.get(i).getTargets()) {
+                        done.put(st, new SynchronizeResult(st, e.getCause(), 0L));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return inOrder(targets, done);
+
+    }
+
+    /**
+     * まとまり一つ分の同期対象を、順番に実行する。
+     *
+     * @param group 同期対象のまとまり。
+     * @return 同期対象ごとの実行結果。
+     */
+    protected List<SynchronizeResult> synchronizeGroup(SynchronizeGroup group) {
+        List<SynchronizeResult> results = new ArrayList<SynchronizeResult>();
+        for (SynchronizeTarget st : group.getTargets()) {
+            results.add(synchronizeOne(st, group));
+        }
+        return results;
+    }
+
+    /**
+     * 同期対象一件を実行し、例外も含めた結果を返す。
+     *
+     * @param st    同期対象の設定値オブジェクト。
+     * @param group 同期対象が属するまとまり。
+     * @return 実行結果。
+     */
+    protected SynchronizeResult synchronizeOne(SynchronizeTarget st,
+                                               SynchronizeGroup group) {
+        long start = System.currentTimeMillis();
+        Throwable error = null;
+        try {
+            synchronizer.synchronize(st, group);
+        } catch (Exception e) {
+            error = e;
+        }
+        return new SynchronizeResult(st, error,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 実行結果を、同期対象の(引数の)順番に並べる。
+     */
+    private static List<SynchronizeResult> inOrder(List<SynchronizeTarget> targets,
+                                                   Map<SynchronizeTarget, SynchronizeResult> done) {
+        List<SynchronizeResult> results = new ArrayList<SynchronizeResult>();
+        for (SynchronizeTarget st : targets) {
+            results.add(done.get(st));
+        }
+        return results;
+    }
+
+    /**
+     * 前回実行情報ファイルのパスが同期対象間で重複していないかを検査する。
+     *
+     * @param targets 同期対象の設定値オブジェクト群。
+     */
+    private void checkLastProfilePathDuplication(List<SynchronizeTarget> targets) {
+        Set<String> paths = new HashSet<String>();
+        for (SynchronizeTarget st : targets) {
+            String path = new File(st.getLastProfilePath()).getAbsolutePath();
+            if (!paths.add(path)) {
+                throw new IllegalArgumentException(
+                        "lastProfilePath is shared between synchronize targets"
+                                + " (not allowed in parallel mode) : " + path);
+            }
+        }
+    }
+
+    // Getter/Setter群
+
+    /**
+     * @return the threadCount
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount the threadCount to set
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControler;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 同じSCM・同じCIを向いている同期対象のまとまり。<br>
+ * SCMのHEADリビジョン・ディレクトリ一覧、CIのjob名一覧はまとまりにつき一度だけ取得し、
+ * 各同期対象の条件(IdFilter)によるjob名の絞り込みは、job名が届くそばからまとめて行う。
+ * まとまり内の同期対象は順番に処理されるものとし、このオブジェクトはスレッド間で共有しない。
+ * 常駐時は使い回すコントローラ(setResidentControlers())を持たせ、同期対象ごとの作成・切断を省く。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeGroup {
+
+    /**
+     * まとまりに属する同期対象。(設定順)
+     */
+    private final List<SynchronizeTarget> targets;
+
+    /**
+     * 取得済みのHEADリビジョン番号。未取得ならnull。
+     */
+    private Long headRevision = null;
+
+    /**
+     * 取得済みのリビジョンごとのディレクトリ一覧。
+     */
+    private final Map<Long, List<String>> dirNames = new HashMap<Long, List<String>>();
+
+    /**
+     * 同期対象ごとの、絞り込み済みjob名一覧。未取得ならnull。
+     */
+    private Map<SynchronizeTarget, Set<String>> filteredJobNames = null;
+
+    /**
+     * 使い回すSCM側コントローラ。nullなら同期対象ごとに作成する。
+     */
+    private ScmControler residentScmControler = null;
+
+    /**
+     * 使い回すCI側コントローラ。nullなら同期対象ごとに作成・切断する。
+     */
+    private CiControler residentCiControler = null;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param targets まとまりに属する同期対象。
+     */
+    public SynchronizeGroup(List<SynchronizeTarget> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * 同期対象群を、SCM・CIの接続先ごとのまとまりに分ける。
+     *
+     * @param targets 同期対象群。
+     * @return まとまりのList。(各まとまりの最初の同期対象の順)
+     */
+    public static List<SynchronizeGroup> group(List<SynchronizeTarget> targets) {
+        Map<List<String>, List<SynchronizeTarget>> map =
+                new LinkedHashMap<List<String>, List<SynchronizeTarget>>();
+        for (SynchronizeTarget st : targets) {
+            List<String> key = endpointOf(st);
+            List<SynchronizeTarget> members = map.get(key);
+            if (members == null) {
+                members = new ArrayList<SynchronizeTarget>();
+                map.put(key, members);
+            }
+            members.add(st);
+        }
+        List<SynchronizeGroup> groups = new ArrayList<SynchronizeGroup>();
+        for (List<SynchronizeTarget> members : map.values()) {
+            groups.add(new SynchronizeGroup(members));
+        }
+        return groups;
+    }
+
+    /**
+     * SCMのHEADリビジョン番号を返す。まとまり内で最初の一回だけ取得する。
+     *
+     * @param scmControler SCM側コントローラ。
+     * @return HEADリビジョン番号。
+     * @throws Exception すべての例外。
+     */
+    public long getHeadRevisionNo(ScmControler scmControler) throws Exception {
+        if (headRevision == null) {
+            headRevision = scmControler.getHeadRevisionNo();
+        }
+        return headRevision;
+    }
+
+    /**
+     * 既に取得したHEADリビジョン番号を与える。(getHeadRevisionNo()で取得し直さない)
+     *
+     * @param headRevision HEADリビジョン番号。
+     */
+    public void setHeadRevisionNo(long headRevision) {
+        this.headRevision = headRevision;
+    }
+
+    /**
+     * 指定リビジョンのSCM直下ディレクトリ一覧を返す。リビジョンごとに一回だけ取得する。
+     *
+     * @param scmControler SCM側コントローラ。
+     * @param revision     リビジョン番号。
+     * @return ディレクトリ名一覧。(呼び出し側で変更してよい写し)
+     * @throws Exception すべての例外。
+     */
+    public List<String> getDirNameList(ScmControler scmControler,
+                                       long revision) throws Exception {
+        List<String> names = dirNames.get(revision);
+        if (names == null) {
+            names = scmControler.getDirNameList(revision);
+            dirNames.put(revision, names);
+        }
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * 二つのリビジョンのSCM直下ディレクトリ一覧を返す。
+     * どちらも未取得なら、SCM側コントローラで並行して取得する。
+     *
+     * @param scmControler    SCM側コントローラ。
+     * @param revision        一つ目のリビジョン番号。
+     * @param otherRevision   二つ目のリビジョン番号。
+     * @return 引数の順の、ディレクトリ名一覧二つ。(呼び出し側で変更してよい写し)
+     * @throws Exception すべての例外。
+     */
+    public List<List<String>> getDirNameLists(ScmControler scmControler, long revision,
+                                              long otherRevision) throws Exception {
+        if (revision != otherRevision && !dirNames.containsKey(revision)
+                && !dirNames.containsKey(otherRevision)) {
+            List<List<String>> lists = scmControler.getDirNameLists(revision, otherRevision);
+            dirNames.put(revision, lists.get(0));
+            dirNames.put(otherRevision, lists.get(1));
+        }
+        return Arrays.asList(getDirNameList(scmControler, revision),
+                getDirNameList(scmControler, otherRevision));
+    }
+
+    /**
+     * 指定された同期対象の条件で絞り込んだ、CIのjob名一覧を返す。<br>
+     * 未取得なら一度だけ取得し、まとまり内の全同期対象の分を一度に絞り込む。
+     *
+     * @param ciControler CI側コントローラ。
+     * @param st          同期対象。
+     * @return 絞り込み済みのjob名一覧。(呼び出し側で変更してよい写し)
+     * @throws Exception すべての例外。
+     */
+    public List<String> getFilteredJobNames(CiControler ciControler,
+                                            SynchronizeTarget st) throws Exception {
+        return new ArrayList<String>(getFilteredJobNameSet(ciControler, st));
+    }
+
+    /**
+     * 指定された同期対象の条件で絞り込んだ、CIのjob名の集合を返す。<br>
+     * 未取得なら一度だけ取得する。job名は一件ずつ届いた時点で、
+     * まとまり内の全同期対象の条件(IdFilter)で絞り込み、該当したものだけを保持する。
+     *
+     * @param ciControler CI側コントローラ。
+     * @param st          同期対象。
+     * @return 絞り込み済みのjob名の集合。(取得順、変更不可)
+     * @throws Exception すべての例外。
+     */
+    public Set<String> getFilteredJobNameSet(CiControler ciControler,
+                                             SynchronizeTarget st) throws Exception {
+        if (filteredJobNames == null) {
+            Map<SynchronizeTarget, Set<String>> filtered =
+                    new HashMap<SynchronizeTarget, Set<String>>();
+            List<Consumer<String>> filters = new ArrayList<Consumer<String>>();
+            for (SynchronizeTarget member : targets) {
+                Set<String> names = new LinkedHashSet<String>();
+                filtered.put(member, names);
+                filters.add(member.filtering(names::add));
+            }
+            ciControler.enumerateJobNames(name -> {
+                for (Consumer<String> filter : filters) {
+                    filter.accept(name);
+                }
+            });
+            filteredJobNames = filtered;
+        }
+        Set<String> names = filteredJobNames.get(st);
+        if (names == null) {
+            // まとまり外の同期対象なら、その分だけ取得し直す。
+            names = new LinkedHashSet<String>();
+            ciControler.enumerateJobNames(st.filtering(names::add));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * CI側のjobを変更したため、取得済みのjob名一覧を捨てる。(次回取得し直す)
+     */
+    public void invalidateJobNames() {
+        filteredJobNames = null;
+    }
+
+    /**
+     * @return まとまりに属する同期対象。
+     */
+    public List<SynchronizeTarget> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * 同期対象間で使い回すコントローラを与える。(閉じるのは与えた側の責任)
+     *
+     * @param scmControler SCM側コントローラ。
+     * @param ciControler  CI側コントローラ。
+     */
+    public void setResidentControlers(ScmControler scmControler, CiControler ciControler) {
+        this.residentScmControler = scmControler;
+        this.residentCiControler = ciControler;
+    }
+
+    /**
+     * @return 使い回すSCM側コントローラ。無ければnull。
+     */
+    public ScmControler getResidentScmControler() {
+        return residentScmControler;
+    }
+
+    /**
+     * @return 使い回すCI側コントローラ。無ければnull。
+     */
+    public CiControler getResidentCiControler() {
+        return residentCiControler;
+    }
+
+    /**
+     * 同期対象の接続先(SCM・CIと、その認証情報)と、CI側コントローラの作り方に関わる設定を、
+     * まとまりのキーとする。(まとまり内で、コントローラを使い回せるように)
+     */
+    private static List<String> endpointOf(SynchronizeTarget st) {
+        return Arrays.asList(st.getScmType(), trimSlash(st.getScmUrl()),
+                st.getScmAuthType(), st.getScmUserName(), st.getScmPassword(),
+                st.getCiType(), trimSlash(st.getCiUrl()), st.getCiUserName(),
+                st.getCiApiToken(), String.valueOf(st.isCiScriptBatch()),
+                String.valueOf(st.getCiJobNameSnapshotMaxAge()),
+                st.getCiJobNameSnapshotDir());
+    }
+
+    private static String trimSlash(String url) {
+        return url != null && url.endsWith("/")
+                ? url.substring(0, url.length() - 1) : url;
+    }
+
+}
@@ -0,0 +1,456 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControler;
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.apache.maven.plugin.logging.Log;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 同期処理を常駐させ、SCMのHEADリビジョンを一定間隔で確かめるクラス。<br>
+ * HEADリビジョンはまとまり(SynchronizeGroup)ごとに使い回すSCM側コントローラで問い合わせ、
+ * 前回同期した時から動いたまとまりの同期対象だけを、問い合わせたHEADリビジョンで同期する。(初回はすべて)
+ * 同期処理・テンプレートのキャッシュ・SCM接続・条件の前処理等は、常駐の間使い回される。
+ * CI側コントローラもまとまりごとに一つを使い回し(CLIセッション等を保ったまま)、止める時に切断する。
+ * 失敗した同期対象を含むまとまりは、HEADが動かなくとも次の確認時に再度同期する。
+ * (その際のCI側コントローラは、接続が壊れている可能性があるため切断して作り直す)
+ * notifyCommit()でコミットを知らされた場合は、間隔を待たずにそのパスを含むまとまりだけを確かめる。
+ * (短い間に続いた通知は、最初の通知からcoalesceMillisの間まとめて一回にする)
+ * stop()を呼ぶと、実行中の同期が終わるのを待ってから止まる。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeWatcher {
+
+    /**
+     * HEADリビジョンを確かめる間隔(ミリ秒)の省略値。
+     */
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * コミット通知をまとめる時間(ミリ秒)の省略値。
+     */
+    public static final long DEFAULT_COALESCE_MILLIS = 2 * 1000;
+
+    /**
+     * 同期処理を行うオブジェクト。
+     */
+    private final ScmToCiSynchronizer synchronizer;
+
+    /**
+     * 複数の同期対象を実行するオブジェクト。
+     */
+    private final SynchronizeExecutor executor;
+
+    /**
+     * 同期対象のまとまり。(設定順)
+     */
+    private final List<SynchronizeGroup> groups;
+
+    /**
+     * まとまりごとの、HEADリビジョンの問い合わせに使うSCM側コントローラ。(常駐側のスレッドのみ使う)
+     */
+    private final Map<SynchronizeGroup, ScmControler> scmControlers =
+            new IdentityHashMap<SynchronizeGroup, ScmControler>();
+
+    /**
+     * まとまりごとの、同期に使い回すCI側コントローラ。(常駐側のスレッドのみ出し入れする)
+     */
+    private final Map<SynchronizeGroup, CiControler> ciControlers =
+            new IdentityHashMap<SynchronizeGroup, CiControler>();
+
+    /**
+     * まとまりごとの、最後に(全件成功で)同期したHEADリビジョン番号。
+     */
+    private final Map<SynchronizeGroup, Long> syncedRevisions =
+            new ConcurrentHashMap<SynchronizeGroup, Long>();
+
+    /**
+     * コミット通知を受け、確認待ちとなっているまとまり。(lockで保護)
+     */
+    private final Set<SynchronizeGroup> pending =
+            Collections.newSetFromMap(new IdentityHashMap<SynchronizeGroup, Boolean>());
+
+    /**
+     * 確認待ちのまとまりを確かめる時刻(ミリ秒)。(lockで保護)
+     */
+    private long pendingDeadline = 0;
+
+    /**
+     * HEADリビジョンを確かめる間隔(ミリ秒)。
+     */
+    private long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+
+    /**
+     * コミット通知をまとめる時間(ミリ秒)。
+     */
+    private long coalesceMillis = DEFAULT_COALESCE_MILLIS;
+
+    /**
+     * 同期を行うたびに、その結果を受け取る処理。nullなら何もしない。
+     */
+    private Consumer<List<SynchronizeResult>> resultListener = null;
+
+    /**
+     * デバッグ/情報表示用ログオブジェクト。
+     */
+    protected Log log = null;
+
+    private final Object lock = new Object();
+
+    private volatile boolean stopped = false;
+
+    /**
+     * run()を抜けた時点で0となる。
+     */
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * コンストラクタ。
+     *
+     * @param synchronizer 同期処理を行うオブジェクト。
+     * @param executor     複数の同期対象を実行するオブジェクト。
+     * @param targets      同期対象の設定値オブジェクト群。
+     */
+    public SynchronizeWatcher(ScmToCiSynchronizer synchronizer,
+                              SynchronizeExecutor executor,
+                              List<SynchronizeTarget> targets) {
+        this.synchronizer = synchronizer;
+        this.executor = executor;
+        this.groups = Collections.unmodifiableList(SynchronizeGroup.group(targets));
+    }
+
+    /**
+     * stop()が呼ばれるまで、HEADリビジョンの確認と同期を一定間隔で繰り返す。<br>
+     * 間隔の途中でコミット通知があれば、まとめる時間の後に通知されたまとまりだけを確かめる。
+     */
+    public void run() {
+        try {
+            while (!stopped) {
+                poll(groups);
+                long nextPoll = System.currentTimeMillis() + pollIntervalMillis;
+                Collection<SynchronizeGroup> notified;
+                while ((notified = awaitNotified(nextPoll)) != null) {
+                    poll(notified);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeCiControlers();
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * 次の定期確認の時刻まで、コミット通知を待つ。
+     *
+     * @param nextPoll 次の定期確認の時刻(ミリ秒)
+     * @return まとめる時間を過ぎた確認待ちのまとまり。定期確認の時刻になった、または止められた場合はnull。
+     */
+    private Collection<SynchronizeGroup> awaitNotified(long nextPoll)
+            throws InterruptedException {
+        synchronized (lock) {
+            while (!stopped) {
+                long now = System.currentTimeMillis();
+                if (now >= nextPoll) {
+                    return null;
+                }
+                if (!pending.isEmpty() && now >= pendingDeadline) {
+                    return new ArrayList<SynchronizeGroup>(pending);
+                }
+                long wakeAt = pending.isEmpty() ? nextPoll : Math.min(nextPoll, pendingDeadline);
+                lock.wait(wakeAt - now);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 指定のまとまりを確かめ、同期する。一回の失敗で常駐を止めないよう、例外はログに出力するのみ。
+     */
+    private void poll(Collection<SynchronizeGroup> targetGroups) throws InterruptedException {
+        try {
+            pollGroups(targetGroups);
+        } catch (RuntimeException e) {
+            // 次の確認時にやり直す。
+            log.error("synchronize watch failed : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 各まとまりのHEADリビジョンを一度確かめ、動いていたまとまりの同期対象を同期する。
+     *
+     * @return 同期した同期対象の件数。
+     * @throws InterruptedException 待機中に割り込みが入った場合。
+     */
+    public int pollOnce() throws InterruptedException {
+        return pollGroups(groups);
+    }
+
+    /**
+     * 指定のまとまりのHEADリビジョンを確かめ、動いていたまとまりの同期対象を同期する。
+     *
+     * @param targetGroups 確かめるまとまり。
+     * @return 同期した同期対象の件数。
+     * @throws InterruptedException 待機中に割り込みが入った場合。
+     */
+    private int pollGroups(Collection<SynchronizeGroup> targetGroups)
+            throws InterruptedException {
+
+        // これから確かめるまとまりの通知は、ここで受け取ったものとする。(HEADは以下で読む)
+        synchronized (lock) {
+            pending.removeAll(targetGroups);
+        }
+
+        int targetCount = 0;
+        Map<SynchronizeGroup, Long> moved = new LinkedHashMap<SynchronizeGroup, Long>();
+        for (SynchronizeGroup group : targetGroups) {
+            long headRev;
+            try {
+                headRev = scmControlerOf(group).getHeadRevisionNo();
+            } catch (Exception e) {
+                // 問い合わせに失敗した接続は捨て、次回作り直す。
+                scmControlers.remove(group);
+                log.warn("scm head revision check failed ("
+                        + group.getTargets().get(0).getScmUrl() + ") : " + e.getMessage());
+                continue;
+            }
+            Long synced = syncedRevisions.get(group);
+            if (synced == null || synced != headRev) {
+                moved.put(group, headRev);
+                targetCount += group.getTargets().size();
+            }
+        }
+
+        if (moved.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("scm not update. next check after " + pollIntervalMillis + "ms.");
+            }
+            return 0;
+        }
+
+        // 今回分のまとまりを作り、確かめたHEADリビジョンと使い回すコントローラを持たせる。
+        // (ディレクトリ一覧・job名一覧等の取得済みの情報は、同期一回ごとに取り直す)
+        List<SynchronizeGroup> cycle = new ArrayList<SynchronizeGroup>();
+        for (Map.Entry<SynchronizeGroup, Long> entry : moved.entrySet()) {
+            SynchronizeGroup group = new SynchronizeGroup(entry.getKey().getTargets());
+            group.setHeadRevisionNo(entry.getValue());
+            group.setResidentControlers(scmControlerOf(entry.getKey()),
+                    ciControlerOf(entry.getKey()));
+            cycle.add(group);
+        }
+
+        List<SynchronizeResult> results = executor.executeGroups(cycle);
+
+        // 全件成功したまとまりだけ、同期済みのリビジョンを進める。
+        Map<SynchronizeTarget, Boolean> succeed = new IdentityHashMap<SynchronizeTarget, Boolean>();
+        for (SynchronizeResult result : results) {
+            succeed.put(result.getTarget(), result.isSucceed());
+        }
+        for (Map.Entry<SynchronizeGroup, Long> entry : moved.entrySet()) {
+            boolean allSucceed = true;
+            for (SynchronizeTarget st : entry.getKey().getTargets()) {
+                allSucceed &= Boolean.TRUE.equals(succeed.get(st));
+            }
+            if (allSucceed) {
+                syncedRevisions.put(entry.getKey(), entry.getValue());
+            } else {
+                closeQuietly(ciControlers.remove(entry.getKey()));
+            }
+        }
+
+        if (resultListener != null) {
+            resultListener.accept(results);
+        }
+        return targetCount;
+
+    }
+
+    /**
+     * SCMへのコミットを知らせる。(コミットフック等から呼ばれる)<br>
+     * パスを含むまとまりを確認待ちとし、まとめる時間の後に常駐側で確かめる。
+     * 既にそのリビジョン以降を同期済みのまとまりは対象としない。
+     *
+     * @param path     コミットされたリポジトリ(またはその配下)のURLかパス。
+     * @param revision コミットのリビジョン番号。0以下なら不明として扱う。
+     * @return 確認待ちとした同期対象の件数。
+     */
+    public int notifyCommit(String path, long revision) {
+        int count = 0;
+        synchronized (lock) {
+            for (SynchronizeGroup group : groups) {
+                if (!covers(group.getTargets().get(0).getScmUrl(), path)) {
+                    continue;
+                }
+                Long synced = syncedRevisions.get(group);
+                if (revision > 0 && synced != null && synced >= revision) {
+                    continue;
+                }
+                if (pending.isEmpty()) {
+                    pendingDeadline = System.currentTimeMillis() + coalesceMillis;
+                }
+                pending.add(group);
+                count += group.getTargets().size();
+            }
+            if (count > 0) {
+                lock.notifyAll();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * SCMのURLが、知らされたパスと同じリポジトリ内の親子関係にあるか否かを返す。<br>
+     * パスが「://」を含めばURL同士で、含まなければURLのパス部分(file://ならファイルパス)と比べる。
+     * クエリ部分・末尾の「/」は比べない。
+     *
+     * @param scmUrl SCMのURL。
+     * @param path   知らされたURLかパス。
+     * @return どちらかがもう一方と同じか、その配下なら:true。
+     */
+    public static boolean covers(String scmUrl, String path) {
+        if (scmUrl == null || path == null || path.trim().isEmpty()) {
+            return false;
+        }
+        String url = scmUrl.trim();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            url = url.substring(0, query);
+        }
+        if (!path.contains("://")) {
+            try {
+                url = new URI(url).getPath();
+            } catch (URISyntaxException e) {
+                return false;
+            }
+            if (url == null) {
+                return false;
+            }
+        }
+        String a = trimTrailingSlash(url);
+        String b = trimTrailingSlash(path.trim());
+        return a.equals(b) || a.startsWith(b + "/") || b.startsWith(a + "/");
+    }
+
+    private static String trimTrailingSlash(String s) {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == '/') {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    /**
+     * 常駐を止める。実行中の同期があれば、それが終わった後にrun()を抜ける。
+     */
+    public void stop() {
+        stopped = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * run()を抜けるまで待つ。
+     *
+     * @param timeoutMillis 最大の待ち時間(ミリ秒)
+     * @return 抜けた:true。時間切れ:false。
+     * @throws InterruptedException 待機中に割り込みが入った場合。
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return terminated.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * まとまりのHEADリビジョンの問い合わせに使うSCM側コントローラを返す。(無ければ作成)
+     */
+    private ScmControler scmControlerOf(SynchronizeGroup group) {
+        ScmControler controler = scmControlers.get(group);
+        if (controler == null) {
+            controler = synchronizer.createScmControler(group.getTargets().get(0));
+            controler.setLog(log);
+            scmControlers.put(group, controler);
+        }
+        return controler;
+    }
+
+    private CiControler ciControlerOf(SynchronizeGroup group) {
+        CiControler controler = ciControlers.get(group);
+        if (controler == null) {
+            controler = synchronizer.createCiControler(group.getTargets().get(0));
+            controler.setLog(log);
+            ciControlers.put(group, controler);
+        }
+        return controler;
+    }
+
+    /**
+     * 使い回していたCI側コントローラをすべて切断する。
+     */
+    private void closeCiControlers() {
+        for (CiControler controler : ciControlers.values()) {
+            closeQuietly(controler);
+        }
+        ciControlers.clear();
+    }
+
+    private void closeQuietly(CiControler controler) {
+        if (controler == null) {
+            return;
+        }
+        try {
+            controler.close();
+        } catch (Exception e) {
+            log.warn("ci controler close failed : " + e.getMessage());
+        }
+    }
+
+    // Getter/Setter群
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("pollIntervalMillis must be positive.");
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public long getCoalesceMillis() {
+        return coalesceMillis;
+    }
+
+    public void setCoalesceMillis(long coalesceMillis) {
+        if (coalesceMillis < 0) {
+            throw new IllegalArgumentException("coalesceMillis must not be negative.");
+        }
+        this.coalesceMillis = coalesceMillis;
+    }
+
+    public void setResultListener(Consumer<List<SynchronizeResult>> resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+}
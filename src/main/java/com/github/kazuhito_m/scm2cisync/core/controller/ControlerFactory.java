@@ -0,0 +1,98 @@
+package com.github.kazuhito_m.scm2cisync.core.controller;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControlerProvider;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControlerProvider;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 設定値のscmType/ciTypeに従い、SCM・CIのコントローラを作成するクラス。<br>
+ * 実装はjava.util.ServiceLoaderで読み込んだProviderから選ぶ。(Providerの読み込みは初回のみ)
+ *
+ * @author Kazuhito Miura
+ */
+public class ControlerFactory {
+
+    /**
+     * scmType省略時のタイプ。
+     */
+    public static final String DEFAULT_SCM_TYPE = "Subversion";
+
+    /**
+     * ciType省略時のタイプ。
+     */
+    public static final String DEFAULT_CI_TYPE = "Jenkins";
+
+    private static List<ScmControlerProvider> scmProviders = null;
+
+    private static List<CiControlerProvider> ciProviders = null;
+
+    /**
+     * 設定値のscmTypeに従い、SCM側コントローラを作成する。
+     *
+     * @param st 設定値オブジェクト。
+     * @return SCM側コントローラ。
+     * @throws IllegalArgumentException scmTypeを扱えるProviderが無い場合。
+     */
+    public static ScmControler createScmControler(SynchronizeTarget st) {
+        String type = typeOf(st.getScmType(), DEFAULT_SCM_TYPE);
+        for (ScmControlerProvider provider : getScmProviders()) {
+            if (provider.supports(type)) {
+                return provider.create(st);
+            }
+        }
+        throw new IllegalArgumentException("unknown scmType : " + type);
+    }
+
+    /**
+     * 設定値のciTypeに従い、CI側コントローラを作成する。
+     *
+     * @param st 設定値オブジェクト。
+     * @return CI側コントローラ。
+     * @throws IllegalArgumentException ciTypeを扱えるProviderが無い場合。
+     */
+    public static CiControler createCiControler(SynchronizeTarget st) {
+        String type = typeOf(st.getCiType(), DEFAULT_CI_TYPE);
+        for (CiControlerProvider provider : getCiProviders()) {
+            if (provider.supports(type)) {
+                return provider.create(st);
+            }
+        }
+        throw new IllegalArgumentException("unknown ciType : " + type);
+    }
+
+    private static synchronized List<ScmControlerProvider> getScmProviders() {
+        if (scmProviders == null) {
+            List<ScmControlerProvider> list = new ArrayList<ScmControlerProvider>();
+            // Mavenのプラグインとして動く場合を考え、このクラスのクラスローダから探す。
+            for (ScmControlerProvider provider : ServiceLoader.load(
+                    ScmControlerProvider.class, ControlerFactory.class.getClassLoader())) {
+                list.add(provider);
+            }
+            scmProviders = list;
+        }
+        return scmProviders;
+    }
+
+    private static synchronized List<CiControlerProvider> getCiProviders() {
+        if (ciProviders == null) {
+            List<CiControlerProvider> list = new ArrayList<CiControlerProvider>();
+            for (CiControlerProvider provider : ServiceLoader.load(
+                    CiControlerProvider.class, ControlerFactory.class.getClassLoader())) {
+                list.add(provider);
+            }
+            ciProviders = list;
+        }
+        return ciProviders;
+    }
+
+    private static String typeOf(String type, String defaultType) {
+        return type == null || type.trim().length() == 0 ? defaultType : type.trim();
+    }
+
+}
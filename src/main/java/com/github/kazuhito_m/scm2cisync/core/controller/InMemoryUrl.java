@@ -0,0 +1,98 @@
+package com.github.kazuhito_m.scm2cisync.core.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * メモリ上のSCM・CI(InMemory系コントローラ)の接続先URLを解釈するクラス。<br>
+ * 形式は"mem://名前?キー=値&amp;キー=値"。名前(クエリより前)が同じなら同じサーバを指す。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryUrl {
+
+    /**
+     * 人工的な遅延(ミリ秒)を指定するクエリのキー。
+     */
+    public static final String LATENCY_MILLIS = "latencyMillis";
+
+    /**
+     * 初期データの件数から名前を作る際の書式。SCMとCIで同じ名前となるようにする。
+     */
+    public static final String SEED_NAME_FORMAT = "project%05d";
+
+    private final String name;
+
+    private final Map<String, String> params = new HashMap<String, String>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param url 接続先URL。
+     */
+    public InMemoryUrl(String url) {
+        int q = url.indexOf('?');
+        String base = q < 0 ? url : url.substring(0, q);
+        name = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        if (q >= 0) {
+            for (String pair : url.substring(q + 1).split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return クエリを除いた名前。
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 数値のクエリの値を返す。
+     *
+     * @param key          キー。
+     * @param defaultValue 指定が無い場合の値。
+     * @return 値。
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = params.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * 文字列のクエリの値を返す。
+     *
+     * @param key キー。
+     * @return 値。指定が無ければnull。
+     */
+    public String getString(String key) {
+        return params.get(key);
+    }
+
+    /**
+     * 初期データ用の名前を作る。
+     *
+     * @param index 番号。(1から)
+     * @return 名前。
+     */
+    public static String seedName(int index) {
+        return String.format(SEED_NAME_FORMAT, index);
+    }
+
+    /**
+     * 人工的な遅延を入れる。
+     *
+     * @param latencyMillis 遅延(ミリ秒)。0以下なら何もしない。
+     * @throws InterruptedException 待機中に割り込まれた場合。
+     */
+    public static void sleep(long latencyMillis) throws InterruptedException {
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * CI(継続的インテグレーションサーバ)のコントロールを行うクラスの共通インタフェース。<br>
+ * 実装はCiControlerProviderを通じて、設定値のciTypeにより選ばれる。
+ *
+ * @author Kazuhito Miura
+ */
+public interface CiControler {
+
+    /**
+     * CIサーバに現在登録されているすべてのJob名を取得する。
+     *
+     * @return job名の文字列List。
+     * @throws Exception すべての例外。
+     */
+    List<String> getJobNames() throws Exception;
+
+    /**
+     * CIサーバに現在登録されているすべてのJob名を、一件ずつconsumerへ渡す。<br>
+     * 一覧全体を溜めずに済むよう、取得できたものから順に渡す。
+     * 省略時の実装はgetJobNames()の結果を順に渡す。
+     *
+     * @param consumer job名を受け取る処理。
+     * @throws Exception すべての例外。
+     */
+    default void enumerateJobNames(Consumer<String> consumer) throws Exception {
+        for (String name : getJobNames()) {
+            consumer.accept(name);
+        }
+    }
+
+    /**
+     * コントロール用jobの「管理対象job群(自身が終わった後、実行されるjob群)」を更新する。
+     *
+     * @param contJobName          管理用jobの名前。
+     * @param manageTargetJobNames 管理対象job名のList。
+     * @return 実際に更新した場合:true。(既に同じ内容で、何もしなかった場合:false)
+     * @throws Exception すべての例外。
+     */
+    boolean updateManagingJobNamesForControlJob(String contJobName,
+                                             List<String> manageTargetJobNames) throws Exception;
+
+    /**
+     * 指定されたJobを無効化する。
+     *
+     * @param jobName 無効化するjob名。
+     * @throws Exception すべての例外。
+     */
+    void desibleJob(String jobName) throws Exception;
+
+    /**
+     * 指定されたJobを有効化する。
+     *
+     * @param jobName 有効化するjob名。
+     * @throws Exception すべての例外。
+     */
+    void enableJob(String jobName) throws Exception;
+
+    /**
+     * 指定されたInputStreamからconfig.xmlファイルの内容を取得、Jobを追加する。
+     *
+     * @param jobName 追加するjob名。
+     * @param is      config.xmlの内容を取得できるInputStreamオブジェクト。
+     * @throws Exception すべての例外。
+     */
+    void addJob(String jobName, InputStream is) throws Exception;
+
+    /**
+     * 指定されたjobを削除する。
+     *
+     * @param jobName 削除するjob名。
+     * @throws Exception すべての例外。
+     */
+    void deleteJob(String jobName) throws Exception;
+
+    /**
+     * 複数のjobの新規作成・無効化・有効化を、まとめて実行する。
+     *
+     * @param mutations 変更のList。
+     * @return 引数と同じ順の、一件ごとの結果のList。
+     * @throws Exception すべての例外。
+     */
+    List<JobMutationResult> applyJobMutations(List<JobMutation> mutations)
+            throws Exception;
+
+    /**
+     * CIサーバとの接続を閉じる。
+     *
+     * @throws Exception すべての例外。
+     */
+    void close() throws Exception;
+
+    /**
+     * Logオブジェクトのセット。
+     *
+     * @param log the log to set
+     */
+    void setLog(Log log);
+
+    /**
+     * @return the urlPath
+     */
+    String getUrlPath();
+
+    /**
+     * @param urlPath the urlPath to set
+     */
+    void setUrlPath(String urlPath);
+
+}
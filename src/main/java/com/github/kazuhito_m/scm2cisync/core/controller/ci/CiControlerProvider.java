@@ -0,0 +1,29 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * CiControlerの実装を提供するクラスのインタフェース。(java.util.ServiceLoaderで読み込む)<br>
+ * 実装クラスは"META-INF/services/"にこのインタフェース名のファイルを置き、登録する。
+ *
+ * @author Kazuhito Miura
+ */
+public interface CiControlerProvider {
+
+    /**
+     * 設定値のciTypeを扱えるか否か。
+     *
+     * @param ciType CIサーバのタイプ。(大文字小文字は区別しないこと)
+     * @return 扱える:true。
+     */
+    boolean supports(String ciType);
+
+    /**
+     * 設定値に従い、接続先・認証情報等を設定済みのコントローラを作成する。
+     *
+     * @param st 設定値オブジェクト。
+     * @return CI側コントローラ。
+     */
+    CiControler create(SynchronizeTarget st);
+
+}
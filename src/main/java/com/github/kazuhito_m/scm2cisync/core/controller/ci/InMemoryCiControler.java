@@ -0,0 +1,138 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.InMemoryUrl;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * メモリ上のCIサーバ(InMemoryCiServer)を相手にするCI側コントローラ。<br>
+ * 一往復ごとにサーバに設定された遅延を入れる。(まとめて実行する変更も一往復とみなす)
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryCiControler implements CiControler {
+
+    /**
+     * デバッグ/情報表示用ログオブジェクト。
+     */
+    protected Log log = null;
+
+    /**
+     * サーバを指すURL文字列
+     */
+    private String urlPath = null;
+
+    public List<String> getJobNames() throws Exception {
+        return roundTrip().getJobNames();
+    }
+
+    public boolean updateManagingJobNamesForControlJob(String contJobName,
+                                                       List<String> manageTargetJobNames) throws Exception {
+        // 実物同様、取得と更新の二往復。(同じ内容なら更新しない)
+        roundTrip().getConfig(contJobName);
+        InMemoryCiServer server = roundTrip();
+        if (new TreeSet<String>(server.getChildJobs(contJobName))
+                .equals(new TreeSet<String>(manageTargetJobNames))) {
+            return false;
+        }
+        server.setChildJobs(contJobName, manageTargetJobNames);
+        return true;
+    }
+
+    public void desibleJob(String jobName) throws Exception {
+        roundTrip().setDisabled(jobName, true);
+    }
+
+    public void enableJob(String jobName) throws Exception {
+        roundTrip().setDisabled(jobName, false);
+    }
+
+    public void addJob(String jobName, InputStream is) throws Exception {
+        String config = read(is);
+        roundTrip().createJob(jobName, config);
+    }
+
+    public void deleteJob(String jobName) throws Exception {
+        roundTrip().deleteJob(jobName);
+    }
+
+    public List<JobMutationResult> applyJobMutations(List<JobMutation> mutations)
+            throws Exception {
+        InMemoryCiServer server = roundTrip();
+        List<JobMutationResult> results =
+                new ArrayList<JobMutationResult>(mutations.size());
+        for (JobMutation m : mutations) {
+            String error = null;
+            try {
+                switch (m.getType()) {
+                    case CREATE:
+                        server.createJob(m.getJobName(), m.getConfig());
+                        break;
+                    case DISABLE:
+                        server.setDisabled(m.getJobName(), true);
+                        break;
+                    default:
+                        server.setDisabled(m.getJobName(), false);
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                error = e.toString();
+            }
+            results.add(new JobMutationResult(m, error));
+        }
+        return results;
+    }
+
+    public void close() {
+        // 接続は持たない。
+    }
+
+    /**
+     * @return 接続先のサーバ。
+     */
+    public InMemoryCiServer getServer() {
+        return InMemoryCiServer.of(urlPath);
+    }
+
+    /**
+     * 遅延を入れた上で、接続先のサーバを返す。(一往復分)
+     */
+    private InMemoryCiServer roundTrip() throws InterruptedException {
+        InMemoryCiServer server = getServer();
+        InMemoryUrl.sleep(server.getLatencyMillis());
+        return server;
+    }
+
+    private static String read(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = is.read(buf)) >= 0) {
+            bos.write(buf, 0, len);
+        }
+        return bos.toString("UTF-8");
+    }
+
+    // Getter/Setter群
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+    public String getUrlPath() {
+        return urlPath;
+    }
+
+    public void setUrlPath(String urlPath) {
+        this.urlPath = urlPath;
+    }
+
+}
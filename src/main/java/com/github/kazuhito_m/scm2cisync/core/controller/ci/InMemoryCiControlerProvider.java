@@ -0,0 +1,22 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * ciTypeが"InMemory"の場合に、InMemoryCiControlerを提供するクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryCiControlerProvider implements CiControlerProvider {
+
+    public boolean supports(String ciType) {
+        return "InMemory".equalsIgnoreCase(ciType);
+    }
+
+    public CiControler create(SynchronizeTarget st) {
+        InMemoryCiControler controler = new InMemoryCiControler();
+        controler.setUrlPath(st.getCiUrl());
+        return controler;
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.InMemoryUrl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * メモリ上のCIサーバ。job名とconfig.xml、無効化状態、コントロールjobの下位jobを保持する。<br>
+ * 名前ごとにVM内で共有され、InMemoryCiControlerから参照される。
+ * オフラインでの性能計測・負荷試験用。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryCiServer {
+
+    /**
+     * 初期job数を指定するクエリのキー。
+     */
+    public static final String JOBS = "jobs";
+
+    /**
+     * 初期状態で作成しておくコントロールjob名を指定するクエリのキー。
+     */
+    public static final String CONTROL_JOB = "controlJob";
+
+    private static final ConcurrentMap<String, InMemoryCiServer> SERVERS =
+            new ConcurrentHashMap<String, InMemoryCiServer>();
+
+    /**
+     * job名とconfig.xmlの内容。
+     */
+    private final Map<String, String> jobs = new TreeMap<String, String>();
+
+    /**
+     * 無効化されているjob名。
+     */
+    private final Set<String> disabledJobs = new TreeSet<String>();
+
+    /**
+     * コントロールjob名と、その下位job名。
+     */
+    private final Map<String, List<String>> childJobs = new HashMap<String, List<String>>();
+
+    /**
+     * 一往復ごとに入れる人工的な遅延(ミリ秒)。
+     */
+    private volatile long latencyMillis = 0;
+
+    /**
+     * URLの名前に対応するサーバを返す。無ければ作成し、URLのクエリに従い初期化する。<br>
+     * クエリ:"jobs"=初期job数、"controlJob"=コントロールjob名、"latencyMillis"=遅延。
+     *
+     * @param url 接続先URL。
+     * @return サーバ。
+     */
+    public static InMemoryCiServer of(String url) {
+        InMemoryUrl parsed = new InMemoryUrl(url);
+        InMemoryCiServer server = SERVERS.get(parsed.getName());
+        if (server == null) {
+            InMemoryCiServer created = new InMemoryCiServer();
+            int count = (int) parsed.getLong(JOBS, 0);
+            for (int i = 1; i <= count; i++) {
+                created.createJob(InMemoryUrl.seedName(i), "<project/>");
+            }
+            String controlJob = parsed.getString(CONTROL_JOB);
+            if (controlJob != null) {
+                created.createJob(controlJob, "<project/>");
+            }
+            server = SERVERS.putIfAbsent(parsed.getName(), created);
+            if (server == null) {
+                server = created;
+            }
+        }
+        server.setLatencyMillis(parsed.getLong(InMemoryUrl.LATENCY_MILLIS,
+                server.getLatencyMillis()));
+        return server;
+    }
+
+    /**
+     * すべてのサーバを破棄する。
+     */
+    public static void clear() {
+        SERVERS.clear();
+    }
+
+    /**
+     * @return すべてのjob名。(名前順)
+     */
+    public synchronized List<String> getJobNames() {
+        return new ArrayList<String>(jobs.keySet());
+    }
+
+    /**
+     * jobを作成する。
+     *
+     * @param jobName job名。
+     * @param config  config.xmlの内容。
+     * @throws IllegalArgumentException 既に存在する場合。
+     */
+    public synchronized void createJob(String jobName, String config) {
+        if (jobs.containsKey(jobName)) {
+            throw new IllegalArgumentException("job already exists : " + jobName);
+        }
+        jobs.put(jobName, config);
+    }
+
+    /**
+     * jobの無効化・有効化を行う。
+     *
+     * @param jobName  job名。
+     * @param disabled 無効化:true。
+     * @throws IllegalArgumentException jobが無い場合。
+     */
+    public synchronized void setDisabled(String jobName, boolean disabled) {
+        checkExists(jobName);
+        if (disabled) {
+            disabledJobs.add(jobName);
+        } else {
+            disabledJobs.remove(jobName);
+        }
+    }
+
+    /**
+     * jobを削除する。
+     *
+     * @param jobName job名。
+     * @throws IllegalArgumentException jobが無い場合。
+     */
+    public synchronized void deleteJob(String jobName) {
+        checkExists(jobName);
+        jobs.remove(jobName);
+        disabledJobs.remove(jobName);
+        childJobs.remove(jobName);
+    }
+
+    /**
+     * コントロールjobの下位jobを設定する。
+     *
+     * @param contJobName コントロールjob名。
+     * @param children    下位job名。
+     * @throws IllegalArgumentException jobが無い場合。
+     */
+    public synchronized void setChildJobs(String contJobName, List<String> children) {
+        checkExists(contJobName);
+        childJobs.put(contJobName, new ArrayList<String>(children));
+    }
+
+    /**
+     * @param jobName job名。
+     * @return config.xmlの内容。無ければnull。
+     */
+    public synchronized String getConfig(String jobName) {
+        return jobs.get(jobName);
+    }
+
+    /**
+     * @param jobName job名。
+     * @return 無効化されていればtrue。
+     */
+    public synchronized boolean isDisabled(String jobName) {
+        return disabledJobs.contains(jobName);
+    }
+
+    /**
+     * @param contJobName コントロールjob名。
+     * @return 下位job名。未設定なら空。
+     */
+    public synchronized List<String> getChildJobs(String contJobName) {
+        List<String> children = childJobs.get(contJobName);
+        return children == null ? Collections.<String>emptyList()
+                : new ArrayList<String>(children);
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    private void checkExists(String jobName) {
+        if (!jobs.containsKey(jobName)) {
+            throw new IllegalArgumentException("no such job : " + jobName);
+        }
+    }
+
+}
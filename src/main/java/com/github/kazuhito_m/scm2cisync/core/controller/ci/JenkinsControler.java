@@ -1,31 +1,67 @@
 package com.github.kazuhito_m.scm2cisync.core.controller.ci;
 
 import hudson.cli.CLI;
-import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 import org.dom4j.io.XMLWriter;
-import org.xml.sax.SAXException;
-import com.github.kazuhito_m.commons.io.LineStringListOutputStream;
-import com.github.kazuhito_m.commons.io.StringBuilderOutputStream;
+import com.github.kazuhito_m.commons.io.ByteArrayBufferOutputStream;
+import com.github.kazuhito_m.commons.io.LineConsumerOutputStream;
+import com.github.kazuhito_m.commons.io.StringBuilderDecodingOutputStream;
+import com.github.kazuhito_m.commons.log.LazyLog;
+import com.github.kazuhito_m.commons.xml.XmlElementTextRewriter;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Jenkins(CIサーバの一種)のコントロールを行うクラス。
  *
  * @author Kazuhito Miura
  */
-public class JenkinsControler {
+public class JenkinsControler implements CiControler {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Jenkins-cliの標準出力・エラー出力の文字コード。(サーバ側はクライアントの既定の文字コードで書き出す)
+     */
+    private static final Charset CLI_OUTPUT_CHARSET = Charset.defaultCharset();
+
+    /**
+     * まとめて実行するスクリプトの、一件ごとの結果行の接頭辞。
+     */
+    private static final String RESULT_PREFIX = "RESULT\t";
+
+    /**
+     * job名一覧の出力の終わりを示す行。('/'はjob名に使えないため、job名とは紛れない)
+     */
+    private static final String JOB_NAMES_END_MARKER = "/END_OF_JOB_NAMES/";
+
+    /**
+     * groovyの文字列定数一つに埋め込む最大文字数。(クラスファイルの定数は64KB未満のため)
+     */
+    private static final int LITERAL_CHUNK = 30000;
+
+    /**
+     * コントロールjobの「管理対象job群」を持つ要素の、config.xml中の経路。
+     */
+    protected static final String[] CHILD_PROJECTS_PATH =
+            {"publishers", "hudson.tasks.BuildTrigger", "childProjects"};
 
     /**
      * デバッグ/情報表示用ログオブジェクト。
@@ -37,37 +73,73 @@ public class JenkinsControler {
      */
     private String urlPath = null;
 
+    /**
+     * 使い回すJenkinsCLIセッション。未接続ならnull。
+     */
+    private CliSession session = null;
+
+    /**
+     * 接続後、使用可能となるまで待つ最大時間(ミリ秒)。
+     */
+    private long readyTimeoutMillis = 30000;
+
+    /**
+     * 複数のjobの変更をまとめて実行する際の、一度に送る件数。
+     */
+    private int mutationBatchSize = 100;
+
     /**
      * Jenkinsサーバに現在登録されているすべてのJob名を取得する。
      *
-     * @return job名の文字列Set。
+     * @return job名の文字列List。
      * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
      * @throws IOException          何らかの入出力エラー
      */
     public List<String> getJobNames() throws IOException, InterruptedException {
+        List<String> names = new ArrayList<String>();
+        enumerateJobNames(names::add);
+        return names;
+    }
 
-        // 答えはList<String>で受ける
-        List<String> lines = new ArrayList<String>();
-        OutputStream os = new LineStringListOutputStream(lines);
+    /**
+     * Jenkinsサーバに現在登録されているすべてのJob名を、受け取った順に一件ずつconsumerへ渡す。<br>
+     * Jenkins-cliの「groovy =」でjob名を一行ずつ出力させ、転送されてきた行からすぐに渡す。
+     * 出力の終わりは、job名には使えない文字('/')を含む終端行で判定する。
+     *
+     * @param consumer job名を受け取る処理。
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     * @throws IOException          何らかの入出力エラー。終端行が届かなかった場合も含む。
+     */
+    @Override
+    public void enumerateJobNames(final Consumer<String> consumer)
+            throws IOException, InterruptedException {
+
+        final int[] count = {0};
+        final boolean[] ended = {false};
+        OutputStream os = new LineConsumerOutputStream(CLI_OUTPUT_CHARSET, line -> {
+            if (ended[0]) {
+                return;
+            }
+            if (JOB_NAMES_END_MARKER.equals(line)) {
+                ended[0] = true;
+                return;
+            }
+            count[0]++;
+            consumer.accept(line);
+        });
 
         // Jenkins-cliの「groovy実行コマンド」を利用し、job全量の列挙させる。
         String groovyScript =
-                "for (item in hudson.model.Hudson.instance.items) println(item.name)";
-        execCli(null, os, "groovysh", groovyScript);
-
-        // debug
-        if (log.isDebugEnabled()) {
-            log.debug("groovysh result : ");
-            for (String line : lines) {
-                log.debug(line);
-            }
+                "for (item in hudson.model.Hudson.instance.items) println(item.name)\n"
+                        + "println('" + JOB_NAMES_END_MARKER + "')\n";
+        runGroovyScript(groovyScript, os);
+        os.close();
+
+        if (!ended[0]) {
+            throw new IOException("Jenkins job list ended without end marker ("
+                    + count[0] + " jobs received).");
         }
-
-        // 末尾一行はノイズなので削除
-        // FIXME 出力形式に依存しているが、日本語じゃなくなっても大丈夫…だと思う。要検証。
-        lines.remove(lines.size() - 1);
-
-        return lines;
+        LazyLog.debug(log, () -> "groovy result : " + count[0] + " jobs.");
 
     }
 
@@ -89,8 +161,8 @@ public class JenkinsControler {
             // 答え(コンフィグ情報)はFileOutputStriamで受ける
             fos = new FileOutputStream(downloadTarget);
 
-            // Jenkins-cliの「ジョブ定義XMLを標準出力に出力します。」を利用し、job設定をローカルファイルへと落とす。
-            execCli(null, fos, "get-job", jobName);
+            // ジョブ定義XMLを取得し、ローカルファイルへと落とす。
+            fetchJobConfig(jobName, fos);
 
         } finally {
             if (fos != null) {
@@ -102,57 +174,40 @@ public class JenkinsControler {
     }
 
     /**
-     * Jenkins中のコントロール用jobの「管理対象job群(自身が終わった後、実行されるjob群)」を更新する。
+     * Jenkins中のコントロール用jobの「管理対象job群(自身が終わった後、実行されるjob群)」を更新する。<br>
+     * config.xmlの"publishers/hudson.tasks.BuildTrigger/childProjects"のみを、読みながら書き換える。
+     * job名は名前順・重複無しのCSVとし、現在の内容と(並び・空白を問わず)同じなら更新はしない。
      *
      * @param contJobName          管理用jobの名前。
      * @param manageTargetJobNames 管理対象job名のList。
-     * @throws MalformedURLException        URL指定が不全。
-     * @throws IOException                  何らかの入出力エラー
-     * @throws InterruptedException         Jenkinsに割り込みが入った場合の例外。
-     * @throws ParserConfigurationException Jenkinsから取得したデータが不正の場合。
-     * @throws SAXException                 XML系の例外。
+     * @return 実際に書き換えた場合:true。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー(config.xmlがXMLとして読めない場合も含む)
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
      */
-    public void updateManagingJobNamesForControlJob(String contJobName,
+    public boolean updateManagingJobNamesForControlJob(String contJobName,
                                                     final List<String> manageTargetJobNames) throws MalformedURLException,
-            IOException, InterruptedException, DocumentException {
-
-        // 内部処理移譲メソッド呼び出し(XMLの編集のみ差分記述)
-        this.updateJobConfig(contJobName, new JobConfigEditor() {
-
-            public void editJob(Document configXml) {
-                // job名リストのCSV文字列化
-                String jobNames =
-                        StringUtils.join(manageTargetJobNames.toArray(), ",");
-
-                // XML箇所の特定・取得。
-                Element top =
-                        (Element) configXml.selectSingleNode("/*/publishers");
-                if (top != null) {
-                    // 絶対あると思われる、"/*/publishers"が無いならお手上げ。
-                    String xpath = "hudson.tasks.BuildTrigger";
-                    Element next = (Element) top.selectSingleNode(xpath);
-                    if (next == null) {
-                        next = (Element) top.addElement(xpath);
-                    }
-                    xpath = "childProjects";
-                    Element end = (Element) next.selectSingleNode(xpath);
-                    if (end == null) {
-                        end = (Element) next.addElement(xpath);
-                    }
-
-                    // デバッグ
-                    if (log.isDebugEnabled()) {
-                        String message =
-                                "config.xml change value : " + end.getText()
-                                        + " -> " + jobNames;
-                        log.debug(message);
-                    }
-                    // 実際に書き換え
-                    end.setText(jobNames);
-                }
-            }
-        });
+            IOException, InterruptedException {
 
+        // job名リストのCSV文字列化(並びを一定にするため、名前順・重複無し)
+        final Set<String> sorted = new TreeSet<String>(manageTargetJobNames);
+        String jobNames = String.join(",", sorted);
+
+        // 現在の内容と比べるため、元の値を受け取る。
+        StringBuilder previous = new StringBuilder();
+
+        // 絶対あると思われる、"/*/publishers"が無いならお手上げ。(何もしない)
+        // 中身が同じなら、更新(Jenkins側の設定変更履歴が残る)はしない。
+        boolean rewritten = rewriteJobConfigText(contJobName, CHILD_PROJECTS_PATH,
+                jobNames, previous, current -> sorted.equals(splitJobNames(current)));
+
+        // デバッグ
+        if (log.isDebugEnabled()) {
+            log.debug(rewritten ? "config.xml change value : " + previous + " -> " + jobNames
+                    : "config.xml not changed : " + contJobName);
+        }
+
+        return rewritten;
     }
 
     /**
@@ -212,6 +267,168 @@ public class JenkinsControler {
         execCli(null, null, "delete-job", jobName);
     }
 
+    /**
+     * 複数のjobの新規作成・無効化・有効化を、まとめて実行する。<br>
+     * mutationBatchSize件ごとに一本のgroovyスクリプトとし、一往復でJenkinsへ適用する。
+     * 一件の失敗で全体を止めず、一件ごとの成否を返す。
+     *
+     * @param mutations 変更のList。
+     * @return 引数と同じ順の、一件ごとの結果のList。
+     * @throws IOException          何らかの入出力エラー
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     */
+    public List<JobMutationResult> applyJobMutations(List<JobMutation> mutations)
+            throws IOException, InterruptedException {
+
+        List<JobMutationResult> results =
+                new ArrayList<JobMutationResult>(mutations.size());
+
+        for (int from = 0; from < mutations.size(); from += mutationBatchSize) {
+            List<JobMutation> batch = mutations.subList(from,
+                    Math.min(from + mutationBatchSize, mutations.size()));
+
+            List<String> lines = new ArrayList<String>();
+            OutputStream os = new LineConsumerOutputStream(CLI_OUTPUT_CHARSET, lines::add);
+            runGroovyScript(buildMutationScript(batch), os);
+            // 改行で終わらない最後の行も、閉じた時点で渡される。
+            os.close();
+
+            results.addAll(parseMutationResults(batch, lines));
+        }
+
+        return results;
+
+    }
+
+    /**
+     * groovyスクリプトをJenkins上で実行する。<br>
+     * Jenkins-cliの「groovy =」(標準入力のスクリプトを実行)を利用。
+     *
+     * @param script groovyスクリプト。
+     * @param os     スクリプトの標準出力を受けるストリーム。
+     * @throws IOException          何らかの入出力エラー
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     */
+    protected void runGroovyScript(String script, OutputStream os)
+            throws IOException, InterruptedException {
+        execCli(new ByteArrayInputStream(script.getBytes(UTF_8)), os, "groovy", "=");
+    }
+
+    /**
+     * 変更群を適用するgroovyスクリプトを組み立てる。<br>
+     * job名とconfig.xmlはBase64で埋め込み(文字コードやクォートの問題を避けるため)、
+     * 一件ごとに"RESULT\t番号\tOK"または"RESULT\t番号\tNG\t理由(Base64)"を出力させる。
+     *
+     * @param mutations 変更のList。
+     * @return groovyスクリプト。
+     */
+    protected String buildMutationScript(List<JobMutation> mutations) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("def j = hudson.model.Hudson.instance\n");
+        sb.append("def ops = [\n");
+        for (JobMutation m : mutations) {
+            sb.append("['").append(m.getType().name().charAt(0)).append("', ");
+            appendBase64Literal(sb, m.getJobName());
+            sb.append(", ");
+            if (m.getConfig() == null) {
+                sb.append("null");
+            } else {
+                appendBase64Literal(sb, m.getConfig());
+            }
+            sb.append("],\n");
+        }
+        sb.append("]\n");
+        sb.append("ops.eachWithIndex { op, i ->\n");
+        sb.append("  try {\n");
+        sb.append("    def name = new String(op[1].decodeBase64(), 'UTF-8')\n");
+        sb.append("    if (op[0] == 'C') {\n");
+        sb.append("      j.createProjectFromXML(name, new ByteArrayInputStream(op[2].decodeBase64()))\n");
+        sb.append("    } else {\n");
+        sb.append("      def item = j.getItemByFullName(name)\n");
+        sb.append("      if (item == null) throw new IllegalArgumentException('no such job : ' + name)\n");
+        sb.append("      if (op[0] == 'D') item.disable() else item.enable()\n");
+        sb.append("    }\n");
+        sb.append("    println('RESULT\\t' + i + '\\tOK')\n");
+        sb.append("  } catch (Throwable t) {\n");
+        sb.append("    println('RESULT\\t' + i + '\\tNG\\t' + String.valueOf(t).getBytes('UTF-8').encodeBase64())\n");
+        sb.append("  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * スクリプトの出力から、一件ごとの結果を取り出す。結果の出力が無いものは失敗とする。<br>
+     * 形式の崩れた結果行(列不足・番号が数値でない・範囲外)は読み飛ばす。
+     * (Jenkins側では適用済みのため、一行のために全件の結果を失わないよう)
+     *
+     * @param mutations 変更のList。
+     * @param lines     スクリプトの出力行。
+     * @return 一件ごとの結果のList。
+     */
+    protected List<JobMutationResult> parseMutationResults(
+            List<JobMutation> mutations, List<String> lines) {
+
+        String[] errors = new String[mutations.size()];
+        boolean[] reported = new boolean[mutations.size()];
+        for (String line : lines) {
+            if (!line.startsWith(RESULT_PREFIX)) {
+                continue;
+            }
+            String[] cols = line.split("\t", 4);
+            if (cols.length < 3) {
+                continue;
+            }
+            int i;
+            try {
+                i = Integer.parseInt(cols[1].trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (i < 0 || i >= mutations.size()) {
+                continue;
+            }
+            reported[i] = true;
+            if (!"OK".equals(cols[2].trim())) {
+                errors[i] = cols.length > 3 ? decodeReason(cols[3].trim()) : "failed";
+            }
+        }
+
+        List<JobMutationResult> results =
+                new ArrayList<JobMutationResult>(mutations.size());
+        for (int i = 0; i < errors.length; i++) {
+            String error = reported[i] ? errors[i] : "no result from jenkins";
+            results.add(new JobMutationResult(mutations.get(i), error));
+        }
+        return results;
+
+    }
+
+    /**
+     * 結果行の理由(Base64)を戻す。Base64として読めなければそのまま返す。
+     */
+    private static String decodeReason(String b64) {
+        try {
+            return new String(Base64.getDecoder().decode(b64), UTF_8);
+        } catch (IllegalArgumentException e) {
+            return b64;
+        }
+    }
+
+    /**
+     * 文字列をBase64にし、groovyの文字列リテラルとして追加する。<br>
+     * 一つの定数が大きくなりすぎないよう、分割して連結する式とする。
+     */
+    private static void appendBase64Literal(StringBuilder sb, String value) {
+        String b64 = Base64.getEncoder().encodeToString(value.getBytes(UTF_8));
+        for (int i = 0; i < b64.length() || i == 0; i += LITERAL_CHUNK) {
+            if (i > 0) {
+                sb.append(" + ");
+            }
+            sb.append('\'').append(b64, i, Math.min(i + LITERAL_CHUNK, b64.length()))
+                    .append('\'');
+        }
+    }
+
     /**
      * 接続や前準備の整ったJenkinsCLIオブジェクトを取得する。
      *
@@ -233,9 +450,92 @@ public class JenkinsControler {
 
     }
 
+    /**
+     * jobの設定(config.xml)の、指定された経路の要素の内容だけを書き換える。<br>
+     * 取得した内容はメモリ上に受け、StAXで読みながら書き換えたものをそのまま送る。
+     * (一時ファイルもDOMも使わない。jobの設定は同じ接続で取得・更新するため、一旦はメモリに受ける)
+     *
+     * @param jobName  job名。
+     * @param path     ルート要素の子からの要素名の並び。
+     * @param text     要素の新しい内容。
+     * @param previous 要素の元の内容を受け取るStringBuilder。不要ならnull。
+     * @return 書き換えた:true。経路の先頭の要素が無く、更新しなかった:false。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー(config.xmlがXMLとして読めない場合も含む)
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    protected boolean rewriteJobConfigText(String jobName, String[] path, String text,
+                                           StringBuilder previous)
+            throws MalformedURLException, IOException, InterruptedException {
+        return rewriteJobConfigText(jobName, path, text, previous, null);
+    }
+
+    /**
+     * jobの設定(config.xml)の、指定された経路の要素の内容だけを書き換える。<br>
+     * 要素の元の内容がunchangedを満たすなら、書き換えたものは送らない。
+     *
+     * @param jobName   job名。
+     * @param path      ルート要素の子からの要素名の並び。
+     * @param text      要素の新しい内容。
+     * @param previous  要素の元の内容を受け取るStringBuilder。不要ならnull。
+     * @param unchanged 要素の元の内容を受け取り、更新不要ならtrueを返す判定。nullなら常に更新。
+     * @return 書き換えた:true。経路の先頭の要素が無い、または更新不要で、更新しなかった:false。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー(config.xmlがXMLとして読めない場合も含む)
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    protected boolean rewriteJobConfigText(String jobName, String[] path, String text,
+                                           StringBuilder previous,
+                                           Predicate<String> unchanged)
+            throws MalformedURLException, IOException, InterruptedException {
+
+        if (unchanged != null && previous == null) {
+            previous = new StringBuilder();
+        }
+
+        // ジョブ定義XMLを取得し、メモリ上に受ける。
+        ByteArrayBufferOutputStream fetched = new ByteArrayBufferOutputStream();
+        fetchJobConfig(jobName, fetched);
+
+        // 対象要素だけを差し替えながら書き写す。
+        ByteArrayBufferOutputStream rewritten =
+                new ByteArrayBufferOutputStream(fetched.size() + text.length());
+        if (!new XmlElementTextRewriter(path).rewrite(fetched.toInputStream(),
+                rewritten, text, previous)) {
+            return false;
+        }
+        fetched = null; // 元の内容は以後不要。
+        if (unchanged != null && unchanged.test(previous.toString())) {
+            return false;
+        }
+
+        // 書き換えた内容でジョブ定義XMLを更新する。
+        postJobConfig(jobName, rewritten.toInputStream());
+        return true;
+
+    }
+
+    /**
+     * childProjects等の、CSV形式のjob名の並びを分解する。(前後の空白は除き、空のものは無視)
+     *
+     * @param csv CSV形式のjob名の並び。
+     * @return job名の集合。(名前順)
+     */
+    protected static Set<String> splitJobNames(String csv) {
+        Set<String> names = new TreeSet<String>();
+        for (String name : csv.split(",")) {
+            name = name.trim();
+            if (name.length() > 0) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
     /**
      * Jenkins中のコントロール用jobを更新する。<br>
      * Jenkins-cliの「config.xmlを標準入力で設定する」「標準出力に出す」コマンドを利用し、 取ったものをXMLとして変更する。
+     * 文書全体をDOMにするため、一部の要素の内容を変えるだけなら rewriteJobConfigText() を使うこと。
      *
      * @param jobName jobの名前。
      * @param editor  jobのXMLを編集するエディタオブジェクト。
@@ -248,67 +548,58 @@ public class JenkinsControler {
             throws DocumentException, MalformedURLException, IOException,
             InterruptedException {
 
-        OutputStream os = null;
-        InputStream is = null;
-        File work = null;
-
-        try {
-
-            // データのやり取りはワークファイルとFileInput/OutputStreamで行う。
-            work = File.createTempFile("config", ".xml");
-            log.debug("temporary config file :" + work.getCanonicalPath());
-
-            // 答え(コンフィグ情報)はFileに受ける
-            os = new FileOutputStream(work);
-
-            // Jenkins-cliの「ジョブ定義XMLを標準出力に出力します。」を利用し、job設定をローカルファイルへと落とす。
-            execCli(null, os, "get-job", jobName);
+        // データのやり取りはメモリ上のバッファで行う。(一時ファイルは使わない)
+        ByteArrayBufferOutputStream buffer = new ByteArrayBufferOutputStream();
 
-            os.close();
-            os = null;
-
-            // 受けた標準出力の内容をXMLパーサに掛ける。
-            is = new FileInputStream(work);
+        // ジョブ定義XMLを取得し、バッファへと受ける。
+        fetchJobConfig(jobName, buffer);
 
-            SAXReader reader = new SAXReader();
-            Document doc = reader.read(is);
-            is.close();
-            is = null;
+        // 受けた標準出力の内容をXMLパーサに掛ける。
+        SAXReader reader = new SAXReader();
+        Document doc = reader.read(buffer.toInputStream());
 
-            // XML値の変更
-            editor.editJob(doc);
+        // XML値の変更
+        editor.editJob(doc);
 
-            // 再度、StringBufferへ出力
-            os = new FileOutputStream(work);
-            XMLWriter writer = new XMLWriter(os);
-            writer.write(doc);
-            writer.flush();
-            writer.close();
-            os.close();
-            os = null;
+        // 再度、バッファへ出力
+        buffer.reset();
+        XMLWriter writer = new XMLWriter(buffer);
+        writer.write(doc);
+        writer.flush();
 
-            // Jenkins-cliの「標準入力からの情報でジョブ定義XMLを更新します。」を利用し、job設定をローカルファイルへと落とす。
-            is = new FileInputStream(work);
-            execCli(is, null, "update-job", jobName);
+        // バッファの内容でジョブ定義XMLを更新する。
+        postJobConfig(jobName, buffer.toInputStream());
 
-            // 後始末。
-            is.close();
-            is = null;
+    }
 
-        } finally {
-            if (os != null) {
-                os.close();
-                os = null;
-            }
-            if (is != null) {
-                is.close();
-                is = null;
-            }
-            if (work != null && work.exists()) {
-                work.delete();
-            }
-        }
+    /**
+     * 指定したjobの設定(config.xml)を取得し、OutputStreamへ出力する。
+     *
+     * @param jobName job名。
+     * @param os      config.xmlの内容の出力先。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    protected void fetchJobConfig(String jobName, OutputStream os)
+            throws MalformedURLException, IOException, InterruptedException {
+        // Jenkins-cliの「ジョブ定義XMLを標準出力に出力します。」を利用。
+        execCli(null, os, "get-job", jobName);
+    }
 
+    /**
+     * 指定したjobの設定(config.xml)を、InputStreamの内容で更新する。
+     *
+     * @param jobName job名。
+     * @param is      新しいconfig.xmlの内容を取得できるInputStream。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    protected void postJobConfig(String jobName, InputStream is)
+            throws MalformedURLException, IOException, InterruptedException {
+        // Jenkins-cliの「標準入力からの情報でジョブ定義XMLを更新します。」を利用。
+        execCli(is, null, "update-job", jobName);
     }
 
     /**
@@ -321,45 +612,226 @@ public class JenkinsControler {
      * @throws IOException           何らかの入出力エラー
      * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
      */
-    protected void execCli(InputStream is, OutputStream os, String... args)
+    protected synchronized void execCli(InputStream is, OutputStream os,
+                                        String... args)
             throws MalformedURLException, IOException, InterruptedException {
 
-        CLI cli = null;
+        // Stream系を省略されている場合、標準入出力をセットしておく。
+        if (is == null) {
+            is = System.in;
+        }
+        if (os == null) {
+            os = System.out;
+        }
 
-        try {
+        // 接続が切れていた場合に読み直せるよう、入力の先頭を覚えておく。
+        boolean rereadable = is != System.in && is.markSupported();
+        if (rereadable) {
+            is.mark(Integer.MAX_VALUE);
+        }
+        // 出力が途中まで書かれた後に切れた場合、空のバッファなら消して再実行できる。
+        boolean resettable = os instanceof ByteArrayOutputStream
+                && ((ByteArrayOutputStream) os).size() == 0;
+        CountingOutputStream counted = new CountingOutputStream(os);
 
-            // Stream系を省略されている場合、標準入出力をセットしておく。
-            if (is == null) {
-                is = System.in;
+        // エラー出力はStringBuilderに受ける。
+        StringBuilder sb = new StringBuilder();
+        OutputStream sbos = new StringBuilderDecodingOutputStream(sb, CLI_OUTPUT_CHARSET);
+
+        // コマンド実行(セッションは使い回し)
+        long result;
+        try {
+            result = getSession().execute(Arrays.asList(args), is, counted, sbos);
+        } catch (RuntimeException e) {
+            // 通信路(remoting)が切れている。一度だけ繋ぎ直して再実行する。
+            LazyLog.debug(log, () -> "jenkins-cli session lost, reconnect : " + e.getMessage());
+            // 切れたセッションの切断の失敗で、元の例外を隠さない。
+            CliSession lost = session;
+            session = null;
+            closeQuietly(lost);
+            if (is != System.in && !rereadable) {
+                throw e;
+            }
+            if (counted.getCount() > 0) {
+                if (!resettable) {
+                    // 出力先に書かれた分は取り消せない。再実行すると内容が重複する。
+                    throw new IOException("jenkins-cli session lost after "
+                            + counted.getCount() + " bytes output : " + e.getMessage(), e);
+                }
+                ((ByteArrayOutputStream) os).reset();
             }
-            if (os == null) {
-                os = System.out;
+            if (rereadable) {
+                is.reset();
             }
+            sb.setLength(0);
+            sbos = new StringBuilderDecodingOutputStream(sb, CLI_OUTPUT_CHARSET);
+            result = getSession().execute(Arrays.asList(args), is, os, sbos);
+        }
 
-            // エラー出力はStringBuilderに受ける。
-            StringBuilder sb = new StringBuilder();
-            StringBuilderOutputStream sbos = new StringBuilderOutputStream(sb);
+        // 結果が正常を返さなかった場合、エラー出力の内容を例外としてスロー。
+        if (result != 0) {
+            sbos.close();
+            throw new RuntimeException(
+                    "Jenkins-ci returnd 'not succeseed' : \n" + sb.toString());
+        }
 
-            // ※なにやら、早すぎると内部で操作出来なくなるように見えるため、スリープを入れる。
-            Thread.sleep(1000);
+    }
 
-            // CLI新規作成。
-            cli = getConnectedJenkinsCli();
+    /**
+     * 使い回しているJenkinsCLIセッションを取得する。無ければ接続し、使える状態になるまで待つ。<br>
+     * 以前は「接続直後は操作できない」ため毎回1秒眠っていたが、
+     * 代わりにコマンド一覧の問い合わせが通るまで間隔を延ばしながら再試行する。
+     *
+     * @return 使用可能なJenkinsCLIセッション。
+     * @throws IOException          readyTimeoutMillis以内に使用可能とならなかった場合。
+     * @throws InterruptedException 待機中に割り込まれた場合。
+     */
+    protected synchronized CliSession getSession() throws IOException,
+            InterruptedException {
 
-            // コマンド実行
-            long result = cli.execute(Arrays.asList(args), is, os, sbos);
+        if (session != null) {
+            return session;
+        }
 
-            // 結果が正常を返さなかった場合、エラー出力の内容を例外としてスロー。
-            if (result != 0) {
-                throw new RuntimeException(
-                        "Jenkins-ci returnd 'not succeseed' : \n" + sb.toString());
+        long deadline = System.currentTimeMillis() + readyTimeoutMillis;
+        long wait = 50;
+        while (true) {
+            CliSession cli = null;
+            try {
+                cli = openSession();
+                // 応答が返れば使用可能とみなす。
+                cli.ping();
+                session = cli;
+                return session;
+            } catch (IOException e) {
+                closeQuietly(cli);
+                if (System.currentTimeMillis() + wait > deadline) {
+                    throw e;
+                }
+                LazyLog.debug(log, () -> "jenkins-cli not ready, retry : " + e.getMessage());
+            } catch (RuntimeException e) {
+                closeQuietly(cli);
+                if (System.currentTimeMillis() + wait > deadline) {
+                    throw new IOException("jenkins-cli not ready : " + urlPath, e);
+                }
+                LazyLog.debug(log, () -> "jenkins-cli not ready, retry : " + e.getMessage());
             }
+            Thread.sleep(wait);
+            wait = Math.min(wait * 2, 1000);
+        }
 
-        } finally {
-            if (cli != null) {
+    }
+
+    /**
+     * JenkinsCLIセッションを新たに開く。(getConnectedJenkinsCli()で接続したCLIを包む)
+     *
+     * @return 開いたセッション。(使用可能かは未確認)
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    protected CliSession openSession() throws MalformedURLException, IOException,
+            InterruptedException {
+        final CLI cli = getConnectedJenkinsCli();
+        return new CliSession() {
+            public int execute(List<String> args, InputStream is, OutputStream os,
+                               OutputStream err) {
+                return cli.execute(args, is, os, err);
+            }
+
+            public void ping() {
+                cli.hasCommand("help");
+            }
+
+            public void close() throws IOException, InterruptedException {
                 cli.close();
-                cli = null;
             }
+        };
+    }
+
+    /**
+     * 使い回しているJenkinsCLIセッションを閉じる。再度コマンドを実行すれば接続し直す。
+     *
+     * @throws IOException          切断時の入出力エラー
+     * @throws InterruptedException 切断中に割り込まれた場合。
+     */
+    public synchronized void close() throws IOException, InterruptedException {
+        CliSession cli = session;
+        session = null;
+        if (cli != null) {
+            cli.close();
+        }
+    }
+
+    /**
+     * 例外を無視してセッションを閉じる。(失敗した接続の後始末用)
+     */
+    private void closeQuietly(CliSession cli) {
+        if (cli == null) {
+            return;
+        }
+        try {
+            cli.close();
+        } catch (Exception e) {
+            LazyLog.debug(log, () -> "jenkins-cli close failed : " + e.getMessage());
+        }
+    }
+
+    /**
+     * JenkinsCLIの接続一本分。(コマンドの実行・疎通確認・切断だけを使う)
+     */
+    protected interface CliSession {
+
+        /**
+         * コマンドを実行する。通信路が切れている場合は実行時例外となる。
+         *
+         * @return コマンドの終了コード。
+         */
+        int execute(List<String> args, InputStream is, OutputStream os, OutputStream err)
+                throws IOException, InterruptedException;
+
+        /**
+         * 使用可能かを確かめる。使えなければ例外となる。
+         */
+        void ping() throws IOException, InterruptedException;
+
+        /**
+         * 切断する。
+         */
+        void close() throws IOException, InterruptedException;
+
+    }
+
+    /**
+     * 書き込まれたバイト数を数えながら、そのまま書き写すOutputStream。(閉じはしない)
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        long getCount() {
+            return count;
         }
 
     }
@@ -375,6 +847,34 @@ public class JenkinsControler {
         this.log = log;
     }
 
+    /**
+     * @return the mutationBatchSize
+     */
+    public int getMutationBatchSize() {
+        return mutationBatchSize;
+    }
+
+    /**
+     * @param mutationBatchSize the mutationBatchSize to set
+     */
+    public void setMutationBatchSize(int mutationBatchSize) {
+        this.mutationBatchSize = mutationBatchSize;
+    }
+
+    /**
+     * @return the readyTimeoutMillis
+     */
+    public long getReadyTimeoutMillis() {
+        return readyTimeoutMillis;
+    }
+
+    /**
+     * @param readyTimeoutMillis the readyTimeoutMillis to set
+     */
+    public void setReadyTimeoutMillis(long readyTimeoutMillis) {
+        this.readyTimeoutMillis = readyTimeoutMillis;
+    }
+
     /**
      * @return the urlPath
      */
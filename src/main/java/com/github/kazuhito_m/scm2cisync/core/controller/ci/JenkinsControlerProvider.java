@@ -0,0 +1,32 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * ciTypeが"Jenkins"の場合にJenkins-cli経由の、"JenkinsHttp"の場合にHTTP(REST API)経由の
+ * コントローラを提供するクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class JenkinsControlerProvider implements CiControlerProvider {
+
+    public boolean supports(String ciType) {
+        return "Jenkins".equalsIgnoreCase(ciType) || "JenkinsHttp".equalsIgnoreCase(ciType);
+    }
+
+    public CiControler create(SynchronizeTarget st) {
+        JenkinsControler controler;
+        if ("JenkinsHttp".equalsIgnoreCase(st.getCiType())) {
+            JenkinsHttpControler http = new JenkinsHttpControler();
+            http.setUserName(st.getCiUserName());
+            http.setApiToken(st.getCiApiToken());
+            http.setScriptBatch(st.isCiScriptBatch());
+            controler = http;
+        } else {
+            controler = new JenkinsControler();
+        }
+        controler.setUrlPath(st.getCiUrl());
+        return controler;
+    }
+
+}
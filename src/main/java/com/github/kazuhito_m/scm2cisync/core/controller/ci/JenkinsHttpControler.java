@@ -0,0 +1,525 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.commons.io.ByteArrayBufferOutputStream;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Jenkins(CIサーバの一種)のコントロールを、Jenkins-cliではなくHTTP(REST API)で行うクラス。<br>
+ * 一操作が一リクエストで済み、接続はJDKのKeep-Aliveにより使い回される。
+ * CSRF対策のcrumbは初回に取得したものを使い回し、拒否された場合のみ取り直す。
+ * jobの作成・無効化・有効化は一件ずつRESTで行う。(scriptBatchを有効にした場合のみ、
+ * groovyスクリプトでまとめて行う。その場合は"Overall/RunScripts"(管理者相当)の権限が要る)
+ *
+ * @author Kazuhito Miura
+ */
+public class JenkinsHttpControler extends JenkinsControler {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 入出力の転送に使うバッファのサイズ。
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 認証時ユーザID(nullなら認証無し)
+     */
+    private String userName = null;
+
+    /**
+     * 認証時APIトークン(userNameの設定があった時のみ有効)
+     */
+    private String apiToken = null;
+
+    /**
+     * 取得済みのcrumb("ヘッダ名:値")。crumb不要なJenkinsなら空文字。未取得ならnull。
+     */
+    private String crumb = null;
+
+    /**
+     * crumb取得時に払い出されたセッションのCookie。
+     */
+    private String sessionCookie = null;
+
+    /**
+     * 接続・読み込みのタイムアウト(ミリ秒)。
+     */
+    private int timeoutMillis = 60 * 1000;
+
+    /**
+     * job変更群を"scriptText"(groovyスクリプト)でまとめて適用するか否か。
+     * 往復は減るが、"Overall/RunScripts"の権限が要る。falseなら一件ずつRESTで適用する。
+     */
+    private boolean scriptBatch = false;
+
+    /**
+     * Jenkinsサーバに現在登録されているすべてのJob名を、一件ずつconsumerへ渡す。<br>
+     * "api/xml?tree=jobs[name,color]"を一度呼ぶだけで取得する。
+     * 接続を使い回すため応答は一度読み切り、job名のListは作らずにStAXで読みながら渡す。
+     *
+     * @param consumer job名を受け取る処理。
+     * @throws IOException          何らかの入出力エラー
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public void enumerateJobNames(Consumer<String> consumer)
+            throws IOException, InterruptedException {
+
+        ByteArrayBufferOutputStream bos = new ByteArrayBufferOutputStream();
+        request("GET", "api/xml?tree=jobs%5Bname,color%5D", null, null, bos);
+
+        // <hudson><job><name>xxx</name><color>blue</color></job>...</hudson>
+        int count = 0;
+        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance()
+                    .createXMLStreamReader(bos.toInputStream());
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 3 && "name".equals(reader.getLocalName())) {
+                        consumer.accept(reader.getElementText());
+                        count++;
+                        depth--; // getElementText()で終了タグまで進むため。
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Jenkins returned broken job list.", e);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("api/xml result : " + count + " jobs.");
+        }
+
+    }
+
+    /**
+     * 指定されたJobを無効化する。
+     *
+     * @param jobName 無効化するjob名。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public void desibleJob(String jobName) throws MalformedURLException,
+            IOException, InterruptedException {
+        request("POST", jobPath(jobName) + "disable", null, null, null);
+    }
+
+    /**
+     * 指定されたJobを有効化する。
+     *
+     * @param jobName 有効化するjob名。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public void enableJob(String jobName) throws MalformedURLException,
+            IOException, InterruptedException {
+        request("POST", jobPath(jobName) + "enable", null, null, null);
+    }
+
+    /**
+     * 指定されたInputStreamからconfig.xmlファイルの内容を取得、Jobを追加する。
+     *
+     * @param jobName 追加するjob名。
+     * @param is      config.xmlの内容を取得できるInputStreamオブジェクト。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public void addJob(String jobName, InputStream is)
+            throws MalformedURLException, IOException, InterruptedException {
+        request("POST", "createItem?name=" + encode(jobName), "application/xml",
+                is, null);
+    }
+
+    /**
+     * 指定されたjobを削除する。
+     *
+     * @param jobName 削除するjob名。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー
+     * @throws InterruptedException  Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public void deleteJob(String jobName) throws MalformedURLException,
+            IOException, InterruptedException {
+        request("POST", jobPath(jobName) + "doDelete", null, null, null);
+    }
+
+    /**
+     * 複数のjobの新規作成・無効化・有効化を実行する。<br>
+     * 既定では"createItem"・"disable"・"enable"を一件ずつ(Keep-Aliveの接続で)呼ぶため、
+     * jobの作成・設定の権限だけで済む。scriptBatchが有効なら、groovyスクリプトでまとめて適用する。
+     * 一件の失敗で全体を止めず、一件ごとの成否を返す。
+     *
+     * @param mutations 変更のList。
+     * @return 引数と同じ順の、一件ごとの結果のList。
+     * @throws IOException          何らかの入出力エラー
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    public List<JobMutationResult> applyJobMutations(List<JobMutation> mutations)
+            throws IOException, InterruptedException {
+
+        if (scriptBatch) {
+            return super.applyJobMutations(mutations);
+        }
+
+        List<JobMutationResult> results =
+                new ArrayList<JobMutationResult>(mutations.size());
+        for (JobMutation m : mutations) {
+            String error = null;
+            try {
+                switch (m.getType()) {
+                    case CREATE:
+                        addJob(m.getJobName(),
+                                new ByteArrayInputStream(m.getConfig().getBytes(UTF_8)));
+                        break;
+                    case DISABLE:
+                        desibleJob(m.getJobName());
+                        break;
+                    default:
+                        enableJob(m.getJobName());
+                        break;
+                }
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+            results.add(new JobMutationResult(m, error));
+        }
+        return results;
+
+    }
+
+    /**
+     * 指定したjobの設定(config.xml)を取得し、OutputStreamへ出力する。
+     *
+     * @see JenkinsControler#fetchJobConfig(String, OutputStream)
+     */
+    @Override
+    protected void fetchJobConfig(String jobName, OutputStream os)
+            throws MalformedURLException, IOException, InterruptedException {
+        request("GET", jobPath(jobName) + "config.xml", null, null, os);
+    }
+
+    /**
+     * 指定したjobの設定(config.xml)を、InputStreamの内容で更新する。
+     *
+     * @see JenkinsControler#postJobConfig(String, InputStream)
+     */
+    @Override
+    protected void postJobConfig(String jobName, InputStream is)
+            throws MalformedURLException, IOException, InterruptedException {
+        request("POST", jobPath(jobName) + "config.xml", "application/xml", is,
+                null);
+    }
+
+    /**
+     * groovyスクリプトをJenkins上で実行する。"scriptText"へのPOST一回で行う。
+     *
+     * @param script groovyスクリプト。
+     * @param os     スクリプトの標準出力を受けるストリーム。
+     * @throws IOException          何らかの入出力エラー
+     * @throws InterruptedException Jenkinsに割り込みが入った場合の例外。
+     */
+    @Override
+    protected void runGroovyScript(String script, OutputStream os)
+            throws IOException, InterruptedException {
+        byte[] form = ("script=" + encode(script)).getBytes(UTF_8);
+        request("POST", "scriptText", "application/x-www-form-urlencoded",
+                new ByteArrayInputStream(form), os);
+    }
+
+    /**
+     * JenkinsへHTTPリクエストを送る。<br>
+     * POSTでcrumbを拒否(403)された場合のみ、crumbを取り直して一度だけ再送する。
+     *
+     * @param method      HTTPメソッド。
+     * @param path        JenkinsのURLからの相対パス。
+     * @param contentType 送信内容の種類。送信内容が無ければnull。
+     * @param body        送信内容。無ければnull。
+     * @param os          応答内容の出力先。不要ならnull(読み捨て)。
+     * @throws MalformedURLException URL指定が不全。
+     * @throws IOException           何らかの入出力エラー、または正常以外の応答。
+     */
+    protected void request(String method, String path, String contentType,
+                           InputStream body, OutputStream os)
+            throws MalformedURLException, IOException {
+
+        // 再送に備え、送信内容は一度だけ読んでおく。
+        byte[] bodyBytes = null;
+        if (body != null) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            copy(body, bos);
+            bodyBytes = bos.toByteArray();
+        }
+
+        boolean isPost = "POST".equals(method);
+        int status = send(method, path, contentType, bodyBytes, os, isPost);
+        if (status == HttpURLConnection.HTTP_FORBIDDEN && isPost) {
+            // crumbの期限切れ等。取り直して一度だけ再送。
+            crumb = null;
+            status = send(method, path, contentType, bodyBytes, os, true);
+        }
+        if (status >= 400) {
+            throw new IOException("Jenkins returned HTTP " + status + " : "
+                    + method + " " + path);
+        }
+
+    }
+
+    /**
+     * HTTPリクエストを一回送り、応答のステータスを返す。<br>
+     * 接続を使い回せるよう、応答内容は(エラー時も含め)必ず最後まで読み切る。
+     */
+    private int send(String method, String path, String contentType,
+                     byte[] body, OutputStream os, boolean withCrumb)
+            throws IOException {
+
+        HttpURLConnection con = openConnection(path);
+        con.setRequestMethod(method);
+        if (withCrumb) {
+            String c = getCrumb();
+            if (c.length() > 0) {
+                int sep = c.indexOf(':');
+                con.setRequestProperty(c.substring(0, sep), c.substring(sep + 1));
+            }
+        }
+        if (body != null) {
+            con.setDoOutput(true);
+            con.setRequestProperty("Content-Type", contentType + "; charset=UTF-8");
+            con.setFixedLengthStreamingMode(body.length);
+            OutputStream out = con.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        } else if ("POST".equals(method)) {
+            con.setDoOutput(true);
+            con.setFixedLengthStreamingMode(0);
+            con.getOutputStream().close();
+        }
+
+        int status = con.getResponseCode();
+        InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+        if (in != null) {
+            try {
+                copy(in, status >= 400 || os == null ? null : os);
+            } finally {
+                in.close();
+            }
+        }
+        return status;
+
+    }
+
+    /**
+     * 認証・Cookie等を設定済みの接続を作成する。
+     */
+    private HttpURLConnection openConnection(String path) throws IOException {
+        HttpURLConnection con =
+                (HttpURLConnection) new URL(baseUrl() + path).openConnection();
+        con.setConnectTimeout(timeoutMillis);
+        con.setReadTimeout(timeoutMillis);
+        con.setUseCaches(false);
+        con.setInstanceFollowRedirects(false);
+        if (userName != null && userName.length() > 0) {
+            String credential = userName + ":" + (apiToken == null ? "" : apiToken);
+            con.setRequestProperty("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credential.getBytes(UTF_8)));
+        }
+        if (sessionCookie != null) {
+            con.setRequestProperty("Cookie", sessionCookie);
+        }
+        return con;
+    }
+
+    /**
+     * crumb("ヘッダ名:値")を返す。未取得ならJenkinsから取得する。<br>
+     * crumbIssuerが無い(CSRF対策無効の)Jenkinsなら空文字を返す。
+     *
+     * @return crumb。不要なら空文字。
+     * @throws IOException 何らかの入出力エラー
+     */
+    protected synchronized String getCrumb() throws IOException {
+        if (crumb != null) {
+            return crumb;
+        }
+
+        HttpURLConnection con = openConnection("crumbIssuer/api/xml");
+        int status = con.getResponseCode();
+        InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        if (in != null) {
+            try {
+                copy(in, bos);
+            } finally {
+                in.close();
+            }
+        }
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            crumb = "";
+            return crumb;
+        }
+        if (status >= 400) {
+            throw new IOException("Jenkins returned HTTP " + status
+                    + " : GET crumbIssuer/api/xml");
+        }
+
+        // crumbはセッションに紐付くことがあるため、Cookieも控えておく。
+        String cookie = con.getHeaderField("Set-Cookie");
+        if (cookie != null) {
+            sessionCookie = cookie.split(";", 2)[0];
+        }
+
+        // <defaultCrumbIssuer><crumb>xxx</crumb><crumbRequestField>Jenkins-Crumb</crumbRequestField></defaultCrumbIssuer>
+        String field = null;
+        String value = null;
+        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance()
+                    .createXMLStreamReader(new ByteArrayInputStream(bos.toByteArray()));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if ("crumb".equals(reader.getLocalName())) {
+                        value = reader.getElementText();
+                    } else if ("crumbRequestField".equals(reader.getLocalName())) {
+                        field = reader.getElementText();
+                    }
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Jenkins returned broken crumb.", e);
+        }
+        if (field == null || value == null) {
+            throw new IOException("Jenkins returned no crumb.");
+        }
+        crumb = field + ":" + value;
+        return crumb;
+    }
+
+    /**
+     * 末尾が"/"で終わるJenkinsのURLを返す。
+     */
+    private String baseUrl() {
+        String url = getUrlPath();
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * job名から"job/xxx/"形式の相対パスを作る。
+     */
+    private String jobPath(String jobName) throws IOException {
+        return "job/" + encode(jobName) + "/";
+    }
+
+    /**
+     * URLのパス・クエリ用に文字列をエンコードする。
+     */
+    private String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+    }
+
+    /**
+     * InputStreamの内容をすべてOutputStreamへ写す。出力先がnullなら読み捨てる。
+     */
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            if (out != null) {
+                out.write(buf, 0, len);
+            }
+        }
+    }
+
+    // Getter/Setter群
+
+    /**
+     * @return the userName
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @param userName the userName to set
+     */
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    /**
+     * @return the apiToken
+     */
+    public String getApiToken() {
+        return apiToken;
+    }
+
+    /**
+     * @param apiToken the apiToken to set
+     */
+    public void setApiToken(String apiToken) {
+        this.apiToken = apiToken;
+    }
+
+    /**
+     * @return the scriptBatch
+     */
+    public boolean isScriptBatch() {
+        return scriptBatch;
+    }
+
+    /**
+     * @param scriptBatch the scriptBatch to set
+     */
+    public void setScriptBatch(boolean scriptBatch) {
+        this.scriptBatch = scriptBatch;
+    }
+
+    /**
+     * @return the timeoutMillis
+     */
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis the timeoutMillis to set
+     */
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 他のCI側コントローラを包み、job名一覧を手元の控え(JobNameSnapshot)から返すCI側コントローラ。<br>
+ * 控えが無い、または有効期間を過ぎている場合のみCIサーバから全量を取得し、控えを置き換える。
+ * このコントローラ経由で行ったjobの作成・削除は、その場で控えに反映する。
+ * (無効化・有効化ではjob名は変わらないため、控えはそのまま)
+ * コントロールjobの下位job一覧も、CIサーバ上にあると確かめた内容のハッシュを控え、
+ * 控えが有効期間内で同じ内容への更新なら、取得・更新とも行わない。
+ * 操作が失敗した場合は控えを信用できないため捨て、次回は全量を取得し直す。
+ *
+ * @author Kazuhito Miura
+ */
+public class SnapshotCiControler implements CiControler {
+
+    /**
+     * 実際にCIサーバを操作するコントローラ。
+     */
+    private final CiControler delegate;
+
+    /**
+     * job名一覧の控え。
+     */
+    private final JobNameSnapshot snapshot;
+
+    /**
+     * 全量取得からの、控えの有効期間(ミリ秒)。0なら常に取得、負数なら期限無し。
+     */
+    private final long maxAgeMillis;
+
+    /**
+     * デバッグ/情報表示用ログオブジェクト。
+     */
+    protected Log log = null;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate     実際にCIサーバを操作するコントローラ。
+     * @param snapshot     job名一覧の控え。
+     * @param maxAgeMillis 全量取得からの、控えの有効期間(ミリ秒)。0なら常に取得、負数なら期限無し。
+     */
+    public SnapshotCiControler(CiControler delegate, JobNameSnapshot snapshot,
+                               long maxAgeMillis) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public List<String> getJobNames() throws Exception {
+        List<String> names = new ArrayList<String>();
+        enumerateJobNames(names::add);
+        return names;
+    }
+
+    /**
+     * job名を一件ずつconsumerへ渡す。控えが使えればそこから、使えなければCIサーバから取得する。
+     *
+     * @param consumer job名を受け取る処理。
+     * @throws Exception すべての例外。
+     */
+    @Override
+    public void enumerateJobNames(final Consumer<String> consumer) throws Exception {
+        if (snapshot.isFresh(System.currentTimeMillis(), maxAgeMillis)) {
+            if (log != null && log.isDebugEnabled()) {
+                log.debug("ci job names from snapshot : " + snapshot.size() + " jobs.");
+            }
+            for (String name : snapshot.toList()) {
+                consumer.accept(name);
+            }
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long since = snapshot.beginEnumeration();
+        try {
+            final List<String> names = new ArrayList<String>();
+            delegate.enumerateJobNames(name -> {
+                names.add(name);
+                consumer.accept(name);
+            });
+            // 取得の最中に他の同期対象が行った作成・削除は、置き換えた後に反映し直される。
+            snapshot.replace(names, start, since);
+        } finally {
+            snapshot.endEnumeration();
+        }
+    }
+
+    public boolean updateManagingJobNamesForControlJob(String contJobName,
+                                                       List<String> manageTargetJobNames) throws Exception {
+        String hash = JobNameSnapshot.hashOf(manageTargetJobNames);
+        if (snapshot.isFresh(System.currentTimeMillis(), maxAgeMillis)
+                && hash.equals(snapshot.getChildJobsHash(contJobName))) {
+            if (log != null && log.isDebugEnabled()) {
+                log.debug("ci control job '" + contJobName + "' not changed (snapshot).");
+            }
+            return false;
+        }
+        boolean updated;
+        try {
+            updated = delegate.updateManagingJobNamesForControlJob(contJobName, manageTargetJobNames);
+        } catch (Exception e) {
+            snapshot.putChildJobsHash(contJobName, null);
+            throw e;
+        }
+        snapshot.putChildJobsHash(contJobName, hash);
+        return updated;
+    }
+
+    public void desibleJob(String jobName) throws Exception {
+        delegate.desibleJob(jobName);
+    }
+
+    public void enableJob(String jobName) throws Exception {
+        delegate.enableJob(jobName);
+    }
+
+    public void addJob(String jobName, InputStream is) throws Exception {
+        try {
+            delegate.addJob(jobName, is);
+        } catch (Exception e) {
+            snapshot.invalidate();
+            throw e;
+        }
+        snapshot.add(jobName);
+    }
+
+    public void deleteJob(String jobName) throws Exception {
+        try {
+            delegate.deleteJob(jobName);
+        } catch (Exception e) {
+            snapshot.invalidate();
+            throw e;
+        }
+        snapshot.remove(jobName);
+    }
+
+    public List<JobMutationResult> applyJobMutations(List<JobMutation> mutations)
+            throws Exception {
+        List<JobMutationResult> results;
+        try {
+            results = delegate.applyJobMutations(mutations);
+        } catch (Exception e) {
+            snapshot.invalidate();
+            throw e;
+        }
+        for (JobMutationResult result : results) {
+            if (!result.isSucceed()) {
+                // 手元の一覧とCIサーバが食い違っている可能性がある。
+                snapshot.invalidate();
+                break;
+            }
+            if (result.getMutation().getType() == JobMutation.Type.CREATE) {
+                snapshot.add(result.getMutation().getJobName());
+            }
+        }
+        return results;
+    }
+
+    public void close() throws Exception {
+        delegate.close();
+    }
+
+    /**
+     * @return 実際にCIサーバを操作するコントローラ。
+     */
+    public CiControler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return job名一覧の控え。
+     */
+    public JobNameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Getter/Setter群
+
+    public void setLog(Log log) {
+        this.log = log;
+        delegate.setLog(log);
+    }
+
+    public String getUrlPath() {
+        return delegate.getUrlPath();
+    }
+
+    public void setUrlPath(String urlPath) {
+        delegate.setUrlPath(urlPath);
+    }
+
+}
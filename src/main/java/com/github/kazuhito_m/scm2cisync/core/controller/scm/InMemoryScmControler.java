@@ -0,0 +1,72 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.InMemoryUrl;
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * メモリ上のSCMリポジトリ(InMemoryScmRepository)を相手にするSCM側コントローラ。<br>
+ * 一操作ごとにリポジトリに設定された遅延を入れ、サーバとの往復を模す。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryScmControler implements ScmControler {
+
+    /**
+     * デバッグ/情報表示用ログオブジェクト。
+     */
+    protected Log log = null;
+
+    /**
+     * リポジトリを指すURL文字列
+     */
+    private String urlPath = null;
+
+    public List<String> getDirNameList(long revisionNo) throws Exception {
+        InMemoryScmRepository repository = getRepository();
+        InMemoryUrl.sleep(repository.getLatencyMillis());
+        return new ArrayList<String>(repository.getDirNames(revisionNo));
+    }
+
+    public DirectoryDelta getDirectoryDeltaByLog(long fromRevisionNo,
+                                                 long toRevisionNo) throws Exception {
+        if (toRevisionNo <= fromRevisionNo) {
+            return DirectoryDelta.empty();
+        }
+        InMemoryScmRepository repository = getRepository();
+        InMemoryUrl.sleep(repository.getLatencyMillis());
+        return DirectoryDelta.diff(repository.getDirNames(fromRevisionNo),
+                repository.getDirNames(toRevisionNo));
+    }
+
+    public long getHeadRevisionNo() throws Exception {
+        InMemoryScmRepository repository = getRepository();
+        InMemoryUrl.sleep(repository.getLatencyMillis());
+        return repository.getHeadRevision();
+    }
+
+    /**
+     * @return 接続先のリポジトリ。
+     */
+    public InMemoryScmRepository getRepository() {
+        return InMemoryScmRepository.of(urlPath);
+    }
+
+    // Getter/Setter群
+
+    public void setLog(Log log) {
+        this.log = log;
+    }
+
+    public String getUrlPath() {
+        return urlPath;
+    }
+
+    public void setUrlPath(String urlPath) {
+        this.urlPath = urlPath;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * scmTypeが"InMemory"の場合に、InMemoryScmControlerを提供するクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryScmControlerProvider implements ScmControlerProvider {
+
+    public boolean supports(String scmType) {
+        return "InMemory".equalsIgnoreCase(scmType);
+    }
+
+    public ScmControler create(SynchronizeTarget st) {
+        InMemoryScmControler controler = new InMemoryScmControler();
+        controler.setUrlPath(st.getScmUrl());
+        return controler;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.InMemoryUrl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * メモリ上のSCMリポジトリ。基点直下のディレクトリ名一覧をリビジョンごとに保持する。<br>
+ * 名前ごとにVM内で共有され、InMemoryScmControlerから参照される。
+ * オフラインでの性能計測・負荷試験用。
+ *
+ * @author Kazuhito Miura
+ */
+public class InMemoryScmRepository {
+
+    /**
+     * 初期ディレクトリ数を指定するクエリのキー。
+     */
+    public static final String DIRS = "dirs";
+
+    private static final ConcurrentMap<String, InMemoryScmRepository> REPOSITORIES =
+            new ConcurrentHashMap<String, InMemoryScmRepository>();
+
+    /**
+     * リビジョンごとのディレクトリ名一覧(ソート済み)。添字がリビジョン番号。(0は空)
+     */
+    private final List<List<String>> revisions = new ArrayList<List<String>>();
+
+    /**
+     * 一操作ごとに入れる人工的な遅延(ミリ秒)。
+     */
+    private volatile long latencyMillis = 0;
+
+    private InMemoryScmRepository() {
+        revisions.add(Collections.<String>emptyList());
+    }
+
+    /**
+     * URLの名前に対応するリポジトリを返す。無ければ作成し、URLのクエリに従い初期化する。<br>
+     * クエリ:"dirs"=初期ディレクトリ数(リビジョン1としてコミット)、"latencyMillis"=遅延。
+     *
+     * @param url 接続先URL。
+     * @return リポジトリ。
+     */
+    public static InMemoryScmRepository of(String url) {
+        InMemoryUrl parsed = new InMemoryUrl(url);
+        InMemoryScmRepository repository = REPOSITORIES.get(parsed.getName());
+        if (repository == null) {
+            InMemoryScmRepository created = new InMemoryScmRepository();
+            int dirs = (int) parsed.getLong(DIRS, 0);
+            if (dirs > 0) {
+                List<String> names = new ArrayList<String>(dirs);
+                for (int i = 1; i <= dirs; i++) {
+                    names.add(InMemoryUrl.seedName(i));
+                }
+                created.commit(names, Collections.<String>emptyList());
+            }
+            repository = REPOSITORIES.putIfAbsent(parsed.getName(), created);
+            if (repository == null) {
+                repository = created;
+            }
+        }
+        repository.setLatencyMillis(parsed.getLong(InMemoryUrl.LATENCY_MILLIS,
+                repository.getLatencyMillis()));
+        return repository;
+    }
+
+    /**
+     * すべてのリポジトリを破棄する。
+     */
+    public static void clear() {
+        REPOSITORIES.clear();
+    }
+
+    /**
+     * ディレクトリの追加・削除をコミットし、新しいリビジョンを作る。
+     *
+     * @param added   追加するディレクトリ名。
+     * @param deleted 削除するディレクトリ名。
+     * @return 新しいリビジョン番号。
+     */
+    public synchronized long commit(Collection<String> added, Collection<String> deleted) {
+        TreeSet<String> names = new TreeSet<String>(revisions.get(revisions.size() - 1));
+        names.addAll(added);
+        names.removeAll(deleted);
+        revisions.add(Collections.unmodifiableList(new ArrayList<String>(names)));
+        return revisions.size() - 1;
+    }
+
+    /**
+     * @return 最新リビジョン番号。
+     */
+    public synchronized long getHeadRevision() {
+        return revisions.size() - 1;
+    }
+
+    /**
+     * 指定リビジョンのディレクトリ名一覧を返す。
+     *
+     * @param revisionNo リビジョン番号。0以下なら最新。
+     * @return ディレクトリ名一覧。(ソート済み、変更不可)
+     * @throws IllegalArgumentException 存在しないリビジョンの場合。
+     */
+    public synchronized List<String> getDirNames(long revisionNo) {
+        if (revisionNo <= 0) {
+            return revisions.get(revisions.size() - 1);
+        }
+        if (revisionNo >= revisions.size()) {
+            throw new IllegalArgumentException("no such revision : " + revisionNo);
+        }
+        return revisions.get((int) revisionNo);
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+}
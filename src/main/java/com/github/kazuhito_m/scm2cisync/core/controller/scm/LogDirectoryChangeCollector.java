@@ -0,0 +1,132 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * SVNのログ(変更パス付き)を古い順に受け取り、
+ * 基点ディレクトリ直下の「追加・削除」だけを集計するハンドラ。<br>
+ * 期間内に追加→削除されたものは相殺し、削除→追加されたものは「変更無し」とみなす。
+ *
+ * @author Kazuhito Miura
+ */
+public class LogDirectoryChangeCollector implements ISVNLogEntryHandler {
+
+    /**
+     * 基点ディレクトリのリポジトリルートからのパス(例:"/scenario/trunk")。
+     */
+    private final String basePath;
+
+    /**
+     * 期間内に追加されたディレクトリ名。
+     */
+    private final Set<String> addedNames = new TreeSet<String>();
+
+    /**
+     * 期間内に削除されたディレクトリ名。
+     */
+    private final Set<String> deletedNames = new TreeSet<String>();
+
+    /**
+     * 基点ディレクトリ自身(or その親)が追加・置換・削除されたか否か。
+     */
+    private boolean baseReplaced = false;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param basePath 基点ディレクトリのリポジトリルートからのパス。
+     */
+    public LogDirectoryChangeCollector(String basePath) {
+        String path = basePath.startsWith("/") ? basePath : "/" + basePath;
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        this.basePath = path;
+    }
+
+    /**
+     * ログ一件(1リビジョン分)を集計に反映する。
+     *
+     * @see org.tmatesoft.svn.core.ISVNLogEntryHandler#handleLogEntry(org.tmatesoft.svn.core.SVNLogEntry)
+     */
+    public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
+        if (logEntry.getChangedPaths() == null) {
+            return;
+        }
+        // 同一リビジョン内はパス順で処理する。
+        TreeMap<String, SVNLogEntryPath> paths =
+                new TreeMap<String, SVNLogEntryPath>(logEntry.getChangedPaths());
+        for (SVNLogEntryPath entryPath : paths.values()) {
+            handleChangedPath(entryPath.getPath(), entryPath.getType());
+        }
+    }
+
+    /**
+     * 変更パス一件を集計に反映する。
+     *
+     * @param path 変更されたパス(リポジトリルートから)。
+     * @param type 変更種別(SVNLogEntryPath.TYPE_XXX)。
+     */
+    protected void handleChangedPath(String path, char type) {
+        if (type == SVNLogEntryPath.TYPE_MODIFIED) {
+            return;
+        }
+        // 基点そのもの、またはその親が付け替えられた場合はログでは追えない。
+        if (path.equals(basePath) || basePath.startsWith(path + "/")
+                || path.equals("/")) {
+            baseReplaced = true;
+            return;
+        }
+        String prefix = basePath.equals("/") ? "/" : basePath + "/";
+        if (!path.startsWith(prefix)) {
+            return;
+        }
+        String name = path.substring(prefix.length());
+        if (name.length() == 0 || name.indexOf('/') >= 0) {
+            // 直下以外(孫以下)の変更は対象外。
+            return;
+        }
+
+        if (type == SVNLogEntryPath.TYPE_ADDED) {
+            // 期間内に削除されていたものが戻ったなら、期間の前後で変化無し。
+            if (!deletedNames.remove(name)) {
+                addedNames.add(name);
+            }
+        } else if (type == SVNLogEntryPath.TYPE_DELETED) {
+            // 期間内に追加されたものが消えたなら、期間の前後で変化無し。
+            if (!addedNames.remove(name)) {
+                deletedNames.add(name);
+            }
+        }
+        // TYPE_REPLACED は「前後とも存在する」ため、集計に影響しない。
+    }
+
+    /**
+     * 基点ディレクトリ自身が付け替えられ、ログからの集計が信用できないか否か。
+     *
+     * @return 付け替えあり:true。
+     */
+    public boolean isBaseReplaced() {
+        return baseReplaced;
+    }
+
+    /**
+     * 集計結果を返す。
+     *
+     * @return 追加・削除されたディレクトリ名(名前順)。
+     */
+    public DirectoryDelta getDirectoryDelta() {
+        return new DirectoryDelta(new ArrayList<String>(addedNames),
+                new ArrayList<String>(deletedNames));
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SCM(ソース管理システム)のコントロールを行うクラスの共通インタフェース。<br>
+ * 実装はScmControlerProviderを通じて、設定値のscmTypeにより選ばれる。
+ *
+ * @author Kazuhito Miura
+ */
+public interface ScmControler {
+
+    /**
+     * 基点ディレクトリの直下のディレクトリの一覧を返す。
+     *
+     * @param revisionNo 取得するディレクトリのリビジョン。0を指定した場合は「最新取得」と解釈する。
+     * @return ディレクトリ名が文字列要素となったListオブジェクト。
+     * @throws Exception すべての例外。
+     */
+    List<String> getDirNameList(long revisionNo) throws Exception;
+
+    /**
+     * 二つのリビジョンの、基点ディレクトリの直下のディレクトリの一覧を返す。<br>
+     * 既定の実装は順番に取得する。並行して取得できる実装は上書きする。
+     *
+     * @param revisionNo      一つ目のリビジョン。0なら「最新取得」。
+     * @param otherRevisionNo 二つ目のリビジョン。0なら「最新取得」。
+     * @return 引数の順の、ディレクトリ名一覧二つ。
+     * @throws Exception すべての例外。
+     */
+    default List<List<String>> getDirNameLists(long revisionNo, long otherRevisionNo)
+            throws Exception {
+        return Arrays.asList(getDirNameList(revisionNo), getDirNameList(otherRevisionNo));
+    }
+
+    /**
+     * 指定したリビジョンより後、toRevisionNoまでに直下で追加・削除されたディレクトリを、変更履歴から求める。
+     *
+     * @param fromRevisionNo 対象とするリビジョン。この番号より後の変更だけを対象とする。
+     * @param toRevisionNo   変更を追う最後のリビジョン(通常はHEAD)。
+     * @return 追加・削除されたディレクトリ名。
+     * @throws Exception すべての例外。
+     */
+    DirectoryDelta getDirectoryDeltaByLog(long fromRevisionNo, long toRevisionNo)
+            throws Exception;
+
+    /**
+     * 基点ディレクトリの「現在のリビジョン番号」を返す。
+     *
+     * @return 最新リビジョン番号。
+     * @throws Exception すべての例外。
+     */
+    long getHeadRevisionNo() throws Exception;
+
+    /**
+     * Logオブジェクトのセット。
+     *
+     * @param log the log to set
+     */
+    void setLog(Log log);
+
+    /**
+     * @return the urlPath
+     */
+    String getUrlPath();
+
+    /**
+     * @param urlPath the urlPath to set
+     */
+    void setUrlPath(String urlPath);
+
+}
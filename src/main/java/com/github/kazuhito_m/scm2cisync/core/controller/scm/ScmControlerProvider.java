@@ -0,0 +1,29 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * ScmControlerの実装を提供するクラスのインタフェース。(java.util.ServiceLoaderで読み込む)<br>
+ * 実装クラスは"META-INF/services/"にこのインタフェース名のファイルを置き、登録する。
+ *
+ * @author Kazuhito Miura
+ */
+public interface ScmControlerProvider {
+
+    /**
+     * 設定値のscmTypeを扱えるか否か。
+     *
+     * @param scmType SCMのタイプ。(大文字小文字は区別しないこと)
+     * @return 扱える:true。
+     */
+    boolean supports(String scmType);
+
+    /**
+     * 設定値に従い、接続先・認証情報等を設定済みのコントローラを作成する。
+     *
+     * @param st 設定値オブジェクト。
+     * @return SCM側コントローラ。
+     */
+    ScmControler create(SynchronizeTarget st);
+
+}
@@ -1,5 +1,6 @@
 package com.github.kazuhito_m.scm2cisync.core.controller.scm;
 
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
 import org.apache.maven.plugin.logging.Log;
 import org.tmatesoft.svn.core.ISVNDirEntryHandler;
 import org.tmatesoft.svn.core.SVNDirEntry;
@@ -7,12 +8,15 @@ import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.BasicAuthenticationManager;
 import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.wc.*;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import static org.tmatesoft.svn.core.wc.SVNRevision.HEAD;
 
@@ -21,7 +25,12 @@ import static org.tmatesoft.svn.core.wc.SVNRevision.HEAD;
  *
  * @author Kazuhito Miura
  */
-public class SubversionControler {
+public class SubversionControler implements ScmControler {
+
+    // DAV(http/https)プロトコルの登録は、クラスロード時に一度だけ行う。
+    static {
+        DAVRepositoryFactory.setup();
+    }
 
     /**
      * デバッグ/情報表示用ログオブジェクト。
@@ -48,6 +57,11 @@ public class SubversionControler {
      */
     private String password = null;
 
+    /**
+     * 接続を使い回すためのプール。nullなら呼び出しごとに接続を作成・解放する。
+     */
+    private SvnSessionPool sessionPool = null;
+
     /**
      * Subversionディレクトリの直下のディレクトリの一覧を返す。
      *
@@ -60,26 +74,30 @@ public class SubversionControler {
         final List<String> dirNameList = new ArrayList<String>();
 
         // SVNに接続準備
-        DAVRepositoryFactory.setup();
-        SVNClientManager manager = this.createOptimizedClientManager();
+        SVNClientManager manager = this.acquireClientManager();
+        try {
 
-        // "svn list"コマンドのエミュレーションはLogCliantで。
-        SVNLogClient client = manager.getLogClient();
+            // "svn list"コマンドのエミュレーションはLogCliantで。
+            SVNLogClient client = manager.getLogClient();
 
-        // 指定リビジョンが 0以上なら
-        SVNRevision rev = HEAD;
-        if (revisionNo > 0) {
-            rev = SVNRevision.create(revisionNo);
-        }
+            // 指定リビジョンが 0以上なら
+            SVNRevision rev = HEAD;
+            if (revisionNo > 0) {
+                rev = SVNRevision.create(revisionNo);
+            }
 
-        // コマンド実行(リビジョンは最大)
-        SVNURL url = SVNURL.parseURIEncoded(urlPath);
-        client.doList(url, HEAD, rev, false, new ISVNDirEntryHandler() {
+            // コマンド実行(リビジョンは最大)
+            SVNURL url = SVNURL.parseURIEncoded(urlPath);
+            client.doList(url, HEAD, rev, false, new ISVNDirEntryHandler() {
 
-            public void handleDirEntry(SVNDirEntry svnDir) throws SVNException {
-                dirNameList.add(svnDir.getName()); // ハンドラでは結果リストに名前だけ足す。
-            }
-        });
+                public void handleDirEntry(SVNDirEntry svnDir) throws SVNException {
+                    dirNameList.add(svnDir.getName()); // ハンドラでは結果リストに名前だけ足す。
+                }
+            });
+
+        } finally {
+            this.releaseClientManager(manager);
+        }
 
         // 「ディレクトリの名前だけリスト」を返す。
         return dirNameList;
@@ -98,29 +116,87 @@ public class SubversionControler {
     }
 
     /**
-     * Subversionディレクトリの直下のディレクトリで、 引数に指定されたリビジョン番号より後に追加されたディレクトリの一覧を返す。<br>
+     * Subversionディレクトリの直下のディレクトリで、
+     * 引数に指定されたリビジョン番号より後に追加・削除されたディレクトリを一度に返す。<br>
+     * 指定リビジョンと最新の一覧は並行して取得し、整列後の突き合わせで差分を求める。
      *
-     * @param fromRevisionNo 対象とするリビジョン。この番号より後に追加されたものだけを対象とする。
-     * @return ディレクトリ名が文字列要素となったListオブジェクト。
+     * @param fromRevisionNo 対象とするリビジョン。この番号より後の変更だけを対象とする。
+     * @return 追加・削除されたディレクトリ名。
      * @throws SVNException
      */
-    public List<String> getAddedDirNameList(long fromRevisionNo)
+    public DirectoryDelta getDirectoryDelta(final long fromRevisionNo)
             throws SVNException {
+        List<List<String>> lists = getDirNameLists(fromRevisionNo, 0L);
+        return DirectoryDelta.diff(lists.get(0), lists.get(1));
+    }
 
-        // 指定リビジョンのリストと最新のリストをSet型で取得しておく
-        List<String> lastNames = this.getDirNameList(fromRevisionNo);
-        Set<String> headNames = new HashSet<String>(this.getDirNameList());
+    /**
+     * 二つのリビジョンの、Subversionディレクトリの直下のディレクトリの一覧を並行して返す。<br>
+     * 一つ目は別スレッドで、二つ目はこのスレッドで取得する。
+     * 途中で失敗した場合(実行時例外も含む)は、もう一方の取得も取り消す。
+     *
+     * @param revisionNo      一つ目のリビジョン。0なら「最新取得」。
+     * @param otherRevisionNo 二つ目のリビジョン。0なら「最新取得」。
+     * @return 引数の順の、ディレクトリ名一覧二つ。
+     * @throws SVNException
+     */
+    public List<List<String>> getDirNameLists(final long revisionNo, long otherRevisionNo)
+            throws SVNException {
 
-        for (String name : lastNames) {
-            // 存在した場合、その最新セットから削除
-            if (headNames.contains(name)) {
-                headNames.remove(name);
+        // 一つ目の一覧は別スレッドで取得しておく。
+        FutureTask<List<String>> task = new FutureTask<List<String>>(
+                new Callable<List<String>>() {
+                    public List<String> call() throws SVNException {
+                        return getDirNameList(revisionNo);
+                    }
+                });
+        Thread thread = new Thread(task, "svn-list-r" + revisionNo);
+        thread.setDaemon(true);
+        thread.start();
+
+        boolean completed = false;
+        try {
+            // 二つ目の一覧はこのスレッドで。
+            List<String> otherNames = this.getDirNameList(otherRevisionNo);
+
+            // 両方揃ったら返す。
+            List<String> names;
+            try {
+                names = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while listing rev:"
+                        + revisionNo, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+            completed = true;
+            return Arrays.asList(names, otherNames);
+        } finally {
+            if (!completed) {
+                task.cancel(true);
             }
         }
 
-        // 「ディレクトリの名前だけリスト」を返す。
-        return new ArrayList<String>(headNames);
+    }
 
+    /**
+     * Subversionディレクトリの直下のディレクトリで、 引数に指定されたリビジョン番号より後に追加されたディレクトリの一覧を返す。<br>
+     *
+     * @param fromRevisionNo 対象とするリビジョン。この番号より後に追加されたものだけを対象とする。
+     * @return ディレクトリ名が文字列要素となったListオブジェクト。
+     * @throws SVNException
+     * @see #getDirectoryDelta(long)
+     */
+    public List<String> getAddedDirNameList(long fromRevisionNo)
+            throws SVNException {
+        return getDirectoryDelta(fromRevisionNo).getAddedNames();
     }
 
     /**
@@ -129,24 +205,64 @@ public class SubversionControler {
      * @param fromRevisionNo 対象とするリビジョン。この番号より後に削除されたものだけを対象とする。
      * @return ディレクトリ名が文字列要素となったListオブジェクト。
      * @throws SVNException
+     * @see #getDirectoryDelta(long)
      */
     public List<String> getDeletedDirNameList(long fromRevisionNo)
             throws SVNException {
+        return getDirectoryDelta(fromRevisionNo).getDeletedNames();
+    }
 
-        // 指定リビジョンのリストと最新のリストをSet型で取得しておく
-        Set<String> lastNames = new HashSet<String>(
-                this.getDirNameList(fromRevisionNo));
-        List<String> headNames = this.getDirNameList();
+    /**
+     * SVNのログ(変更パス付き)を読み、指定リビジョンより後に
+     * 直下へ追加・削除されたディレクトリを返す。<br>
+     * 一覧を2回取得する方式と異なり、コストはディレクトリ数ではなくコミット数に比例する。
+     * 基点ディレクトリ自身が付け替えられていた場合は、一覧の比較による方式へ切り替える。
+     *
+     * @param fromRevisionNo 対象とするリビジョン。この番号より後の変更だけを対象とする。
+     * @param toRevisionNo   変更を追う最後のリビジョン(通常はHEAD)。
+     * @return 追加・削除されたディレクトリ名。
+     * @throws SVNException
+     */
+    public DirectoryDelta getDirectoryDeltaByLog(long fromRevisionNo,
+                                                 long toRevisionNo) throws SVNException {
 
-        for (String name : headNames) {
-            // 存在した場合、その最新セットから削除
-            if (lastNames.contains(name)) {
-                lastNames.remove(name);
+        if (toRevisionNo <= fromRevisionNo) {
+            return DirectoryDelta.empty();
+        }
+
+        LogDirectoryChangeCollector collector;
+
+        // SVNに接続準備
+        SVNClientManager manager = this.acquireClientManager();
+        try {
+
+            // ログのパスはリポジトリルートからのものなので、基点の位置を求める。
+            SVNURL url = SVNURL.parseURIEncoded(urlPath);
+            SVNRepository repository = manager.createRepository(url, true);
+            String rootPath = repository.getRepositoryRoot(true).getPath();
+            collector = new LogDirectoryChangeCollector(
+                    url.getPath().substring(rootPath.length()));
+
+            // "svn log -v -r from+1:to"のエミュレーション。古い順に受け取る。
+            SVNRevision end = SVNRevision.create(toRevisionNo);
+            manager.getLogClient().doLog(url, new String[]{""}, end,
+                    SVNRevision.create(fromRevisionNo + 1), end,
+                    false, true, 0, collector);
+
+        } finally {
+            this.releaseClientManager(manager);
+        }
+
+        if (collector.isBaseReplaced()) {
+            if (log != null) {
+                log.info("scm base directory replaced between rev:"
+                        + fromRevisionNo + " and rev:" + toRevisionNo
+                        + ". fall back to directory listing.");
             }
+            return getDirectoryDelta(fromRevisionNo);
         }
 
-        // 「ディレクトリの名前だけリスト」を返す。
-        return new ArrayList<String>(lastNames);
+        return collector.getDirectoryDelta();
 
     }
 
@@ -159,20 +275,50 @@ public class SubversionControler {
     public long getHeadRevisionNo() throws SVNException {
 
         // SVNに接続準備
-        DAVRepositoryFactory.setup();
-        SVNClientManager manager = this.createOptimizedClientManager();
+        SVNClientManager manager = this.acquireClientManager();
+        try {
+
+            SVNURL url = SVNURL.parseURIEncoded(urlPath);
 
-        SVNURL url = SVNURL.parseURIEncoded(urlPath);
+            // "svn list"コマンドのエミュレーションはLogCliantで。
+            SVNWCClient client = manager.getWCClient();
 
-        // "svn list"コマンドのエミュレーションはLogCliantで。
-        SVNWCClient client = manager.getWCClient();
+            // コマンド実行(リビジョンは最大)
+            SVNInfo info = client.doInfo(url, HEAD, HEAD);
 
-        // コマンド実行(リビジョンは最大)
-        SVNInfo info = client.doInfo(url, HEAD, HEAD);
+            // リビジョン番号を返す。
+            return info.getRevision().getNumber();
+
+        } finally {
+            this.releaseClientManager(manager);
+        }
+
+    }
 
-        // リビジョン番号を返す。
-        return info.getRevision().getNumber();
+    /**
+     * 接続(SVNClientManager)を取得する。<br>
+     * プールが設定されていればそこから借り、なければ新規に作成する。
+     *
+     * @return 利用可能なSVNClientManager。
+     */
+    protected SVNClientManager acquireClientManager() {
+        if (sessionPool != null) {
+            return sessionPool.borrow(this);
+        }
+        return this.createOptimizedClientManager();
+    }
 
+    /**
+     * acquireClientManager()で取得した接続を返却(or解放)する。
+     *
+     * @param manager 取得した接続。
+     */
+    protected void releaseClientManager(SVNClientManager manager) {
+        if (sessionPool != null) {
+            sessionPool.release(this, manager);
+        } else if (manager != null) {
+            manager.dispose();
+        }
     }
 
     /**
@@ -265,4 +411,18 @@ public class SubversionControler {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    /**
+     * @return sessionPool
+     */
+    public SvnSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * @param sessionPool セットする sessionPool
+     */
+    public void setSessionPool(SvnSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
 }
@@ -0,0 +1,25 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * scmTypeが"Subversion"(または"svn")の場合に、SubversionControlerを提供するクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SubversionControlerProvider implements ScmControlerProvider {
+
+    public boolean supports(String scmType) {
+        return "Subversion".equalsIgnoreCase(scmType) || "svn".equalsIgnoreCase(scmType);
+    }
+
+    public ScmControler create(SynchronizeTarget st) {
+        SubversionControler controler = new SubversionControler();
+        controler.setUrlPath(st.getScmUrl());
+        controler.setAuthType(st.getScmAuthType());
+        controler.setUserName(st.getScmUserName());
+        controler.setPassword(st.getScmPassword());
+        return controler;
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Subversionへの接続(SVNClientManager)を使い回すためのプール。<br>
+ * 接続先URLと認証情報の組をキーとし、借りて(borrow)返す(release)形で利用する。
+ * SVNClientManagerはスレッドセーフではないため、一度に一つの利用者にしか貸し出さない。
+ * 一定時間使われなかった接続は破棄し、最後にdispose()ですべて解放する。
+ *
+ * @author Kazuhito Miura
+ */
+public class SvnSessionPool {
+
+    /**
+     * 未使用の接続を保持しておく時間(ミリ秒)の省略値。
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60 * 1000L;
+
+    /**
+     * キーごとの未使用接続群。先頭ほど最近返されたもの。
+     */
+    private final Map<String, Deque<IdleSession>> idleSessions =
+            new HashMap<String, Deque<IdleSession>>();
+
+    /**
+     * 未使用の接続を保持しておく時間(ミリ秒)。
+     */
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    /**
+     * 破棄済みか否か。
+     */
+    private boolean disposed = false;
+
+    /**
+     * 指定されたコントローラの接続先・認証情報に合う接続を借りる。<br>
+     * 未使用のものが無ければ、コントローラに作成させる。
+     *
+     * @param controler 接続先・認証情報を持つコントローラ。
+     * @return 利用可能なSVNClientManager。
+     */
+    public SVNClientManager borrow(SubversionControler controler) {
+        String key = createKey(controler);
+        evictIdle();
+        synchronized (this) {
+            Deque<IdleSession> sessions = idleSessions.get(key);
+            if (sessions != null && !sessions.isEmpty()) {
+                return sessions.pollFirst().manager;
+            }
+        }
+        // 新規接続の作成はロックの外で。
+        return controler.createOptimizedClientManager();
+    }
+
+    /**
+     * 借りた接続を返す。破棄済みのプールに返された場合、その場で解放する。
+     *
+     * @param controler 借りた際のコントローラ。
+     * @param manager   返す接続。
+     */
+    public void release(SubversionControler controler, SVNClientManager manager) {
+        if (manager == null) {
+            return;
+        }
+        String key = createKey(controler);
+        synchronized (this) {
+            if (!disposed) {
+                Deque<IdleSession> sessions = idleSessions.get(key);
+                if (sessions == null) {
+                    sessions = new ArrayDeque<IdleSession>();
+                    idleSessions.put(key, sessions);
+                }
+                sessions.addFirst(new IdleSession(manager, currentTimeMillis()));
+                manager = null;
+            }
+        }
+        if (manager != null) {
+            manager.dispose();
+        }
+        evictIdle();
+    }
+
+    /**
+     * 保持時間を過ぎた未使用の接続を破棄する。
+     */
+    public void evictIdle() {
+        List<SVNClientManager> expired = new ArrayList<SVNClientManager>();
+        synchronized (this) {
+            long limit = currentTimeMillis() - idleTimeoutMillis;
+            Iterator<Deque<IdleSession>> it = idleSessions.values().iterator();
+            while (it.hasNext()) {
+                Deque<IdleSession> sessions = it.next();
+                // 末尾ほど古いので、末尾から見ていく。
+                while (!sessions.isEmpty() && sessions.peekLast().lastUsed < limit) {
+                    expired.add(sessions.pollLast().manager);
+                }
+                if (sessions.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        for (SVNClientManager manager : expired) {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * プール中の未使用接続をすべて解放する。以降に返された接続はその場で解放される。
+     */
+    public void dispose() {
+        List<SVNClientManager> all = new ArrayList<SVNClientManager>();
+        synchronized (this) {
+            disposed = true;
+            for (Deque<IdleSession> sessions : idleSessions.values()) {
+                for (IdleSession session : sessions) {
+                    all.add(session.manager);
+                }
+            }
+            idleSessions.clear();
+        }
+        for (SVNClientManager manager : all) {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * 現在プール中にある未使用接続の数を返す。
+     *
+     * @return 未使用接続の数。
+     */
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (Deque<IdleSession> sessions : idleSessions.values()) {
+            count += sessions.size();
+        }
+        return count;
+    }
+
+    /**
+     * 現在時刻(ミリ秒)を返す。テスト時に差し替えられるよう切り出している。
+     *
+     * @return 現在時刻(ミリ秒)。
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * コントローラの接続先・認証情報からプールのキーを作成する。
+     *
+     * @param controler コントローラ。
+     * @return キー文字列。
+     */
+    private String createKey(SubversionControler controler) {
+        return controler.getUrlPath() + "\n" + controler.getAuthType() + "\n"
+                + controler.getUserName() + "\n" + controler.getPassword();
+    }
+
+    // Getter/Setter群
+
+    /**
+     * @return the idleTimeoutMillis
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * @param idleTimeoutMillis the idleTimeoutMillis to set
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * プール中の未使用接続一件。
+     */
+    private static class IdleSession {
+
+        private final SVNClientManager manager;
+
+        private final long lastUsed;
+
+        IdleSession(SVNClientManager manager, long lastUsed) {
+            this.manager = manager;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+}
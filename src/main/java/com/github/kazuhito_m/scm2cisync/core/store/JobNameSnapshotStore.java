@@ -0,0 +1,209 @@
+package com.github.kazuhito_m.scm2cisync.core.store;
+
+import com.github.kazuhito_m.commons.io.PrefixCompressedStringCodec;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * CIサーバごとのjob名一覧の控え(JobNameSnapshot)を、ファイルへ読み書きするクラス。<br>
+ * ファイルは指定ディレクトリにCIサーバのURLごとに一つで、
+ * 形式は「識別子+版数+URL+全量取得時刻+job名一覧(前方一致部分を省略した形)
+ * +コントロールjobごとの下位job一覧のハッシュ+CRC32」のバイナリ。(版数1はハッシュ無し)
+ * 読み込んだ控えはこのオブジェクト内で保持し、同じCIを向いた同期対象間で同じものを返す。
+ *
+ * @author Kazuhito Miura
+ */
+public class JobNameSnapshotStore {
+
+    /**
+     * ファイル先頭の識別子。
+     */
+    private static final byte[] MAGIC = {'S', '2', 'C', 'J'};
+
+    /**
+     * 形式の版数。
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 読み込み済みの控え。(キーはファイルの絶対パス)
+     */
+    private final Map<String, JobNameSnapshot> snapshots =
+            new HashMap<String, JobNameSnapshot>();
+
+    /**
+     * 指定CIサーバの控えを返す。初回はファイルから読み込み、無ければ(または壊れていれば)空の控えを作る。
+     *
+     * @param dir   控えを保存するディレクトリ。
+     * @param ciUrl CIサーバのURL。
+     * @return 控え。(同じファイルを指す限り、同じオブジェクト)
+     */
+    public synchronized JobNameSnapshot get(File dir, String ciUrl) {
+        File file = fileOf(dir, ciUrl);
+        String key = file.getAbsolutePath();
+        JobNameSnapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            try {
+                snapshot = load(file, ciUrl);
+            } catch (IOException e) {
+                // 控えは取り直せば済む。壊れていれば捨てる。
+                snapshot = null;
+            }
+            if (snapshot == null) {
+                snapshot = new JobNameSnapshot(ciUrl);
+            }
+            snapshots.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 控えが変更されていれば、ファイルへ保存する。
+     *
+     * @param dir      控えを保存するディレクトリ。
+     * @param snapshot 控え。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    public synchronized void save(File dir, JobNameSnapshot snapshot) throws IOException {
+        byte[] data;
+        synchronized (snapshot) {
+            if (!snapshot.isModified()) {
+                return;
+            }
+            data = toBytes(snapshot);
+            snapshot.setModified(false);
+        }
+        try {
+            LastRunInfomationStore.replaceFile(fileOf(dir, snapshot.getCiUrl()), data);
+        } catch (IOException e) {
+            snapshot.setModified(true);
+            throw e;
+        }
+    }
+
+    /**
+     * 控えをファイルから読み込む。
+     *
+     * @param file  控えのファイル。
+     * @param ciUrl CIサーバのURL。
+     * @return 控え。ファイルが無い、または別のURLのものならnull。
+     * @throws IOException ファイルが読めない、または壊れている場合。
+     */
+    protected JobNameSnapshot load(File file, String ciUrl) throws IOException {
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (data.length < MAGIC.length + 4 + 8
+                || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+            throw new IOException("job name snapshot is broken : " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.skipBytes(MAGIC.length);
+        int version = in.readInt();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("unsupported job name snapshot version " + version
+                    + " : " + file);
+        }
+        String url = in.readUTF();
+        long enumeratedAt = in.readLong();
+        byte[] names = new byte[in.readInt()];
+        in.readFully(names);
+        Map<String, String> hashes = new TreeMap<String, String>();
+        if (version >= 2) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                hashes.put(in.readUTF(), in.readUTF());
+            }
+        }
+        if (in.available() != 8 || in.readLong() != crc.getValue()) {
+            throw new IOException("job name snapshot is broken (checksum) : " + file);
+        }
+        if (!url.equals(ciUrl)) {
+            return null;
+        }
+
+        JobNameSnapshot snapshot = new JobNameSnapshot(ciUrl);
+        snapshot.replace(PrefixCompressedStringCodec.decode(new String(names, UTF_8)),
+                enumeratedAt);
+        for (Map.Entry<String, String> hash : hashes.entrySet()) {
+            snapshot.putChildJobsHash(hash.getKey(), hash.getValue());
+        }
+        snapshot.setModified(false);
+        return snapshot;
+
+    }
+
+    /**
+     * 控えをファイルの内容(バイト列)にする。(snapshotをロックして呼ぶこと)
+     */
+    private byte[] toBytes(JobNameSnapshot snapshot) throws IOException {
+        byte[] names = PrefixCompressedStringCodec.encode(snapshot.toList()).getBytes(UTF_8);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(names.length + 128);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(snapshot.getCiUrl());
+        out.writeLong(snapshot.getEnumeratedAtMillis());
+        out.writeInt(names.length);
+        out.write(names);
+        Map<String, String> hashes = snapshot.getChildJobsHashes();
+        out.writeInt(hashes.size());
+        for (Map.Entry<String, String> hash : hashes.entrySet()) {
+            out.writeUTF(hash.getKey());
+            out.writeUTF(hash.getValue());
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bos.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * CIサーバのURLに対応する、控えのファイルを返す。(URLのSHA-1をファイル名とする)
+     *
+     * @param dir   控えを保存するディレクトリ。
+     * @param ciUrl CIサーバのURL。
+     * @return 控えのファイル。
+     */
+    public static File fileOf(File dir, String ciUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+                    String.valueOf(ciUrl).getBytes(UTF_8));
+            StringBuilder sb = new StringBuilder("ciJobNames-");
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i] & 0xFF));
+            }
+            return new File(dir, sb.append(".dat").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.github.kazuhito_m.scm2cisync.core.store;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.LastRunInfomation;
+
+import java.beans.XMLDecoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 前回実行情報(LastRunInfomation)をファイルへ読み書きするクラス。<br>
+ * 形式は「識別子+版数+名前付きセクション群+CRC32」のバイナリで、
+ * 一時ファイルへ書いた後に置き換える(rename)ため、書き込み途中で落ちても元のファイルは壊れない。
+ * 旧形式(java.beans.XMLEncoderによるXML)のファイルも読み込め、次回保存時にバイナリ形式となる。
+ *
+ * @author Kazuhito Miura
+ */
+public class LastRunInfomationStore {
+
+    /**
+     * ファイル先頭の識別子。
+     */
+    private static final byte[] MAGIC = {'S', '2', 'C', 'S'};
+
+    /**
+     * 形式の版数。
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * セクション名:SCMから取得した際のリビジョン番号。
+     */
+    static final String SECTION_SCM_HEAD_REVISION = "scm.headRevision";
+
+    /**
+     * セクション名:SCM直下ディレクトリ名一覧。
+     */
+    static final String SECTION_SCM_DIR_NAMES = "scm.dirNames";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 前回実行情報をファイルから読み込む。
+     *
+     * @param file 前回実行情報ファイル。
+     * @return 前回実行情報。ファイルが無ければnull。
+     * @throws IOException ファイルが読めない、または壊れている場合。
+     */
+    public LastRunInfomation load(File file) throws IOException {
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        // 識別子が無ければ、旧形式(XML)として読む。
+        if (data.length < MAGIC.length
+                || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+            return loadXml(data);
+        }
+
+        // 末尾8byteのCRC32で、中身が壊れていないかを検査。
+        if (data.length < MAGIC.length + 4 + 4 + 8) {
+            throw new IOException("last profile is truncated : " + file);
+        }
+        int bodyLength = data.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, bodyLength);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.skipBytes(MAGIC.length);
+        int version = in.readInt();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("unsupported last profile version " + version
+                    + " : " + file);
+        }
+        Map<String, byte[]> sections = new LinkedHashMap<String, byte[]>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            sections.put(name, value);
+        }
+        if (in.available() != 8 || in.readLong() != crc.getValue()) {
+            throw new IOException("last profile is broken (checksum) : " + file);
+        }
+
+        return fromSections(sections);
+
+    }
+
+    /**
+     * 前回実行情報をファイルへ保存する。<br>
+     * 同じディレクトリの一時ファイルへ書き、同期した後に置き換える。
+     *
+     * @param file 前回実行情報ファイル。
+     * @param info 前回実行情報。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    public void save(File file, LastRunInfomation info) throws IOException {
+
+        replaceFile(file, toBytes(toSections(info)));
+
+    }
+
+    /**
+     * ファイルの内容を置き換える。<br>
+     * 同じディレクトリの一時ファイルへ書き、同期した後に置き換える。(書き込み途中で落ちても元のファイルは壊れない)
+     *
+     * @param file 書き込み先ファイル。
+     * @param data ファイルの内容。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    static void replaceFile(File file, byte[] data) throws IOException {
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("can not create directory : " + dir);
+        }
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            FileOutputStream fos = new FileOutputStream(tmp);
+            try {
+                fos.write(data);
+                fos.flush();
+                fos.getFD().sync();
+            } finally {
+                fos.close();
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+
+    }
+
+    /**
+     * 前回実行情報をセクション群へ変換する。
+     *
+     * @param info 前回実行情報。
+     * @return セクション名と値の組(保存順)。
+     * @throws IOException 変換に失敗した場合。
+     */
+    protected Map<String, byte[]> toSections(LastRunInfomation info)
+            throws IOException {
+        Map<String, byte[]> sections = new LinkedHashMap<String, byte[]>();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(8);
+        new DataOutputStream(bos).writeLong(info.getScmHeadRevisionNumber());
+        sections.put(SECTION_SCM_HEAD_REVISION, bos.toByteArray());
+
+        if (info.getScmDirNameSnapshot() != null) {
+            sections.put(SECTION_SCM_DIR_NAMES,
+                    info.getScmDirNameSnapshot().getBytes(UTF_8));
+        }
+
+        return sections;
+    }
+
+    /**
+     * セクション群から前回実行情報を復元する。知らないセクションは読み飛ばす。
+     *
+     * @param sections セクション名と値の組。
+     * @return 前回実行情報。
+     * @throws IOException 変換に失敗した場合。
+     */
+    protected LastRunInfomation fromSections(Map<String, byte[]> sections)
+            throws IOException {
+        LastRunInfomation info = new LastRunInfomation();
+
+        byte[] value = sections.get(SECTION_SCM_HEAD_REVISION);
+        if (value != null) {
+            info.setScmHeadRevisionNumber(new DataInputStream(
+                    new ByteArrayInputStream(value)).readLong());
+        }
+
+        value = sections.get(SECTION_SCM_DIR_NAMES);
+        if (value != null) {
+            info.setScmDirNameSnapshot(new String(value, UTF_8));
+        }
+
+        return info;
+    }
+
+    /**
+     * セクション群をファイルの内容(バイト列)にする。
+     */
+    private byte[] toBytes(Map<String, byte[]> sections) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(sections.size());
+        for (Map.Entry<String, byte[]> section : sections.entrySet()) {
+            out.writeUTF(section.getKey());
+            out.writeInt(section.getValue().length);
+            out.write(section.getValue());
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bos.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        return bos.toByteArray();
+    }
+
+    /**
+     * 旧形式(XMLEncoderによるXML)の前回実行情報を読み込む。
+     */
+    private LastRunInfomation loadXml(byte[] data) throws IOException {
+        XMLDecoder xmlDec = new XMLDecoder(new ByteArrayInputStream(data));
+        try {
+            return (LastRunInfomation) xmlDec.readObject();
+        } catch (RuntimeException e) {
+            throw new IOException("last profile is broken (xml)", e);
+        } finally {
+            xmlDec.close();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.github.kazuhito_m.scm2cisync.core.template;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.context.Context;
+import org.apache.velocity.runtime.RuntimeInstance;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Velocityのテンプレートファイルを解析済みの状態で保持し、置換を行うクラス。<br>
+ * Velocityのエンジンはテンプレートのあるディレクトリにつき一つだけ初期化し、
+ * (#parse・#includeは、従来通りテンプレートと同じディレクトリから読む)
+ * テンプレートは「正規化したパス+更新日時」が変わらない限り解析し直さない。
+ * 置換(merge)は複数スレッドから同時に呼んでよい。
+ *
+ * @author Kazuhito Miura
+ */
+public class VelocityTemplateCache {
+
+    /**
+     * テンプレートファイルの文字コード。
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * テンプレートのあるディレクトリ(正規化したパス)と、Velocityのエンジンの組。
+     * 初回使用時に初期化する。
+     */
+    private final ConcurrentMap<String, RuntimeInstance> engines =
+            new ConcurrentHashMap<String, RuntimeInstance>();
+
+    /**
+     * 正規化したパスと、解析済みテンプレートの組。
+     */
+    private final ConcurrentMap<String, CachedTemplate> templates =
+            new ConcurrentHashMap<String, CachedTemplate>();
+
+    /**
+     * テンプレートファイルの内容を置換し、その結果を文字列で返す。
+     *
+     * @param templateFile 置き換え対象とするテンプレートファイル。
+     * @param context      置き換える内容のContextオブジェクト。
+     * @return 置き換えた後の文字列。
+     * @throws Exception すべての例外。
+     */
+    public String merge(File templateFile, Context context) throws Exception {
+        StringWriter sw = new StringWriter();
+        getTemplate(templateFile).merge(context, sw);
+        return sw.toString();
+    }
+
+    /**
+     * 解析済みのテンプレートを返す。無い、またはファイルが更新されていれば解析し直す。
+     *
+     * @param templateFile テンプレートファイル。
+     * @return 解析済みのテンプレート。
+     * @throws Exception すべての例外。
+     */
+    public Template getTemplate(File templateFile) throws Exception {
+        String path = templateFile.getCanonicalPath();
+        long lastModified = templateFile.lastModified();
+
+        CachedTemplate cached = templates.get(path);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.template;
+        }
+
+        // 同時に解析してしまっても結果は同じなので、後勝ちで置き換える。
+        cached = new CachedTemplate(lastModified, parse(templateFile, path));
+        templates.put(path, cached);
+        return cached.template;
+    }
+
+    /**
+     * 保持しているテンプレートの数を返す。
+     *
+     * @return テンプレートの数。
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * テンプレートファイルを読み、解析する。
+     */
+    private Template parse(File templateFile, String name) throws Exception {
+        RuntimeInstance ri = getEngine(new File(name).getParentFile().getPath());
+        Reader reader = new InputStreamReader(new FileInputStream(templateFile),
+                ENCODING);
+        try {
+            Template template = new Template();
+            template.setName(name);
+            template.setEncoding(ENCODING);
+            template.setRuntimeServices(ri);
+            template.setData(ri.parse(reader, name));
+            template.initDocument();
+            return template;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * ディレクトリ用のVelocityのエンジンを返す。未初期化なら初期化する。
+     *
+     * @param dir テンプレートのあるディレクトリ(正規化したパス)。リソースの読み込み元とする。
+     */
+    private synchronized RuntimeInstance getEngine(String dir) throws Exception {
+        RuntimeInstance engine = engines.get(dir);
+        if (engine == null) {
+            Properties props = new Properties();
+            props.setProperty("file.resource.loader.path", dir);
+            engine = new RuntimeInstance();
+            engine.init(props);
+            engines.put(dir, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * 解析済みテンプレートと、解析時のファイル更新日時の組。
+     */
+    private static class CachedTemplate {
+
+        private final long lastModified;
+
+        private final Template template;
+
+        CachedTemplate(long lastModified, Template template) {
+            this.lastModified = lastModified;
+            this.template = template;
+        }
+
+    }
+
+}
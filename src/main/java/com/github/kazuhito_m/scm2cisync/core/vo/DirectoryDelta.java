@@ -0,0 +1,147 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 二つのリビジョン間での「直下ディレクトリの追加・削除」を表すVO。
+ *
+ * @author Kazuhito Miura
+ */
+public class DirectoryDelta {
+
+    /**
+     * 追加されたディレクトリ名。
+     */
+    private final List<String> addedNames;
+
+    /**
+     * 削除されたディレクトリ名。
+     */
+    private final List<String> deletedNames;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param addedNames   追加されたディレクトリ名。
+     * @param deletedNames 削除されたディレクトリ名。
+     */
+    public DirectoryDelta(List<String> addedNames, List<String> deletedNames) {
+        this.addedNames = addedNames;
+        this.deletedNames = deletedNames;
+    }
+
+    /**
+     * 追加・削除ともに無いか否かを返す。
+     *
+     * @return 変更無し:true。
+     */
+    public boolean isEmpty() {
+        return addedNames.isEmpty() && deletedNames.isEmpty();
+    }
+
+    /**
+     * 変更無しを表すオブジェクトを作成する。
+     *
+     * @return 追加・削除ともに空のオブジェクト。
+     */
+    public static DirectoryDelta empty() {
+        return new DirectoryDelta(new ArrayList<String>(),
+                new ArrayList<String>());
+    }
+
+    /**
+     * 前回と今回のディレクトリ名一覧を比較し、追加・削除されたものを求める。<br>
+     * 双方を整列した上で一度だけ突き合わせる(マージ)ため、結果も名前順となる。
+     *
+     * @param lastNames 前回(比較元)のディレクトリ名一覧。
+     * @param headNames 今回(比較先)のディレクトリ名一覧。
+     * @return 追加・削除されたディレクトリ名。
+     */
+    public static DirectoryDelta diff(List<String> lastNames, List<String> headNames) {
+
+        List<String> last = sortedCopy(lastNames);
+        List<String> head = sortedCopy(headNames);
+
+        List<String> added = new ArrayList<String>();
+        List<String> deleted = new ArrayList<String>();
+
+        int i = 0;
+        int j = 0;
+        while (i < last.size() && j < head.size()) {
+            int c = last.get(i).compareTo(head.get(j));
+            if (c == 0) {
+                // 両方にある。重複していれば読み飛ばす。
+                String name = last.get(i);
+                while (i < last.size() && last.get(i).equals(name)) {
+                    i++;
+                }
+                while (j < head.size() && head.get(j).equals(name)) {
+                    j++;
+                }
+            } else if (c < 0) {
+                addOnce(deleted, last.get(i++));
+            } else {
+                addOnce(added, head.get(j++));
+            }
+        }
+        while (i < last.size()) {
+            addOnce(deleted, last.get(i++));
+        }
+        while (j < head.size()) {
+            addOnce(added, head.get(j++));
+        }
+
+        return new DirectoryDelta(added, deleted);
+
+    }
+
+    /**
+     * 前回のディレクトリ名一覧へこの差分を当て、今回の一覧を求める。
+     *
+     * @param lastNames 前回のディレクトリ名一覧。
+     * @return 今回のディレクトリ名一覧(名前順)。
+     */
+    public List<String> applyTo(List<String> lastNames) {
+        TreeSet<String> names = new TreeSet<String>(lastNames);
+        names.removeAll(deletedNames);
+        names.addAll(addedNames);
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * 整列済みのコピーを返す。既に整列済みなら並べ替えを省く。
+     */
+    private static List<String> sortedCopy(List<String> names) {
+        List<String> copy = new ArrayList<String>(names);
+        for (int i = 1; i < copy.size(); i++) {
+            if (copy.get(i - 1).compareTo(copy.get(i)) > 0) {
+                Collections.sort(copy);
+                break;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * 整列済みのリストへ、直前と同じでなければ追加する。
+     */
+    private static void addOnce(List<String> sorted, String name) {
+        if (sorted.isEmpty() || !sorted.get(sorted.size() - 1).equals(name)) {
+            sorted.add(name);
+        }
+    }
+
+    // Getter群
+
+    public List<String> getAddedNames() {
+        return addedNames;
+    }
+
+    public List<String> getDeletedNames() {
+        return deletedNames;
+    }
+
+}
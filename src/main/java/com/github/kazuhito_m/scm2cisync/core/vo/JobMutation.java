@@ -0,0 +1,110 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+/**
+ * CI側jobへの変更(新規作成・無効化・有効化)一件分を表すVO。<br>
+ * 複数件をまとめてCI側へ一度に送るために使う。
+ *
+ * @author Kazuhito Miura
+ */
+public class JobMutation {
+
+    /**
+     * 変更の種類。
+     */
+    public enum Type {
+        /**
+         * 新規作成。
+         */
+        CREATE("added"),
+        /**
+         * 無効化。
+         */
+        DISABLE("disabled"),
+        /**
+         * 有効化。
+         */
+        ENABLE("enabled");
+
+        private final String pastTense;
+
+        Type(String pastTense) {
+            this.pastTense = pastTense;
+        }
+
+        /**
+         * ログ表示用の「～された」を表す英単語を返す。
+         *
+         * @return "added"等。
+         */
+        public String getPastTense() {
+            return pastTense;
+        }
+    }
+
+    /**
+     * 変更の種類。
+     */
+    private final Type type;
+
+    /**
+     * 対象のjob名。
+     */
+    private final String jobName;
+
+    /**
+     * 新規作成時のconfig.xmlの内容。それ以外はnull。
+     */
+    private final String config;
+
+    private JobMutation(Type type, String jobName, String config) {
+        this.type = type;
+        this.jobName = jobName;
+        this.config = config;
+    }
+
+    /**
+     * 新規作成を作る。
+     *
+     * @param jobName job名。
+     * @param config  config.xmlの内容。
+     * @return 変更一件分。
+     */
+    public static JobMutation create(String jobName, String config) {
+        return new JobMutation(Type.CREATE, jobName, config);
+    }
+
+    /**
+     * 無効化を作る。
+     *
+     * @param jobName job名。
+     * @return 変更一件分。
+     */
+    public static JobMutation disable(String jobName) {
+        return new JobMutation(Type.DISABLE, jobName, null);
+    }
+
+    /**
+     * 有効化を作る。
+     *
+     * @param jobName job名。
+     * @return 変更一件分。
+     */
+    public static JobMutation enable(String jobName) {
+        return new JobMutation(Type.ENABLE, jobName, null);
+    }
+
+    // Getter群
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getConfig() {
+        return config;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+/**
+ * CI側jobへの変更一件分の結果を持つVO。
+ *
+ * @author Kazuhito Miura
+ */
+public class JobMutationResult {
+
+    /**
+     * 対象の変更。
+     */
+    private final JobMutation mutation;
+
+    /**
+     * 失敗した場合の理由。成功時はnull。
+     */
+    private final String errorMessage;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param mutation     対象の変更。
+     * @param errorMessage 失敗した場合の理由。成功時はnull。
+     */
+    public JobMutationResult(JobMutation mutation, String errorMessage) {
+        this.mutation = mutation;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * 成功したか否かを返す。
+     *
+     * @return 成功:true。
+     */
+    public boolean isSucceed() {
+        return errorMessage == null;
+    }
+
+    // Getter群
+
+    public JobMutation getMutation() {
+        return mutation;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+}
@@ -0,0 +1,296 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * CIサーバ一つ分の、手元に控えたjob名一覧。<br>
+ * 全量を取得(列挙)した時刻を持ち、以降は自分で行った作成・削除を反映して使い続ける。
+ * あわせて、コントロールjobごとに「CIサーバ上にあると確かめた下位job一覧」のハッシュを控える。
+ * 同じCIを向いた同期対象間(スレッドをまたぐ場合も含む)で共有するため、操作はすべて同期化している。
+ * 全量取得の最中に他のスレッドが行った作成・削除は記録しておき、取得結果で置き換えた後に反映し直す。
+ *
+ * @author Kazuhito Miura
+ */
+public class JobNameSnapshot {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * CIサーバのURL。
+     */
+    private final String ciUrl;
+
+    /**
+     * job名一覧。(名前順)
+     */
+    private final Set<String> names = new TreeSet<String>();
+
+    /**
+     * コントロールjob名と、その下位job一覧のハッシュ。
+     */
+    private final Map<String, String> childJobsHashes = new TreeMap<String, String>();
+
+    /**
+     * 最後に全量を取得した時刻(ミリ秒)。未取得、または信用できなくなった場合は0。
+     */
+    private long enumeratedAtMillis = 0;
+
+    /**
+     * 最後に保存してから変更されたか否か。
+     */
+    private boolean modified = false;
+
+    /**
+     * 作成・削除・破棄のたびに進める通し番号。
+     */
+    private long changeSeq = 0;
+
+    /**
+     * 最後に破棄(invalidate)した時の通し番号。
+     */
+    private long invalidatedSeq = 0;
+
+    /**
+     * 最中の全量取得の数。
+     */
+    private int enumerating = 0;
+
+    /**
+     * 全量取得の最中に行われた作成・削除の記録。(取得の最中でなければ空)
+     */
+    private final List<Change> changes = new ArrayList<Change>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param ciUrl CIサーバのURL。
+     */
+    public JobNameSnapshot(String ciUrl) {
+        this.ciUrl = ciUrl;
+    }
+
+    /**
+     * 控えが使えるか否か。
+     *
+     * @param nowMillis    現在時刻(ミリ秒)。
+     * @param maxAgeMillis 全量取得からの有効期間(ミリ秒)。0なら常に使えない、負数なら期限無し。
+     * @return 全量取得済みで、有効期間内なら:true。
+     */
+    public synchronized boolean isFresh(long nowMillis, long maxAgeMillis) {
+        if (enumeratedAtMillis <= 0 || maxAgeMillis == 0) {
+            return false;
+        }
+        return maxAgeMillis < 0 || nowMillis - enumeratedAtMillis <= maxAgeMillis;
+    }
+
+    /**
+     * 全量取得した一覧で置き換える。<br>
+     * 下位job一覧のハッシュも、以前に確かめたものは有効期間が過ぎたとみなし捨てる。
+     *
+     * @param jobNames  job名一覧。
+     * @param nowMillis 取得した時刻(ミリ秒)。
+     */
+    public synchronized void replace(Collection<String> jobNames, long nowMillis) {
+        names.clear();
+        names.addAll(jobNames);
+        childJobsHashes.clear();
+        enumeratedAtMillis = nowMillis;
+        modified = true;
+    }
+
+    /**
+     * 全量取得の開始を控える。以降の作成・削除は、終了(endEnumeration())まで記録する。
+     *
+     * @return 開始時点の通し番号。(replace()へ渡す)
+     */
+    public synchronized long beginEnumeration() {
+        enumerating++;
+        return changeSeq;
+    }
+
+    /**
+     * 全量取得した一覧で置き換え、取得を始めてから行われた作成・削除を反映し直す。<br>
+     * 取得の最中に破棄(invalidate)されていた場合、一覧は置き換えるが使える状態にはしない。
+     *
+     * @param jobNames  job名一覧。
+     * @param nowMillis 取得を始めた時刻(ミリ秒)。
+     * @param since     取得を始めた時点の通し番号。(beginEnumeration()の結果)
+     */
+    public synchronized void replace(Collection<String> jobNames, long nowMillis, long since) {
+        replace(jobNames, nowMillis);
+        for (Change change : changes) {
+            if (change.seq <= since) {
+                continue;
+            }
+            if (change.added) {
+                names.add(change.jobName);
+            } else {
+                names.remove(change.jobName);
+            }
+        }
+        if (invalidatedSeq > since) {
+            enumeratedAtMillis = 0;
+        }
+    }
+
+    /**
+     * 全量取得の終了(成否を問わない)を控える。最中の取得が無くなれば、記録を捨てる。
+     */
+    public synchronized void endEnumeration() {
+        if (--enumerating <= 0) {
+            enumerating = 0;
+            changes.clear();
+        }
+    }
+
+    /**
+     * 作成したjobを一覧に加える。
+     *
+     * @param jobName job名。
+     */
+    public synchronized void add(String jobName) {
+        record(jobName, true);
+        modified |= names.add(jobName);
+    }
+
+    /**
+     * 削除したjobを一覧から除く。
+     *
+     * @param jobName job名。
+     */
+    public synchronized void remove(String jobName) {
+        record(jobName, false);
+        modified |= names.remove(jobName);
+    }
+
+    private void record(String jobName, boolean added) {
+        changeSeq++;
+        if (enumerating > 0) {
+            changes.add(new Change(changeSeq, jobName, added));
+        }
+    }
+
+    /**
+     * 一覧を信用できなくなった(操作の失敗等)ため捨てる。次に使う際は全量を取得し直す。
+     */
+    public synchronized void invalidate() {
+        invalidatedSeq = ++changeSeq;
+        names.clear();
+        childJobsHashes.clear();
+        enumeratedAtMillis = 0;
+        modified = true;
+    }
+
+    /**
+     * コントロールjobの下位job一覧のハッシュを返す。
+     *
+     * @param controlJobName コントロールjob名。
+     * @return 控えたハッシュ。無ければnull。
+     */
+    public synchronized String getChildJobsHash(String controlJobName) {
+        return childJobsHashes.get(controlJobName);
+    }
+
+    /**
+     * コントロールjobの下位job一覧が、CIサーバ上でこの内容であると確かめたことを控える。
+     *
+     * @param controlJobName コントロールjob名。
+     * @param hash           下位job一覧のハッシュ。(hashOf()の結果)nullなら控えを消す。
+     */
+    public synchronized void putChildJobsHash(String controlJobName, String hash) {
+        String old = hash == null ? childJobsHashes.remove(controlJobName)
+                : childJobsHashes.put(controlJobName, hash);
+        modified |= hash == null ? old != null : !hash.equals(old);
+    }
+
+    /**
+     * @return コントロールjob名と下位job一覧のハッシュの組の写し。(名前順)
+     */
+    public synchronized Map<String, String> getChildJobsHashes() {
+        return new TreeMap<String, String>(childJobsHashes);
+    }
+
+    /**
+     * job名の集合のハッシュ(SHA-1の16進文字列)を求める。並び・重複は問わない。
+     *
+     * @param jobNames job名の集合。
+     * @return ハッシュ。
+     */
+    public static String hashOf(Collection<String> jobNames) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (String name : new TreeSet<String>(jobNames)) {
+                md.update(name.getBytes(UTF_8));
+                md.update((byte) '\n');
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return job名一覧の写し。(名前順)
+     */
+    public synchronized List<String> toList() {
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * @return 控えているjob数。
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public String getCiUrl() {
+        return ciUrl;
+    }
+
+    public synchronized long getEnumeratedAtMillis() {
+        return enumeratedAtMillis;
+    }
+
+    public synchronized void setEnumeratedAtMillis(long enumeratedAtMillis) {
+        this.enumeratedAtMillis = enumeratedAtMillis;
+    }
+
+    public synchronized boolean isModified() {
+        return modified;
+    }
+
+    public synchronized void setModified(boolean modified) {
+        this.modified = modified;
+    }
+
+    /**
+     * 全量取得の最中に行われた作成・削除一件分。
+     */
+    private static class Change {
+        private final long seq;
+
+        private final String jobName;
+
+        private final boolean added;
+
+        private Change(long seq, String jobName, boolean added) {
+            this.seq = seq;
+            this.jobName = jobName;
+            this.added = added;
+        }
+    }
+
+}
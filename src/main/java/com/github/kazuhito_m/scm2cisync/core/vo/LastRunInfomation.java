@@ -1,6 +1,9 @@
 package com.github.kazuhito_m.scm2cisync.core.vo;
 
+import com.github.kazuhito_m.commons.io.PrefixCompressedStringCodec;
+
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 前回実行の記録を持つVO。<br>
@@ -16,6 +19,12 @@ public class LastRunInfomation implements Serializable {
      */
     private long scmHeadRevisionNumber = 0;
 
+    /**
+     * 前回実行時点でのSCM直下ディレクトリ名一覧(整列・前方一致部分を省略した形)。
+     * 無ければnull。
+     */
+    private String scmDirNameSnapshot = null;
+
     public long getScmHeadRevisionNumber() {
         return scmHeadRevisionNumber;
     }
@@ -24,4 +33,33 @@ public class LastRunInfomation implements Serializable {
         this.scmHeadRevisionNumber = scmHeadRevisionNumber;
     }
 
+    public String getScmDirNameSnapshot() {
+        return scmDirNameSnapshot;
+    }
+
+    public void setScmDirNameSnapshot(String scmDirNameSnapshot) {
+        this.scmDirNameSnapshot = scmDirNameSnapshot;
+    }
+
+    /**
+     * 保存されたSCM直下ディレクトリ名一覧を元の形に戻して返す。
+     *
+     * @return 整列済みのディレクトリ名一覧。保存されていなければnull。
+     */
+    public List<String> restoreScmDirNames() {
+        if (scmDirNameSnapshot == null) {
+            return null;
+        }
+        return PrefixCompressedStringCodec.decode(scmDirNameSnapshot);
+    }
+
+    /**
+     * SCM直下ディレクトリ名一覧を、詰めた形で保存する。
+     *
+     * @param dirNames ディレクトリ名一覧。
+     */
+    public void storeScmDirNames(List<String> dirNames) {
+        this.scmDirNameSnapshot = PrefixCompressedStringCodec.encode(dirNames);
+    }
+
 }
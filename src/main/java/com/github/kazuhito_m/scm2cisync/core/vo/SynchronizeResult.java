@@ -0,0 +1,73 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+
+/**
+ * 同期対象一件分の実行結果を持つVO。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeResult {
+
+    /**
+     * 同期対象の設定値オブジェクト。
+     */
+    private final SynchronizeTarget target;
+
+    /**
+     * 失敗した場合の例外。成功時はnull。
+     */
+    private final Throwable error;
+
+    /**
+     * 処理に掛かった時間(ミリ秒)。
+     */
+    private final long elapsedMillis;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param target        同期対象の設定値オブジェクト。
+     * @param error         失敗した場合の例外。成功時はnull。
+     * @param elapsedMillis 処理に掛かった時間(ミリ秒)。
+     */
+    public SynchronizeResult(SynchronizeTarget target, Throwable error,
+                             long elapsedMillis) {
+        this.target = target;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 成功したか否かを返す。
+     *
+     * @return 成功:true。
+     */
+    public boolean isSucceed() {
+        return error == null;
+    }
+
+    /**
+     * ログ表示用の「どの同期対象か」を表す文字列を返す。
+     *
+     * @return SCMのURLとCIのURLを繋げた文字列。
+     */
+    public String getTargetDescription() {
+        return target.getScmUrl() + " -> " + target.getCiUrl();
+    }
+
+    // Getter群
+
+    public SynchronizeTarget getTarget() {
+        return target;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+}
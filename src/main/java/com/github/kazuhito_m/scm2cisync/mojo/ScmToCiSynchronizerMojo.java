@@ -4,8 +4,12 @@ import com.github.kazuhito_m.commons.mojo.BaseMojo;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.maven.plugin.MojoExecutionException;
 import com.github.kazuhito_m.scm2cisync.core.ScmToCiSynchronizer;
+import com.github.kazuhito_m.scm2cisync.core.SynchronizeExecutor;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.SvnSessionPool;
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.apache.commons.lang.builder.ToStringStyle.MULTI_LINE_STYLE;
 
@@ -36,7 +40,14 @@ public class ScmToCiSynchronizerMojo extends BaseMojo {
      *
      * @parameter expression="${optimizePatterns}"
      */
-    private ArrayList<SynchronizeTarget> synchronizeTargets = new ArrayList<SynchronizeTarget>();
+    protected ArrayList<SynchronizeTarget> synchronizeTargets = new ArrayList<SynchronizeTarget>();
+
+    /**
+     * 同期対象を同時に処理するスレッド数。1(省略値)なら順番に処理する。
+     *
+     * @parameter expression="${threadCount}" default-value="1"
+     */
+    protected int threadCount = 1;
 
     /**
      * 実行 {@inheritDoc}
@@ -53,6 +64,9 @@ public class ScmToCiSynchronizerMojo extends BaseMojo {
             debugDump();
         }
 
+        // 同期対象全体で使い回すSubversion接続のプール。
+        SvnSessionPool svnSessionPool = new SvnSessionPool();
+
         // 主処理
         try {
 
@@ -61,24 +75,80 @@ public class ScmToCiSynchronizerMojo extends BaseMojo {
             // mvn-test前の準備処理を行う(前から優先)
             ScmToCiSynchronizer synchronizer = new ScmToCiSynchronizer();
             synchronizer.setLog(log);
+            synchronizer.setSvnSessionPool(svnSessionPool);
 
-            // パターンをすべて回す
-            for (SynchronizeTarget st : synchronizeTargets) {
-                // シンクロナイザーによる処理実行。
-                synchronizer.synchronize(st);
-            }
+            // パターンをすべて回す(threadCountが2以上なら並列で)
+            SynchronizeExecutor executor = new SynchronizeExecutor(synchronizer);
+            executor.setThreadCount(threadCount);
+            List<SynchronizeResult> results = executor.execute(synchronizeTargets);
+
+            // 全件の結果をまとめて報告。
+            reportResults(results);
 
             infoLog("CI to SCM Synchronize succeed !");
 
+        } catch (MojoExecutionException e) {
+            throw e;
         } catch (Exception e) {
             throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            svnSessionPool.dispose();
+            // 非同期出力していたログは、ここですべて書き出す。
+            closeLog();
+        }
+    }
+
+    /**
+     * 同期対象ごとの結果をログに出力し、失敗があれば例外とする。
+     *
+     * @param results 同期対象ごとの実行結果。
+     * @throws MojoExecutionException 一件でも失敗があった場合。
+     */
+    private void reportResults(List<SynchronizeResult> results)
+            throws MojoExecutionException {
+
+        int failureCount = logResults(results);
+
+        if (failureCount > 0) {
+            SynchronizeResult firstFailure = null;
+            for (SynchronizeResult result : results) {
+                if (!result.isSucceed()) {
+                    firstFailure = result;
+                    break;
+                }
+            }
+            throw new MojoExecutionException(failureCount + " of "
+                    + results.size() + " synchronize targets failed. first : "
+                    + firstFailure.getError().getMessage(),
+                    firstFailure.getError());
+        }
+    }
+
+    /**
+     * 同期対象ごとの結果をログに出力する。
+     *
+     * @param results 同期対象ごとの実行結果。
+     * @return 失敗した同期対象の件数。
+     */
+    protected int logResults(List<SynchronizeResult> results) {
+        int failureCount = 0;
+        for (SynchronizeResult result : results) {
+            if (result.isSucceed()) {
+                infoLog("[" + result.getTargetDescription() + "] succeed. ("
+                        + result.getElapsedMillis() + "ms)");
+            } else {
+                log.error("[" + result.getTargetDescription() + "] failed. ("
+                        + result.getElapsedMillis() + "ms)", result.getError());
+                failureCount++;
+            }
         }
+        return failureCount;
     }
 
     /**
      * デバッグ用メソッド
      */
-    private void debugDump() {
+    protected void debugDump() {
 
         // システムプロパティを取得
         debugLog("[SystemProperties]");
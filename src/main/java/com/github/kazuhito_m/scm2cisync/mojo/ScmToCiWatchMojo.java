@@ -0,0 +1,164 @@
+package com.github.kazuhito_m.scm2cisync.mojo;
+
+import com.github.kazuhito_m.scm2cisync.core.CommitHookListener;
+import com.github.kazuhito_m.scm2cisync.core.ScmToCiSynchronizer;
+import com.github.kazuhito_m.scm2cisync.core.SynchronizeExecutor;
+import com.github.kazuhito_m.scm2cisync.core.SynchronizeWatcher;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.SvnSessionPool;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CI(継続的インテグレーション)コントロールプラグイン - SCM(ソース管理)と同期し続ける常駐プラグイン<br>
+ * 設定はsyncゴールと同じで、pollInterval秒ごとにSCMのHEADリビジョンを確かめ、動いていれば同期する。
+ * hookPortを指定すると、SCMのコミットフックからの通知(HTTP)を受け、間隔を待たずに該当分を同期する。
+ * 同期の失敗はログに出力するのみで、常駐は続ける。
+ * 終了はプロセスへの停止シグナル(SIGTERM/Ctrl+C)で、実行中の同期を終えてから後始末して止まる。
+ *
+ * @author Kazuhito Miura
+ * @goal watch
+ */
+public class ScmToCiWatchMojo extends ScmToCiSynchronizerMojo {
+
+    /**
+     * 停止シグナルを受けてから、後始末の完了を待つ最大時間(ミリ秒)。
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 60 * 1000;
+
+    /**
+     * SCMのHEADリビジョンを確かめる間隔(秒)。
+     *
+     * @parameter expression="${pollInterval}" default-value="60"
+     */
+    private int pollInterval = 60;
+
+    /**
+     * コミットフックからの通知を受けるHTTPのポート番号。0(省略値)なら待ち受けない。
+     *
+     * @parameter expression="${hookPort}" default-value="0"
+     */
+    private int hookPort = 0;
+
+    /**
+     * コミットフックからの通知を受けるアドレス。省略時はループバック(同じホストから)のみ。
+     *
+     * @parameter expression="${hookHost}"
+     */
+    private String hookHost;
+
+    /**
+     * コミットフックからの通知に求める合言葉。(secretパラメータかX-Hook-Secretヘッダ)
+     * 省略時は求めない。
+     *
+     * @parameter expression="${hookSecret}"
+     */
+    private String hookSecret;
+
+    /**
+     * 続けて届いたコミット通知を、一回の同期にまとめる時間(ミリ秒)。
+     *
+     * @parameter expression="${hookCoalesceMillis}" default-value="2000"
+     */
+    private long hookCoalesceMillis = SynchronizeWatcher.DEFAULT_COALESCE_MILLIS;
+
+    /**
+     * 実行 {@inheritDoc}
+     *
+     * @see org.apache.maven.plugin.AbstractMojo#execute()
+     */
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        // パラメータがセットされるのが、どうもNew後→execute()の直前らしい。再度ログオブジェクトを取得直す。
+        log = super.getLog();
+
+        // デバッグ域
+        if (log.isDebugEnabled()) {
+            debugDump();
+        }
+
+        if (pollInterval <= 0) {
+            throw new MojoExecutionException("pollInterval must be positive : " + pollInterval);
+        }
+
+        // 常駐の間、同期対象全体で使い回すSubversion接続のプール。
+        SvnSessionPool svnSessionPool = new SvnSessionPool();
+
+        // 同期処理・実行オブジェクトは常駐の間使い回す。(テンプレート・job名一覧の控え等を保持し続ける)
+        ScmToCiSynchronizer synchronizer = new ScmToCiSynchronizer();
+        synchronizer.setLog(log);
+        synchronizer.setSvnSessionPool(svnSessionPool);
+        SynchronizeExecutor executor = new SynchronizeExecutor(synchronizer);
+        executor.setThreadCount(threadCount);
+
+        final SynchronizeWatcher watcher = new SynchronizeWatcher(synchronizer, executor,
+                synchronizeTargets);
+        watcher.setLog(log);
+        watcher.setPollIntervalMillis(TimeUnit.SECONDS.toMillis(pollInterval));
+        watcher.setCoalesceMillis(hookCoalesceMillis);
+        watcher.setResultListener(results -> {
+            int failureCount = logResults(results);
+            if (failureCount > 0) {
+                log.warn(failureCount + " of " + results.size()
+                        + " synchronize targets failed. retry at next check.");
+            }
+        });
+
+        // 停止シグナルを受けたら常駐を止め、下の後始末が終わるまでプロセスの終了を待たせる。
+        final CountDownLatch cleanedUp = new CountDownLatch(1);
+        Thread shutdownHook = new Thread(() -> {
+            watcher.stop();
+            try {
+                cleanedUp.await(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "scm2cisync-watch-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        CommitHookListener hookListener = null;
+
+        // 主処理
+        try {
+
+            if (hookPort > 0) {
+                hookListener = new CommitHookListener(watcher);
+                hookListener.setLog(log);
+                hookListener.setSecret(hookSecret);
+                hookListener.start(hookHost == null || hookHost.trim().isEmpty()
+                        ? new InetSocketAddress(InetAddress.getLoopbackAddress(), hookPort)
+                        : new InetSocketAddress(hookHost.trim(), hookPort));
+                infoLog("commit hook listening on " + hookListener.getAddress()
+                        + CommitHookListener.CONTEXT_PATH);
+            }
+
+            infoLog("CI to SCM Synchronize watch start ! (interval:" + pollInterval + "s)");
+
+            watcher.run();
+
+            infoLog("CI to SCM Synchronize watch stopped.");
+
+        } catch (IOException e) {
+            throw new MojoExecutionException("commit hook listen failed : " + e.getMessage(), e);
+        } finally {
+            if (hookListener != null) {
+                hookListener.stop();
+            }
+            svnSessionPool.dispose();
+            // 非同期出力していたログは、ここですべて書き出す。
+            closeLog();
+            cleanedUp.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // 既に終了処理中。(停止シグナルで止まった場合)
+            }
+        }
+    }
+
+}
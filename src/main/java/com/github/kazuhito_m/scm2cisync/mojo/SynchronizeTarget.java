@@ -2,6 +2,8 @@ package com.github.kazuhito_m.scm2cisync.mojo;
 
 import com.github.kazuhito_m.commons.idfilter.IdFilter;
 
+import java.io.File;
+
 /**
  * 最適化パターンクラス。 Id(正規表現)の規則ごとの設定値を保持する。
  *
@@ -16,7 +18,7 @@ public class SynchronizeTarget extends IdFilter {
     private String lastProfilePath;
 
     /**
-     * ソース管理システムのタイプ(今はSVNのみ)
+     * ソース管理システムのタイプ("Subversion"(省略値) , "InMemory":メモリ上の疑似リポジトリ)
      */
     private String scmType;
 
@@ -25,6 +27,11 @@ public class SynchronizeTarget extends IdFilter {
      */
     private String scmUrl;
 
+    /**
+     * 前回実行からの変更の検出方法。"list"(省略値):ディレクトリ一覧の比較、"log":SVNログの変更パス。
+     */
+    private String scmChangeDetection = "list";
+
     /**
      * 認証タイプ。null or 期待の文字列ではければ「認証無し」扱い。(今のところ"basic"のみ)
      */
@@ -41,7 +48,8 @@ public class SynchronizeTarget extends IdFilter {
     private String scmPassword;
 
     /**
-     * ソース管理システムのタイプ(今はSVNのみ)
+     * CIサーバのタイプ("Jenkins":Jenkins-cli経由(省略値) , "JenkinsHttp":HTTP(REST API)経由 ,
+     * "InMemory":メモリ上の疑似CIサーバ)
      */
     private String ciType;
 
@@ -50,6 +58,22 @@ public class SynchronizeTarget extends IdFilter {
      */
     private String ciUrl;
 
+    /**
+     * CIサーバの認証時ユーザID(ciTypeが"JenkinsHttp"の時のみ有効。nullなら認証無し)
+     */
+    private String ciUserName;
+
+    /**
+     * CIサーバの認証時APIトークン(ciUserNameの設定があった時のみ有効)
+     */
+    private String ciApiToken;
+
+    /**
+     * jobの作成・無効化・有効化をgroovyスクリプトでまとめて行うか否か。(ciTypeが"JenkinsHttp"の時のみ有効)
+     * 往復は減るが、CIサーバ側で"Overall/RunScripts"(管理者相当)の権限が要る。
+     */
+    private boolean ciScriptBatch = false;
+
     /**
      * ソース管理システム中のコントロールジョブ(下流ジョブを実行するジョブ)名
      */
@@ -65,6 +89,17 @@ public class SynchronizeTarget extends IdFilter {
      */
     private boolean jobDisableByScmDelete = true;
 
+    /**
+     * CIのjob名一覧の控えを保存するディレクトリ。省略時は前回実行情報ファイルと同じディレクトリ。
+     */
+    private String ciJobNameSnapshotDir;
+
+    /**
+     * CIのjob名一覧の控えの有効期間(秒)。過ぎていれば全量を取得し直す。0(省略値)なら控えを使わない、負数なら期限無し。
+     * 控えを使う間は、CIサーバ上で手作業により作成・削除されたjobに気付かない点に注意。
+     */
+    private long ciJobNameSnapshotMaxAge = 0;
+
     // プロパティ:Setter/Getter
 
     public String getLastProfilePath() {
@@ -91,6 +126,23 @@ public class SynchronizeTarget extends IdFilter {
         this.scmUrl = scmUrl;
     }
 
+    public String getScmChangeDetection() {
+        return scmChangeDetection;
+    }
+
+    public void setScmChangeDetection(String scmChangeDetection) {
+        this.scmChangeDetection = scmChangeDetection;
+    }
+
+    /**
+     * 変更の検出にSVNログを使うか否か。
+     *
+     * @return "log"指定なら:true。
+     */
+    public boolean isScmChangeDetectionByLog() {
+        return "log".equalsIgnoreCase(scmChangeDetection);
+    }
+
     public String getCiType() {
         return ciType;
     }
@@ -107,6 +159,30 @@ public class SynchronizeTarget extends IdFilter {
         this.ciUrl = ciUrl;
     }
 
+    public String getCiUserName() {
+        return ciUserName;
+    }
+
+    public void setCiUserName(String ciUserName) {
+        this.ciUserName = ciUserName;
+    }
+
+    public String getCiApiToken() {
+        return ciApiToken;
+    }
+
+    public void setCiApiToken(String ciApiToken) {
+        this.ciApiToken = ciApiToken;
+    }
+
+    public boolean isCiScriptBatch() {
+        return ciScriptBatch;
+    }
+
+    public void setCiScriptBatch(boolean ciScriptBatch) {
+        this.ciScriptBatch = ciScriptBatch;
+    }
+
     public String getJenkinsJobTemplatePath() {
         return jenkinsJobTemplatePath;
     }
@@ -123,6 +199,34 @@ public class SynchronizeTarget extends IdFilter {
         this.jobDisableByScmDelete = jobDisableByScmDelete;
     }
 
+    public String getCiJobNameSnapshotDir() {
+        return ciJobNameSnapshotDir;
+    }
+
+    public void setCiJobNameSnapshotDir(String ciJobNameSnapshotDir) {
+        this.ciJobNameSnapshotDir = ciJobNameSnapshotDir;
+    }
+
+    /**
+     * CIのjob名一覧の控えを保存するディレクトリを返す。
+     *
+     * @return 指定が無ければ、前回実行情報ファイルと同じディレクトリ。
+     */
+    public File getCiJobNameSnapshotDirectory() {
+        if (ciJobNameSnapshotDir != null && ciJobNameSnapshotDir.trim().length() > 0) {
+            return new File(ciJobNameSnapshotDir.trim());
+        }
+        return new File(lastProfilePath.trim()).getAbsoluteFile().getParentFile();
+    }
+
+    public long getCiJobNameSnapshotMaxAge() {
+        return ciJobNameSnapshotMaxAge;
+    }
+
+    public void setCiJobNameSnapshotMaxAge(long ciJobNameSnapshotMaxAge) {
+        this.ciJobNameSnapshotMaxAge = ciJobNameSnapshotMaxAge;
+    }
+
     public String getCiControlJobName() {
         return ciControlJobName;
     }
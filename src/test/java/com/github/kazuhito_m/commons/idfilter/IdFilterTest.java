@@ -3,7 +3,11 @@ package com.github.kazuhito_m.commons.idfilter;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -131,4 +135,54 @@ public class IdFilterTest {
 
     }
 
+    /**
+     * 条件を変更したら、前処理済みの条件も作り直されること。
+     */
+    @Test
+    public void 条件の変更が判定に反映される() {
+        assertThat(sut.isTarget("abc"), is(false));
+
+        sut.getTargetIds().add("^abc$"); // Getter経由で直接追加
+        assertThat(sut.isTarget("abc"), is(true));
+
+        sut.setTargetIds(new ArrayList<String>(Arrays.asList("xyz")));
+        assertThat(sut.isTarget("abc"), is(false));
+        assertThat(sut.isTarget("0xyz0"), is(true));
+
+        sut.reset();
+        assertThat(sut.isTarget("abc"), is(true));
+
+        sut.getExcludeIds().add("b");
+        assertThat(sut.isAppropriate("abc"), is(false));
+        assertThat(sut.filtering(Arrays.asList("abc", "xyz", "b")),
+                is(Arrays.asList("xyz")));
+    }
+
+    /**
+     * 比較フラグごとに判定できること。
+     */
+    @Test
+    public void 比較フラグごとに判定できる() {
+        sut.reset();
+        sut.getTargetIds().add("^Func");
+
+        assertThat(sut.isTarget("func01"), is(false));
+        assertThat(sut.isTarget("func01", Pattern.CASE_INSENSITIVE), is(true));
+        assertThat(sut.isTarget("func01"), is(false));
+    }
+
+    @Test
+    public void 流れてくるIDをConsumerで絞り込める() {
+        sut.reset();
+        sut.getTargetIds().add("^func");
+        sut.getExcludeIds().add("_old$");
+
+        List<String> result = new ArrayList<String>();
+        Consumer<String> filter = sut.filtering(result::add);
+        for (String id : Arrays.asList("func01", "test01", "func02_old", "func03")) {
+            filter.accept(id);
+        }
+        assertThat(result, is(Arrays.asList("func01", "func03")));
+    }
+
 }
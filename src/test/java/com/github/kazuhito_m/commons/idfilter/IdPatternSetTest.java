@@ -0,0 +1,75 @@
+package com.github.kazuhito_m.commons.idfilter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * IdPatternSetのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class IdPatternSetTest {
+
+    private static final List<String> REGEXES = Arrays.asList(
+            "func", "^test", "common$", "^exact$", "a.*b", "(x)\\1", "(?<n>y)\\k<n>",
+            "\\Qq|q", "", "^", "$", "(?x) w v # comment", "z+", "(?i)upper", "(?-i:lower)");
+
+    private static final List<String> IDS = Arrays.asList(
+            "", "func01", "xfunc", "test01", "xtest", "my-common", "common-x",
+            "common\n", "exact", "exact\r\n", "exactly", "a--b", "xx", "x", "yy",
+            "q|q", "q", "zzz", "UPPER", "Upper-x", "wv", "w v", "LOWER", "lower");
+
+    @Test
+    public void 正規表現を一つずつ検査した結果と同じになる() {
+        for (int flag : new int[]{0, Pattern.CASE_INSENSITIVE}) {
+            for (int i = 0; i < REGEXES.size(); i++) {
+                // 一つずつ、および先頭からi個まとめた場合を検査。
+                assertSameAsEach(Collections.singletonList(REGEXES.get(i)), flag);
+                assertSameAsEach(REGEXES.subList(0, i + 1), flag);
+            }
+        }
+    }
+
+    @Test
+    public void 文字列として扱える正規表現は文字列で判定される() {
+        IdPatternSet sut = new IdPatternSet(Arrays.asList("^exact$", "^pre", "suf$", "mid"), 0);
+
+        assertThat(sut.matches("exact"), is(true));
+        assertThat(sut.matches("exact\n"), is(true));
+        assertThat(sut.matches("exactly"), is(false));
+        assertThat(sut.matches("prefix"), is(true));
+        assertThat(sut.matches("xpre"), is(false));
+        assertThat(sut.matches("a-suf"), is(true));
+        assertThat(sut.matches("suf-a"), is(false));
+        assertThat(sut.matches("amidst"), is(true));
+        assertThat(sut.matches("other"), is(false));
+    }
+
+    @Test
+    public void 埋め込みフラグを含む正規表現は後ろの選択に影響しない() {
+        IdPatternSet sut = new IdPatternSet(Arrays.asList("(?x) w v # comment", "z+"), 0);
+
+        assertThat(sut.matches("wv"), is(true));
+        assertThat(sut.matches("zzz"), is(true));
+        assertThat(sut.matches("other"), is(false));
+    }
+
+    private static void assertSameAsEach(List<String> regexes, int flag) {
+        IdPatternSet sut = new IdPatternSet(regexes, flag);
+        for (String id : IDS) {
+            boolean expected = false;
+            for (String regex : regexes) {
+                expected |= Pattern.compile(regex, flag).matcher(id).find();
+            }
+            assertThat(regexes + " : " + id, sut.matches(id), is(expected));
+        }
+    }
+
+}
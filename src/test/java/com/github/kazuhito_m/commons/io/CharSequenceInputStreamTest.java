@@ -0,0 +1,90 @@
+package com.github.kazuhito_m.commons.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * CharSequenceInputStreamのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class CharSequenceInputStreamTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void 日本語を含む文字列が指定の文字コードで読める() throws Exception {
+        String text = "<description>日本語の説明 𠮷</description>";
+
+        // バッファより長い文字列も、小さな単位で読んでも崩れない。
+        assertThat(readAll(new CharSequenceInputStream(text, UTF_8, 4), 3),
+                is(text.getBytes(UTF_8)));
+        assertThat(readAll(new CharSequenceInputStream(new StringBuilder(text),
+                Charset.forName("Shift_JIS")), 1024), is(text.getBytes("Shift_JIS")));
+    }
+
+    @Test
+    public void 一バイトずつ読んでも同じ内容になる() throws Exception {
+        String text = "ジョブ名 job-01";
+        InputStream sut = new CharSequenceInputStream(text, UTF_8, 8);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int b;
+        while ((b = sut.read()) >= 0) {
+            bos.write(b);
+        }
+        assertThat(bos.toByteArray(), is(text.getBytes(UTF_8)));
+        assertThat(sut.read(new byte[1], 0, 1), is(-1));
+    }
+
+    @Test
+    public void 空の文字列は即座に終わる() throws Exception {
+        InputStream sut = new CharSequenceInputStream("", UTF_8);
+        assertThat(sut.read(), is(-1));
+        assertThat(sut.read(new byte[8], 0, 8), is(-1));
+    }
+
+    @Test
+    public void markした位置へresetで戻れる() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("行").append(i).append('\n');
+        }
+        byte[] expected = sb.toString().getBytes(UTF_8);
+        InputStream sut = new CharSequenceInputStream(sb, UTF_8, 16);
+        assertThat(sut.markSupported(), is(true));
+
+        // 先頭でmarkし、読み切った後に戻る。(jenkins-cliの再送と同じ使い方)
+        sut.mark(Integer.MAX_VALUE);
+        assertThat(readAll(sut, 7), is(expected));
+        sut.reset();
+        assertThat(readAll(sut, 100), is(expected));
+
+        // 途中でmarkした場合も、その位置から読み直せる。
+        sut.reset();
+        assertThat(sut.skip(50), is(50L));
+        sut.mark(0);
+        byte[] rest = readAll(sut, 5);
+        sut.reset();
+        assertThat(readAll(sut, 64), is(rest));
+        assertThat(rest, is(Arrays.copyOfRange(expected, 50, expected.length)));
+    }
+
+    private static byte[] readAll(InputStream is, int chunk) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[chunk];
+        int len;
+        while ((len = is.read(buf, 0, buf.length)) >= 0) {
+            bos.write(buf, 0, len);
+        }
+        return bos.toByteArray();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.github.kazuhito_m.commons.io;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * LineConsumerOutputStream・StringBuilderDecodingOutputStreamのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class LineConsumerOutputStreamTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void 文字の途中で分かれた書き込みでも行が崩れない() throws Exception {
+        byte[] bytes = "ジョブ1\r\nジョブ2\n末尾".getBytes(UTF_8);
+        List<String> lines = new ArrayList<String>();
+        OutputStream sut = new LineConsumerOutputStream(UTF_8, lines::add);
+
+        // 3バイトの文字が必ず分かれるよう、2バイトずつ書き込む。
+        for (int off = 0; off < bytes.length; off += 2) {
+            sut.write(bytes, off, Math.min(2, bytes.length - off));
+        }
+        assertThat(lines, is(Arrays.asList("ジョブ1", "ジョブ2")));
+
+        // 改行で終わらない末尾の行は、closeで渡される。
+        sut.close();
+        assertThat(lines, is(Arrays.asList("ジョブ1", "ジョブ2", "末尾")));
+    }
+
+    @Test
+    public void 一バイトずつの書き込みでも行に分かれる() throws Exception {
+        byte[] bytes = "項目A\n\n項目B\n".getBytes("Shift_JIS");
+        List<String> lines = new ArrayList<String>();
+        OutputStream sut = new LineConsumerOutputStream(Charset.forName("Shift_JIS"), lines::add);
+        for (byte b : bytes) {
+            sut.write(b);
+        }
+        sut.close();
+        assertThat(lines, is(Arrays.asList("項目A", "", "項目B")));
+    }
+
+    @Test
+    public void StringBuilderへ分かれた書き込みを正しく追記できる() throws Exception {
+        String text = "エラー : job 'テスト' は存在しません 𠮷";
+        byte[] bytes = text.getBytes(UTF_8);
+        StringBuilder sb = new StringBuilder();
+        OutputStream sut = new StringBuilderDecodingOutputStream(sb, UTF_8);
+        for (int off = 0; off < bytes.length; off += 5) {
+            sut.write(bytes, off, Math.min(5, bytes.length - off));
+        }
+        sut.flush();
+        assertThat(sb.toString(), is(text));
+
+        // 文字の途中で終われば、置換文字となる。
+        sut.write(bytes, 0, 4);
+        sut.close();
+        assertThat(sb.toString(), is(text + "エ�"));
+    }
+
+}
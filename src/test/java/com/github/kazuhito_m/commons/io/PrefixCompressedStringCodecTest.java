@@ -0,0 +1,51 @@
+package com.github.kazuhito_m.commons.io;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PrefixCompressedStringCodecのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class PrefixCompressedStringCodecTest {
+
+    @Test
+    public void 整列され前方一致部分が省略される() {
+        String actual = PrefixCompressedStringCodec.encode(
+                Arrays.asList("func0002", "common", "func0001", "func0001"));
+
+        assertThat(actual, is("0,common\n0,func0001\n7,2\n"));
+    }
+
+    @Test
+    public void 詰めたものを元に戻せる() {
+        List<String> names = Arrays.asList("a", "ab", "abc", "b", "業務共通",
+                "業務画面", "𠮷野家", "𠮸");
+
+        List<String> actual = PrefixCompressedStringCodec.decode(
+                PrefixCompressedStringCodec.encode(names));
+
+        assertThat(actual, is(names));
+    }
+
+    @Test
+    public void 空の場合() {
+        String encoded = PrefixCompressedStringCodec.encode(new ArrayList<String>());
+
+        assertThat(encoded, is(""));
+        assertThat(PrefixCompressedStringCodec.decode(encoded).isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 壊れたデータは例外() {
+        PrefixCompressedStringCodec.decode("0,abc\n1");
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.github.kazuhito_m.commons.log;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * AsyncConsoleAppenderのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class AsyncConsoleAppenderTest {
+
+    private static final String NL = System.getProperty("line.separator");
+
+    private AsyncConsoleAppender sut;
+
+    @After
+    public void tearDown() throws Exception {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
+    @Test
+    public void flushすると積んだ行が順番通りにすべて書き出される() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sut = new AsyncConsoleAppender(new PrintStream(bos, true, "UTF-8"), 16,
+                AsyncConsoleAppender.OverflowPolicy.BLOCK, 4);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sut.append("行" + i);
+            expected.append("行").append(i).append(NL);
+        }
+        sut.flush();
+
+        assertThat(bos.toString("UTF-8"), is(expected.toString()));
+    }
+
+    @Test
+    public void 満杯時に捨てる設定なら捨てた件数がflush時に報告される() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sut = new AsyncConsoleAppender(new PrintStream(new GateOutputStream(bos, release), true),
+                2, AsyncConsoleAppender.OverflowPolicy.DISCARD, 1);
+
+        // 一行目の書き出しで止めておき、キュー(2行)を溢れさせる。
+        for (int i = 0; i < 10; i++) {
+            sut.append("line" + i);
+        }
+        assertThat(sut.getDiscardedCount() > 0, is(true));
+        release.countDown();
+        sut.flush();
+
+        String out = bos.toString();
+        assertThat(out, containsString("line0" + NL));
+        assertThat(out, containsString("log messages discarded (log queue full)."));
+        assertThat(sut.getDiscardedCount(), is(0L));
+    }
+
+    @Test
+    public void close後の行は直接書き出される() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sut = new AsyncConsoleAppender(new PrintStream(bos, true), 16,
+                AsyncConsoleAppender.OverflowPolicy.BLOCK, 4);
+        sut.append("before");
+        sut.close();
+        sut.append("after");
+
+        assertThat(bos.toString(), is("before" + NL + "after" + NL));
+    }
+
+    @Test
+    public void closeと同時に積まれた行も失われない() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sut = new AsyncConsoleAppender(new PrintStream(bos, true), 4,
+                AsyncConsoleAppender.OverflowPolicy.BLOCK, 2);
+        final int threads = 4;
+        final int lines = 2000;
+        final CountDownLatch started = new CountDownLatch(threads);
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            producers[t] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < lines; i++) {
+                    sut.append("x");
+                }
+            });
+            producers[t].start();
+        }
+
+        // Act-実行 書き出しの最中に閉じる。
+        started.await();
+        sut.close();
+        for (Thread producer : producers) {
+            producer.join(10 * 1000);
+            assertThat(producer.isAlive(), is(false));
+        }
+
+        // Assert-検証
+        String out = bos.toString();
+        assertThat(out.length(), is(threads * lines * ("x" + NL).length()));
+    }
+
+    @Test
+    public void CustomSystemStreamLogから非同期に出力できる() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sut = new AsyncConsoleAppender(new PrintStream(bos, true), 16,
+                AsyncConsoleAppender.OverflowPolicy.BLOCK, 4);
+        CustomSystemStreamLog log = new CustomSystemStreamLog();
+        log.setAppender(sut);
+
+        log.info("INFO"); // しきい値(警告)未満なので出ない。
+        log.warn("WARN");
+        log.error("ERROR", new IllegalStateException("broken"));
+        sut.flush();
+
+        String out = bos.toString();
+        assertThat(out.startsWith("[WARNING] WARN" + NL + "[ERROR] ERROR" + NL
+                + "java.lang.IllegalStateException: broken"), is(true));
+    }
+
+    /**
+     * 最初の書き込みを、合図があるまで止める出力先。
+     */
+    private static class GateOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final CountDownLatch release;
+
+        GateOutputStream(OutputStream out, CountDownLatch release) {
+            this.out = out;
+            this.release = release;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            await();
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            await();
+            out.write(b, off, len);
+        }
+
+        private void await() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
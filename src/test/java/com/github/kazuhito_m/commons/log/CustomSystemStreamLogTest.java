@@ -78,6 +78,27 @@ public class CustomSystemStreamLogTest {
         }
     }
 
+    @Test
+    public void 出力しないレベルではSupplierのメッセージは組み立てられない() throws IOException {
+        final int[] built = {0};
+
+        sut.debug(() -> {
+            built[0]++;
+            return "DEBUG";
+        });
+        sut.info(() -> "INFO" + (++built[0]));
+        assertThat(built[0], is(0));
+
+        sut.warn(() -> "WARN" + (++built[0]));
+        assertThat(built[0], is(1));
+
+        // 履歴を取っている間は、出力しないレベルでも記録のため組み立てる。
+        sut.setHistoryOn(true);
+        sut.debug(() -> "DEBUG" + (++built[0]));
+        assertThat(built[0], is(2));
+        assertThat(sut.getHistory(LEVEL_DEBUG).get(0).getMessage(), is("DEBUG2"));
+    }
+
     public void 履歴機能で絞り込みが正しく行えるか() throws IOException {
         // 履歴がきちんと設定されるかのテスト
         sut.setDebugEnabled(true);
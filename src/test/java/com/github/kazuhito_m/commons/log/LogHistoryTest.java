@@ -0,0 +1,129 @@
+package com.github.kazuhito_m.commons.log;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.codehaus.plexus.logging.Logger.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * LogHistoryのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class LogHistoryTest {
+
+    @Test
+    public void 容量は2のべき乗に切り上げられ溢れたら古いものから捨てられる() throws Exception {
+        LogHistory sut = new LogHistory(3);
+        assertThat(sut.getCapacity(), is(4));
+
+        sut.add(detail(LEVEL_INFO, "1"));
+        sut.add(detail(LEVEL_ERROR, "2"));
+        sut.add(detail(LEVEL_INFO, "3"));
+        sut.add(detail(LEVEL_DEBUG, "4"));
+        sut.add(detail(LEVEL_INFO, "5"));
+        sut.add(detail(LEVEL_INFO, "6"));
+
+        assertThat(sut.size(), is(4));
+        assertThat(messages(sut.toList()), is("3,4,5,6"));
+        assertThat(messages(sut.toList(LEVEL_INFO)), is("3,5,6"));
+        assertThat(messages(sut.toList(LEVEL_ERROR)), is(""));
+    }
+
+    @Test
+    public void レベル指定の取得は古い順に並び重複や範囲外のレベルは無視される() throws Exception {
+        LogHistory sut = new LogHistory();
+        sut.add(detail(LEVEL_FATAL, "F1"));
+        sut.add(detail(LEVEL_DEBUG, "D1"));
+        sut.add(detail(LEVEL_WARN, "W1"));
+        sut.add(detail(LEVEL_ERROR, "E1"));
+        sut.add(detail(LEVEL_DEBUG, "D2"));
+        sut.add(detail(LEVEL_DISABLED, "X"));
+
+        assertThat(messages(sut.toList(LEVEL_ERROR, LEVEL_DEBUG, LEVEL_FATAL, LEVEL_DEBUG, 99)),
+                is("F1,D1,E1,D2"));
+        assertThat(sut.size(), is(5));
+    }
+
+    @Test
+    public void 遅れた書き込みは一周後の新しい履歴を上書きしない() throws Exception {
+        LogHistory sut = new LogHistory(4);
+        LogDetail delayed = detail(LEVEL_DEBUG, "D0");
+        sut.add(delayed);
+        for (int i = 1; i <= 4; i++) {
+            sut.add(detail(LEVEL_DEBUG, "D" + i));
+        }
+
+        // Act-実行 D0の書き込みが、D4(同じ位置)の後に届いたものとする。
+        sut.store(delayed);
+
+        // Assert-検証
+        assertThat(messages(sut.toList()), is("D1,D2,D3,D4"));
+    }
+
+    @Test
+    public void 複数スレッドから同時に追加できる() throws Exception {
+        final LogHistory sut = new LogHistory(1 << 14);
+        final int threads = 4;
+        final int perThread = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        sut.add(detail(i % 5, id + "-" + i));
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<LogDetail> all = sut.toList();
+        assertThat(all.size(), is(threads * perThread));
+        Set<String> unique = new HashSet<String>();
+        for (LogDetail detail : all) {
+            unique.add(detail.getMessage());
+        }
+        assertThat(unique.size(), is(threads * perThread));
+        assertThat(sut.toList(LEVEL_WARN).size(), is(threads * perThread / 5));
+    }
+
+    private static LogDetail detail(int level, String message) {
+        LogDetail detail = new LogDetail();
+        detail.setLevel(level);
+        detail.setMessage(message);
+        detail.setOutputTimeMillis(System.currentTimeMillis());
+        return detail;
+    }
+
+    private static String messages(List<LogDetail> details) {
+        StringBuilder sb = new StringBuilder();
+        for (LogDetail detail : details) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(detail.getMessage());
+        }
+        return sb.toString();
+    }
+
+}
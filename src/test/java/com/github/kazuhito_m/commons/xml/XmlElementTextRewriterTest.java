@@ -0,0 +1,80 @@
+package com.github.kazuhito_m.commons.xml;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * XmlElementTextRewriterのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class XmlElementTextRewriterTest {
+
+    private final XmlElementTextRewriter sut = new XmlElementTextRewriter(
+            "publishers", "hudson.tasks.BuildTrigger", "childProjects");
+
+    @Test
+    public void 対象要素の内容だけが差し替えられ元の内容が受け取れる() throws Exception {
+        String xml = "<?xml version='1.0' encoding='UTF-8'?>"
+                + "<project><description>説明 &amp; 注意</description><publishers>"
+                + "<hudson.tasks.BuildTrigger><childProjects>old1,old2</childProjects>"
+                + "<threshold><name>SUCCESS</name></threshold>"
+                + "</hudson.tasks.BuildTrigger></publishers></project>";
+        StringBuilder previous = new StringBuilder();
+
+        String result = rewrite(xml, "a,b", previous);
+
+        assertThat(previous.toString(), is("old1,old2"));
+        assertThat(result, containsString("<description>説明 &amp; 注意</description>"));
+        assertThat(result, containsString("<hudson.tasks.BuildTrigger><childProjects>a,b</childProjects>"
+                + "<threshold><name>SUCCESS</name></threshold></hudson.tasks.BuildTrigger>"));
+    }
+
+    @Test
+    public void 途中の要素が無ければ作られる() throws Exception {
+        assertThat(rewrite("<project><publishers/><builders/></project>", "a", null),
+                containsString("<project><publishers><hudson.tasks.BuildTrigger>"
+                        + "<childProjects>a</childProjects></hudson.tasks.BuildTrigger>"
+                        + "</publishers><builders></builders></project>"));
+        assertThat(rewrite("<project><publishers><hudson.tasks.BuildTrigger/></publishers></project>",
+                "a", null),
+                containsString("<hudson.tasks.BuildTrigger><childProjects>a</childProjects>"
+                        + "</hudson.tasks.BuildTrigger>"));
+    }
+
+    @Test
+    public void 同名要素は最初のものだけが対象で経路外の同名要素は変わらない() throws Exception {
+        String result = rewrite("<project><childProjects>x</childProjects><publishers>"
+                + "<hudson.tasks.BuildTrigger><childProjects>1</childProjects>"
+                + "<childProjects>2</childProjects></hudson.tasks.BuildTrigger>"
+                + "</publishers></project>", "<new>", null);
+
+        assertThat(result, containsString("<project><childProjects>x</childProjects><publishers>"
+                + "<hudson.tasks.BuildTrigger><childProjects>&lt;new&gt;</childProjects>"
+                + "<childProjects>2</childProjects>"));
+    }
+
+    @Test
+    public void 経路の先頭の要素が無ければ変更しない() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean rewritten = sut.rewrite(new ByteArrayInputStream(
+                "<project><builders/></project>".getBytes("UTF-8")), out, "a", null);
+
+        assertThat(rewritten, is(false));
+        assertThat(out.toString("UTF-8").contains("childProjects"), is(false));
+    }
+
+    private String rewrite(String xml, String text, StringBuilder previous) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(sut.rewrite(new ByteArrayInputStream(xml.getBytes("UTF-8")), out, text, previous),
+                is(true));
+        return out.toString("UTF-8");
+    }
+
+}
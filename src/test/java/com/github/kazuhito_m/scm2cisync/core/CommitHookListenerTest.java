@@ -0,0 +1,187 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiServer;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmRepository;
+import com.github.kazuhito_m.scm2cisync.core.store.JobNameSnapshotStore;
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * CommitHookListenerのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class CommitHookListenerTest {
+
+    private static final String SCM_URL = "mem://hook-scm?dirs=2";
+
+    private SynchronizeTarget st;
+
+    private File lastProfile;
+
+    private SynchronizeWatcher watcher;
+
+    private CommitHookListener sut;
+
+    private Thread watcherThread;
+
+    private final List<SynchronizeResult> results =
+            Collections.synchronizedList(new ArrayList<SynchronizeResult>());
+
+    @Before
+    public void setUp() throws Exception {
+        st = new SynchronizeTarget();
+        st.setScmType("InMemory");
+        st.setScmUrl(SCM_URL);
+        st.setCiType("InMemory");
+        st.setCiUrl("mem://hook-ci?controlJob=" + TestConstants.TEST_JEKNINS_JOB);
+        st.setCiControlJobName(TestConstants.TEST_JEKNINS_JOB);
+        st.setJenkinsJobTemplatePath("src/test/resources/com/github/kazuhito_m/scm2cisync/core/config.xml");
+        lastProfile = File.createTempFile("scmHookLastProfile", ".xml");
+        lastProfile.delete();
+        st.setLastProfilePath(lastProfile.getPath());
+
+        CustomSystemStreamLog log = new CustomSystemStreamLog();
+        ScmToCiSynchronizer synchronizer = new ScmToCiSynchronizer();
+        synchronizer.setLog(log);
+        watcher = new SynchronizeWatcher(synchronizer, new SynchronizeExecutor(synchronizer),
+                Arrays.asList(st));
+        watcher.setLog(log);
+        // 定期確認は来ない長さにして、通知だけで同期されることを確かめる。
+        watcher.setPollIntervalMillis(10 * 60 * 1000);
+        watcher.setCoalesceMillis(300);
+        watcher.setResultListener(results::addAll);
+
+        sut = new CommitHookListener(watcher);
+        sut.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sut.stop();
+        watcher.stop();
+        if (watcherThread != null) {
+            watcherThread.join(10 * 1000);
+        }
+        lastProfile.delete();
+        JobNameSnapshotStore.fileOf(st.getCiJobNameSnapshotDirectory(), st.getCiUrl()).delete();
+        InMemoryScmRepository.clear();
+        InMemoryCiServer.clear();
+    }
+
+    @Test
+    public void 続けて届いたコミット通知は一回の同期にまとまる() throws Exception {
+        InMemoryScmRepository repository = InMemoryScmRepository.of(SCM_URL);
+        InMemoryCiServer server = InMemoryCiServer.of(st.getCiUrl());
+        watcherThread = new Thread(watcher::run);
+        watcherThread.start();
+        awaitResults(1); // 起動直後の初回同期。
+
+        // Act-実行
+        long rev = 0;
+        for (String name : new String[]{"added1", "added2", "added3"}) {
+            rev = repository.commit(Arrays.asList(name), new ArrayList<String>());
+            assertThat(post("repository=mem://hook-scm&revision=" + rev), is(202));
+        }
+        awaitResults(2);
+        Thread.sleep(600);
+
+        // Assert-検証
+        assertThat(results.size(), is(2));
+        assertThat(server.getJobNames().containsAll(
+                Arrays.asList("added1", "added2", "added3")), is(true));
+        // 同期済みのリビジョンの通知は受け流す。
+        assertThat(post("repository=mem://hook-scm&revision=" + rev), is(200));
+    }
+
+    @Test
+    public void 対象外のリポジトリや不正な通知では同期しない() throws Exception {
+        assertThat(post("repository=" + URLEncoder.encode("http://svn/other", "UTF-8")), is(200));
+        assertThat(post("revision=3"), is(400));
+        assertThat(post("repository=mem://hook-scm&revision=x"), is(400));
+        assertThat(post("repository=%zz"), is(400));
+        assertThat(request("GET", "/commit?repository=%zz", null), is(400));
+        assertThat(request("PUT", "/commit", null), is(405));
+        assertThat(request("GET", "/commit?repository=mem://hook-scm/trunk", null), is(202));
+    }
+
+    @Test
+    public void 合言葉を設定すると一致しない通知は拒否する() throws Exception {
+        sut.setSecret("s3cret");
+
+        assertThat(post("repository=http://svn/other"), is(403));
+        assertThat(post("repository=http://svn/other&secret=wrong"), is(403));
+        assertThat(post("repository=http://svn/other&secret=s3cret"), is(200));
+        assertThat(request("GET", "/commit?repository=http://svn/other",
+                null, "s3cret"), is(200));
+    }
+
+    @Test
+    public void coversはリポジトリの親子関係で判定する() {
+        String url = "http://svn.example.com/repos/trunk/";
+        assertThat(SynchronizeWatcher.covers(url, "http://svn.example.com/repos"), is(true));
+        assertThat(SynchronizeWatcher.covers(url, "http://svn.example.com/repos/trunk/projA"), is(true));
+        assertThat(SynchronizeWatcher.covers(url, "http://svn.example.com/repos2"), is(false));
+        assertThat(SynchronizeWatcher.covers(url, "/repos"), is(true));
+        assertThat(SynchronizeWatcher.covers("file:///var/svn/repos/trunk", "/var/svn/repos"), is(true));
+        assertThat(SynchronizeWatcher.covers("file:///var/svn/repos/trunk", "/var/svn/re"), is(false));
+    }
+
+    private void awaitResults(int count) throws InterruptedException {
+        long limit = System.currentTimeMillis() + 10 * 1000;
+        while (results.size() < count && System.currentTimeMillis() < limit) {
+            Thread.sleep(20);
+        }
+        assertThat(results.size(), is(count));
+    }
+
+    private int post(String form) throws IOException {
+        return request("POST", CommitHookListener.CONTEXT_PATH, form);
+    }
+
+    private int request(String method, String path, String form) throws IOException {
+        return request(method, path, form, null);
+    }
+
+    private int request(String method, String path, String form, String secret)
+            throws IOException {
+        URL url = new URL("http://127.0.0.1:" + sut.getPort() + path);
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        try {
+            con.setRequestMethod(method);
+            if (secret != null) {
+                con.setRequestProperty(CommitHookListener.SECRET_HEADER, secret);
+            }
+            if (form != null) {
+                con.setDoOutput(true);
+                con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                OutputStream os = con.getOutputStream();
+                os.write(form.getBytes("UTF-8"));
+                os.close();
+            }
+            return con.getResponseCode();
+        } finally {
+            con.disconnect();
+        }
+    }
+
+}
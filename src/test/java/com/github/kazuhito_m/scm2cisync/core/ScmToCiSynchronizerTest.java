@@ -1,9 +1,17 @@
 package com.github.kazuhito_m.scm2cisync.core;
 
 import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiServer;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.SnapshotCiControler;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
 import com.github.kazuhito_m.scm2cisync.core.controller.ci.JenkinsControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmRepository;
 import com.github.kazuhito_m.scm2cisync.core.controller.scm.SubversionControler;
+import com.github.kazuhito_m.scm2cisync.core.store.JobNameSnapshotStore;
 import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -11,7 +19,10 @@ import org.tmatesoft.svn.core.SVNAuthenticationException;
 
 import java.io.File;
 import java.util.*;
+import java.util.function.Consumer;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 /**
@@ -53,11 +64,107 @@ public class ScmToCiSynchronizerTest {
         this.sut = t;
     }
 
+    @After
+    public void tearDown() throws Exception {
+        InMemoryScmRepository.clear();
+        InMemoryCiServer.clear();
+    }
+
     @Test
     public void dummy() {
 
     }
 
+    @Test
+    public void InMemoryのSCMとCIで同期できる() throws Exception {
+        // Arrange-準備
+        st.setScmType("InMemory");
+        st.setScmUrl("mem://synchronize-scm?dirs=3");
+        st.setCiType("InMemory");
+        st.setCiUrl("mem://synchronize-ci?controlJob=" + TestConstants.TEST_JEKNINS_JOB);
+        st.setJenkinsJobTemplatePath("src/test/resources/com/github/kazuhito_m/scm2cisync/core/config.xml");
+        File lastProfile = File.createTempFile("scmSyncLastProfile", ".xml");
+        lastProfile.delete();
+        st.setLastProfilePath(lastProfile.getPath());
+        InMemoryScmRepository repository = InMemoryScmRepository.of(st.getScmUrl());
+        InMemoryCiServer server = InMemoryCiServer.of(st.getCiUrl());
+
+        try {
+            // Act-実行
+            sut.synchronize(st);
+            repository.commit(Arrays.asList("added"), Arrays.asList("project00001"));
+            sut.synchronize(st);
+
+            // Assert-検証
+            assertThat(server.getJobNames(), is(Arrays.asList("added",
+                    TestConstants.TEST_JEKNINS_JOB,
+                    "project00001", "project00002", "project00003")));
+            assertThat(server.isDisabled("project00001"), is(true));
+            List<String> children = server.getChildJobs(TestConstants.TEST_JEKNINS_JOB);
+            Collections.sort(children);
+            assertThat(children, is(Arrays.asList("added",
+                    "project00001", "project00002", "project00003")));
+        } finally {
+            lastProfile.delete();
+            JobNameSnapshotStore.fileOf(st.getCiJobNameSnapshotDirectory(),
+                    st.getCiUrl()).delete();
+        }
+    }
+
+    @Test
+    public void 後始末の失敗は同期自体の失敗を隠さない() throws Exception {
+        // Arrange-準備
+        st.setScmType("InMemory");
+        st.setScmUrl("mem://cleanup-scm?dirs=1");
+        st.setCiType("InMemory");
+        st.setCiUrl("mem://cleanup-ci?controlJob=" + TestConstants.TEST_JEKNINS_JOB);
+        st.setJenkinsJobTemplatePath("src/test/resources/com/github/kazuhito_m/scm2cisync/core/config.xml");
+        File lastProfile = File.createTempFile("scmSyncLastProfile", ".xml");
+        lastProfile.delete();
+        st.setLastProfilePath(lastProfile.getPath());
+        final boolean[] listFails = {true};
+        ScmToCiSynchronizer failing = new ScmToCiSynchronizer() {
+            @Override
+            protected CiControler createCiControler(SynchronizeTarget st) {
+                InMemoryCiControler controler = new InMemoryCiControler() {
+                    @Override
+                    public void enumerateJobNames(Consumer<String> consumer) throws Exception {
+                        if (listFails[0]) {
+                            throw new IllegalStateException("list failed");
+                        }
+                        super.enumerateJobNames(consumer);
+                    }
+
+                    @Override
+                    public void close() {
+                        throw new IllegalStateException("close failed");
+                    }
+                };
+                controler.setUrlPath(st.getCiUrl());
+                return new SnapshotCiControler(controler, new JobNameSnapshot(st.getCiUrl()), -1);
+            }
+        };
+        failing.setLog(new CustomSystemStreamLog());
+
+        try {
+            // Act-実行 & Assert-検証
+            try {
+                failing.synchronize(st);
+                fail("例外が起こるべき箇所でおこらない。");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), is("list failed"));
+            }
+            // 同期自体が成功すれば、後始末の失敗は例外にならない。
+            listFails[0] = false;
+            failing.synchronize(st);
+            assertThat(lastProfile.exists(), is(true));
+        } finally {
+            lastProfile.delete();
+            JobNameSnapshotStore.fileOf(st.getCiJobNameSnapshotDirectory(),
+                    st.getCiUrl()).delete();
+        }
+    }
+
     @Ignore
     public void testAddCiJob001() throws Exception {
         // Arrange-準備
@@ -0,0 +1,128 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * SynchronizeExecutorのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeExecutorTest {
+
+    private List<SynchronizeTarget> targets;
+
+    @Before
+    public void setUp() throws Exception {
+        // 3件の同期対象を用意。2件目だけ失敗させる。
+        targets = new ArrayList<SynchronizeTarget>();
+        for (String name : new String[]{"ok1", "ng", "ok2"}) {
+            SynchronizeTarget st = new SynchronizeTarget();
+            st.setScmUrl("http://localhost/repos/" + name + "/trunk/");
+            st.setCiUrl("http://localhost:8080/");
+            st.setLastProfilePath("target/" + name + ".xml");
+            targets.add(st);
+        }
+    }
+
+    @Test
+    public void 順次実行で一件失敗しても残りが実行される() throws Exception {
+        final List<String> done = new ArrayList<String>();
+        SynchronizeExecutor sut = new SynchronizeExecutor(new ScmToCiSynchronizer() {
+            @Override
+            public void synchronize(SynchronizeTarget st, SynchronizeGroup group)
+                    throws Exception {
+                if (st.getScmUrl().contains("/ng/")) {
+                    throw new IllegalStateException("ng");
+                }
+                done.add(st.getScmUrl());
+            }
+        });
+
+        List<SynchronizeResult> results = sut.execute(targets);
+
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).isSucceed(), is(false));
+        assertThat(results.get(1).getError().getMessage(), is("ng"));
+        assertThat(results.get(2).isSucceed(), is(true));
+        assertThat(done.size(), is(2));
+    }
+
+    @Test
+    public void 並列実行で同期対象が同時に処理される() throws Exception {
+        // 全件が揃うまで待つため、並列でなければタイムアウトする。
+        final CountDownLatch latch = new CountDownLatch(targets.size());
+        SynchronizeExecutor sut = new SynchronizeExecutor(new ScmToCiSynchronizer() {
+            @Override
+            public void synchronize(SynchronizeTarget st, SynchronizeGroup group)
+                    throws Exception {
+                latch.countDown();
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("not parallel");
+                }
+                if (st.getScmUrl().contains("/ng/")) {
+                    throw new IllegalStateException("ng");
+                }
+            }
+        });
+        sut.setThreadCount(3);
+
+        List<SynchronizeResult> results = sut.execute(targets);
+
+        // 結果は引数の順番通りに返る。
+        assertThat(results.get(0).getTarget(), is(targets.get(0)));
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).isSucceed(), is(false));
+        assertThat(results.get(2).isSucceed(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 並列実行時に前回実行情報ファイルが重複していたらエラー() throws Exception {
+        targets.get(2).setLastProfilePath(targets.get(0).getLastProfilePath());
+        SynchronizeExecutor sut = new SynchronizeExecutor(new ScmToCiSynchronizer());
+        sut.setThreadCount(2);
+
+        sut.execute(targets);
+    }
+
+    @Test
+    public void 同じ接続先の同期対象はまとめて順番に実行される() throws Exception {
+        // 1件目と3件目を同じSCM・CIに向ける。(URL末尾の"/"の有無は問わない)
+        targets.get(2).setScmUrl("http://localhost/repos/ok1/trunk");
+        final List<SynchronizeGroup> groups = new ArrayList<SynchronizeGroup>();
+        final List<String> done = new ArrayList<String>();
+        SynchronizeExecutor sut = new SynchronizeExecutor(new ScmToCiSynchronizer() {
+            @Override
+            public void synchronize(SynchronizeTarget st, SynchronizeGroup group)
+                    throws Exception {
+                synchronized (done) {
+                    groups.add(group);
+                    done.add(st.getLastProfilePath());
+                }
+            }
+        });
+        sut.setThreadCount(3);
+
+        List<SynchronizeResult> results = sut.execute(targets);
+
+        assertThat(results.get(2).getTarget(), is(targets.get(2)));
+        assertThat(groups.get(done.indexOf("target/ok1.xml")),
+                is(groups.get(done.indexOf("target/ok2.xml"))));
+        assertThat(groups.get(done.indexOf("target/ok1.xml"))
+                == groups.get(done.indexOf("target/ng.xml")), is(false));
+        // まとまり内は設定順。
+        assertThat(done.indexOf("target/ok1.xml") < done.indexOf("target/ok2.xml"), is(true));
+    }
+
+}
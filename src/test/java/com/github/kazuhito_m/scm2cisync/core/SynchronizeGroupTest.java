@@ -0,0 +1,195 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.JenkinsControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.SubversionControler;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * SynchronizeGroupのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeGroupTest {
+
+    private SynchronizeTarget func;
+
+    private SynchronizeTarget test;
+
+    private SynchronizeTarget other;
+
+    @Before
+    public void setUp() throws Exception {
+        func = target("http://localhost/repos/a/trunk/", "^func");
+        test = target("http://localhost/repos/a/trunk", "^test");
+        other = target("http://localhost/repos/b/trunk/", "^func");
+    }
+
+    @Test
+    public void 接続先ごとにまとめられる() {
+        List<SynchronizeGroup> groups =
+                SynchronizeGroup.group(Arrays.asList(func, other, test));
+
+        assertThat(groups.size(), is(2));
+        assertThat(groups.get(0).getTargets(), is(Arrays.asList(func, test)));
+        assertThat(groups.get(1).getTargets(), is(Arrays.asList(other)));
+    }
+
+    @Test
+    public void job名一覧は一度だけ取得され全対象分が絞り込まれる() throws Exception {
+        SynchronizeGroup sut = new SynchronizeGroup(Arrays.asList(func, test));
+        CountingJenkins jenkins = new CountingJenkins();
+
+        assertThat(sut.getFilteredJobNames(jenkins, func),
+                is(Arrays.asList("func1", "func2")));
+        assertThat(sut.getFilteredJobNames(jenkins, test),
+                is(Arrays.asList("test1")));
+        assertThat(jenkins.count, is(1));
+
+        // 変更後は取り直す。
+        sut.invalidateJobNames();
+        sut.getFilteredJobNames(jenkins, test);
+        assertThat(jenkins.count, is(2));
+    }
+
+    @Test
+    public void job名一覧が終端行まで届かなければ例外となる() throws Exception {
+        SynchronizeGroup sut = new SynchronizeGroup(Arrays.asList(func, test));
+        CountingJenkins jenkins = new CountingJenkins();
+        jenkins.output = "func1\ntest1\n";
+
+        try {
+            sut.getFilteredJobNames(jenkins, func);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage().contains("2 jobs"), is(true));
+        }
+
+        // 途中までの一覧は残さず、次回取り直す。
+        jenkins.output = "func1\n/END_OF_JOB_NAMES/\n";
+        assertThat(sut.getFilteredJobNames(jenkins, func), is(Arrays.asList("func1")));
+        assertThat(jenkins.count, is(2));
+    }
+
+    @Test
+    public void SCMの情報はリビジョンごとに一度だけ取得される() throws Exception {
+        SynchronizeGroup sut = new SynchronizeGroup(Arrays.asList(func, test));
+        CountingSubversion svn = new CountingSubversion();
+
+        assertThat(sut.getHeadRevisionNo(svn), is(10L));
+        assertThat(sut.getHeadRevisionNo(svn), is(10L));
+        List<String> names = sut.getDirNameList(svn, 10L);
+        names.add("changed"); // 返されるのは写し。
+        assertThat(sut.getDirNameList(svn, 10L), is(Arrays.asList("func1", "test1")));
+        sut.getDirNameList(svn, 9L);
+
+        assertThat(svn.headCount, is(1));
+        assertThat(svn.listCount, is(2));
+    }
+
+    @Test
+    public void 二つのリビジョンの一覧は並行して一度だけ取得される() throws Exception {
+        SynchronizeGroup sut = new SynchronizeGroup(Arrays.asList(func, test));
+        CountingSubversion svn = new CountingSubversion();
+
+        List<List<String>> lists = sut.getDirNameLists(svn, 10L, 9L);
+        sut.getDirNameList(svn, 9L);
+
+        assertThat(lists.get(0), is(Arrays.asList("func1", "test1")));
+        assertThat(lists.get(1), is(Arrays.asList("func1", "test1")));
+        assertThat(svn.listCount, is(2));
+    }
+
+    @Test
+    public void 一覧の片方が実行時例外で失敗すればもう片方も取り消される() throws Exception {
+        SynchronizeGroup sut = new SynchronizeGroup(Arrays.asList(func, test));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        SubversionControler svn = new SubversionControler() {
+            @Override
+            public List<String> getDirNameList(long revisionNo) throws SVNException {
+                if (revisionNo == 10L) {
+                    // 別スレッド側。取り消されるまで待つ。
+                    started.countDown();
+                    try {
+                        Thread.sleep(10 * 1000);
+                    } catch (InterruptedException e) {
+                        cancelled.countDown();
+                    }
+                    return new ArrayList<String>();
+                }
+                try {
+                    started.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("listing failed");
+            }
+        };
+
+        try {
+            sut.getDirNameLists(svn, 10L, 9L);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("listing failed"));
+        }
+        assertThat(cancelled.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    private static SynchronizeTarget target(String scmUrl, String targetId) {
+        SynchronizeTarget st = new SynchronizeTarget();
+        st.setScmUrl(scmUrl);
+        st.setCiUrl("http://localhost:8080/");
+        st.getTargetIds().add(targetId);
+        return st;
+    }
+
+    private static class CountingJenkins extends JenkinsControler {
+        private int count = 0;
+
+        private String output = "func1\ntest1\nfunc2\nmisc\n/END_OF_JOB_NAMES/\nnoise\n";
+
+        @Override
+        protected void runGroovyScript(String script, OutputStream os) throws IOException {
+            // Jenkins-cliと同じく、出力は細切れに届く。
+            count++;
+            byte[] bytes = output.getBytes("UTF-8");
+            for (int off = 0; off < bytes.length; off += 3) {
+                os.write(bytes, off, Math.min(3, bytes.length - off));
+            }
+        }
+    }
+
+    private static class CountingSubversion extends SubversionControler {
+        private int headCount = 0;
+
+        private int listCount = 0;
+
+        @Override
+        public long getHeadRevisionNo() throws SVNException {
+            headCount++;
+            return 10L;
+        }
+
+        @Override
+        public List<String> getDirNameList(long revisionNo) throws SVNException {
+            listCount++;
+            return new ArrayList<String>(Arrays.asList("func1", "test1"));
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.github.kazuhito_m.scm2cisync.core;
+
+import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.CiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiServer;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmRepository;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.ScmControler;
+import com.github.kazuhito_m.scm2cisync.core.store.JobNameSnapshotStore;
+import com.github.kazuhito_m.scm2cisync.core.vo.SynchronizeResult;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * SynchronizeWatcherのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SynchronizeWatcherTest {
+
+    private SynchronizeTarget st;
+
+    private File lastProfile;
+
+    private SynchronizeWatcher sut;
+
+    private final List<SynchronizeResult> results = new ArrayList<SynchronizeResult>();
+
+    @Before
+    public void setUp() throws Exception {
+        st = new SynchronizeTarget();
+        st.setScmType("InMemory");
+        st.setScmUrl("mem://watch-scm?dirs=2");
+        st.setCiType("InMemory");
+        st.setCiUrl("mem://watch-ci?controlJob=" + TestConstants.TEST_JEKNINS_JOB);
+        st.setCiControlJobName(TestConstants.TEST_JEKNINS_JOB);
+        st.setJenkinsJobTemplatePath("src/test/resources/com/github/kazuhito_m/scm2cisync/core/config.xml");
+        lastProfile = File.createTempFile("scmWatchLastProfile", ".xml");
+        lastProfile.delete();
+        st.setLastProfilePath(lastProfile.getPath());
+
+        CustomSystemStreamLog log = new CustomSystemStreamLog();
+        ScmToCiSynchronizer synchronizer = new ScmToCiSynchronizer();
+        synchronizer.setLog(log);
+        sut = new SynchronizeWatcher(synchronizer, new SynchronizeExecutor(synchronizer),
+                Arrays.asList(st));
+        sut.setLog(log);
+        sut.setResultListener(results::addAll);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        lastProfile.delete();
+        JobNameSnapshotStore.fileOf(st.getCiJobNameSnapshotDirectory(), st.getCiUrl()).delete();
+        InMemoryScmRepository.clear();
+        InMemoryCiServer.clear();
+    }
+
+    @Test
+    public void HEADリビジョンが動いた時だけ同期する() throws Exception {
+        InMemoryScmRepository repository = InMemoryScmRepository.of(st.getScmUrl());
+        InMemoryCiServer server = InMemoryCiServer.of(st.getCiUrl());
+
+        // 初回は必ず同期。
+        assertThat(sut.pollOnce(), is(1));
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).isSucceed(), is(true));
+
+        // HEADが動いていなければ、同期処理自体を呼ばない。
+        assertThat(sut.pollOnce(), is(0));
+        assertThat(results.size(), is(1));
+
+        // コミットでHEADが動けば、再度同期。
+        repository.commit(Arrays.asList("added"), new ArrayList<String>());
+        assertThat(sut.pollOnce(), is(1));
+        assertThat(results.size(), is(2));
+        assertThat(server.getJobNames().contains("added"), is(true));
+    }
+
+    @Test
+    public void コントローラは常駐の間使い回しHEADは一回の確認で一度だけ問い合わせる() throws Exception {
+        // Arrange-準備
+        final int[] counts = new int[4]; // SCM作成, HEAD問い合わせ, CI作成, CI切断
+        ScmToCiSynchronizer synchronizer = new ScmToCiSynchronizer() {
+            @Override
+            protected ScmControler createScmControler(SynchronizeTarget st) {
+                counts[0]++;
+                InMemoryScmControler controler = new InMemoryScmControler() {
+                    @Override
+                    public long getHeadRevisionNo() throws Exception {
+                        counts[1]++;
+                        return super.getHeadRevisionNo();
+                    }
+                };
+                controler.setUrlPath(st.getScmUrl());
+                return controler;
+            }
+
+            @Override
+            protected CiControler createCiControler(SynchronizeTarget st) {
+                counts[2]++;
+                InMemoryCiControler controler = new InMemoryCiControler() {
+                    @Override
+                    public void close() {
+                        counts[3]++;
+                    }
+                };
+                controler.setUrlPath(st.getCiUrl());
+                return controler;
+            }
+        };
+        synchronizer.setLog(new CustomSystemStreamLog());
+        sut = new SynchronizeWatcher(synchronizer, new SynchronizeExecutor(synchronizer),
+                Arrays.asList(st));
+        sut.setLog(new CustomSystemStreamLog());
+        InMemoryScmRepository repository = InMemoryScmRepository.of(st.getScmUrl());
+
+        // Act-実行
+        assertThat(sut.pollOnce(), is(1));
+        repository.commit(Arrays.asList("added"), new ArrayList<String>());
+        assertThat(sut.pollOnce(), is(1));
+        assertThat(sut.pollOnce(), is(0));
+
+        // Assert-検証
+        assertThat(counts[0], is(1));
+        assertThat(counts[1], is(3));
+        assertThat(counts[2], is(1));
+        assertThat(counts[3], is(0));
+
+        // 止めた時に切断する。
+        Thread thread = new Thread(sut::run);
+        thread.start();
+        sut.stop();
+        assertThat(sut.awaitTermination(10 * 1000), is(true));
+        assertThat(counts[2], is(1));
+        assertThat(counts[3], is(1));
+    }
+
+    @Test
+    public void stopで常駐が止まる() throws Exception {
+        sut.setPollIntervalMillis(60 * 1000);
+        Thread thread = new Thread(sut::run);
+        thread.start();
+
+        // 待機中でも、stop()ですぐに抜ける。
+        sut.stop();
+
+        assertThat(sut.awaitTermination(10 * 1000), is(true));
+        thread.join(10 * 1000);
+        assertThat(thread.isAlive(), is(false));
+    }
+
+}
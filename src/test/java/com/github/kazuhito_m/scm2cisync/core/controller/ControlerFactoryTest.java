@@ -0,0 +1,88 @@
+package com.github.kazuhito_m.scm2cisync.core.controller;
+
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.InMemoryCiServer;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.JenkinsControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.ci.JenkinsHttpControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmControler;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.InMemoryScmRepository;
+import com.github.kazuhito_m.scm2cisync.core.controller.scm.SubversionControler;
+import com.github.kazuhito_m.scm2cisync.mojo.SynchronizeTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * ControlerFactoryのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class ControlerFactoryTest {
+
+    private SynchronizeTarget st;
+
+    @Before
+    public void setUp() throws Exception {
+        st = new SynchronizeTarget();
+        st.setScmUrl("http://localhost/repos/scenario/trunk/");
+        st.setCiUrl("http://localhost:8080/");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        InMemoryScmRepository.clear();
+        InMemoryCiServer.clear();
+    }
+
+    @Test
+    public void タイプ省略時はSubversionとJenkinsになる() throws Exception {
+        assertThat(ControlerFactory.createScmControler(st), instanceOf(SubversionControler.class));
+        assertThat(ControlerFactory.createCiControler(st), instanceOf(JenkinsControler.class));
+    }
+
+    @Test
+    public void タイプ名に従いコントローラが選ばれ接続先が設定される() throws Exception {
+        st.setScmType("svn");
+        st.setCiType("JenkinsHttp");
+
+        assertThat(ControlerFactory.createScmControler(st).getUrlPath(),
+                is("http://localhost/repos/scenario/trunk/"));
+        assertThat(ControlerFactory.createCiControler(st), instanceOf(JenkinsHttpControler.class));
+    }
+
+    @Test
+    public void InMemoryタイプはURLの指定で初期状態が作られる() throws Exception {
+        st.setScmType("InMemory");
+        st.setScmUrl("mem://repo?dirs=3");
+        st.setCiType("InMemory");
+        st.setCiUrl("mem://ci?jobs=2&controlJob=kikker");
+
+        assertThat(ControlerFactory.createScmControler(st), instanceOf(InMemoryScmControler.class));
+        assertThat(ControlerFactory.createCiControler(st), instanceOf(InMemoryCiControler.class));
+
+        assertThat(ControlerFactory.createScmControler(st).getDirNameList(0),
+                is(Arrays.asList("project00001", "project00002", "project00003")));
+        assertThat(ControlerFactory.createCiControler(st).getJobNames(),
+                is(Arrays.asList("kikker", "project00001", "project00002")));
+    }
+
+    @Test
+    public void 未知のタイプは例外となる() throws Exception {
+        st.setCiType("Bamboo");
+        try {
+            ControlerFactory.createCiControler(st);
+            fail("未知のciTypeで例外が起こらない。");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("unknown ciType : Bamboo"));
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package com.github.kazuhito_m.scm2cisync.core.controller.ci;
 
 import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
 import com.github.kazuhito_m.scm2cisync.core.TestConstants;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
 import org.dom4j.DocumentException;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -9,14 +11,21 @@ import org.junit.Test;
 import org.xml.sax.SAXException;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 
 /**
@@ -126,4 +135,179 @@ public class JenkinsControlerTest {
         sut.enableJob(TestConstants.TEST_JEKNINS_JOB);
     }
 
+    @Test
+    public void CLIセッションは使い回され使用可能になるまで待つ() throws Exception {
+        StubSessionJenkins jenkins = new StubSessionJenkins();
+        jenkins.sessions.add(new StubSession().notReady());
+        jenkins.sessions.add(new StubSession().notReady());
+        StubSession ready = new StubSession();
+        jenkins.sessions.add(ready);
+
+        jenkins.desibleJob("a");
+        jenkins.enableJob("a");
+
+        assertThat(jenkins.opened, is(3));
+        assertThat(ready.commands, is(Arrays.asList("disable-job a", "enable-job a")));
+    }
+
+    @Test
+    public void 切断されたセッションは閉じる失敗を無視して一度だけ繋ぎ直す() throws Exception {
+        StubSessionJenkins jenkins = new StubSessionJenkins();
+        StubSession lost = new StubSession().lostAfter("");
+        lost.closeFails = true;
+        StubSession next = new StubSession();
+        next.output = "<project/>";
+        jenkins.sessions.add(lost);
+        jenkins.sessions.add(next);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        jenkins.fetchJobConfig("a", os);
+
+        assertThat(os.toString("UTF-8"), is("<project/>"));
+        assertThat(jenkins.opened, is(2));
+        assertThat(lost.closed, is(true));
+    }
+
+    @Test
+    public void 途中まで出力済みなら空のバッファだけ消して繋ぎ直す() throws Exception {
+        StubSessionJenkins jenkins = new StubSessionJenkins();
+        StubSession next = new StubSession();
+        next.output = "<project/>";
+        jenkins.sessions.add(new StubSession().lostAfter("<proj"));
+        jenkins.sessions.add(next);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        jenkins.fetchJobConfig("a", os);
+
+        // 二つの文書が繋がらない。
+        assertThat(os.toString("UTF-8"), is("<project/>"));
+    }
+
+    @Test
+    public void 途中まで出力済みで消せない出力先なら再実行しない() throws Exception {
+        StubSessionJenkins jenkins = new StubSessionJenkins();
+        jenkins.sessions.add(new StubSession().lostAfter("line1\n"));
+        jenkins.sessions.add(new StubSession());
+        final List<String> names = new ArrayList<String>();
+
+        try {
+            jenkins.enumerateJobNames(names::add);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("jenkins-cli session lost after"), is(true));
+        }
+        assertThat(jenkins.opened, is(1));
+        assertThat(names, is(Arrays.asList("line1")));
+    }
+
+    @Test
+    public void 形式の崩れた結果行は読み飛ばし報告の無いものだけ失敗とする() throws Exception {
+        JenkinsControler jenkins = new JenkinsControler();
+        List<JobMutation> mutations = Arrays.asList(JobMutation.disable("a"),
+                JobMutation.enable("b"), JobMutation.disable("c"));
+
+        List<JobMutationResult> results = jenkins.parseMutationResults(mutations, Arrays.asList(
+                "RESULT\tx\tOK", "RESULT\t9\tOK", "RESULT\t-1\tOK", "RESULT\t1",
+                "RESULT\t0\tOK", "RESULT\t2\tNG\t%%%"));
+
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).getErrorMessage(), is("no result from jenkins"));
+        assertThat(results.get(2).getErrorMessage(), is("%%%"));
+    }
+
+    @Test
+    public void job変更群の最後の結果行が改行で終わらなくても受け取れる() throws Exception {
+        JenkinsControler jenkins = new JenkinsControler() {
+            @Override
+            protected void runGroovyScript(String script, OutputStream os) throws IOException {
+                os.write("RESULT\t0\tOK\nRESULT\t1\tOK".getBytes("UTF-8"));
+            }
+        };
+
+        List<JobMutationResult> results = jenkins.applyJobMutations(Arrays.asList(
+                JobMutation.disable("a"), JobMutation.enable("a")));
+
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).isSucceed(), is(true));
+    }
+
+    /**
+     * 接続の代わりに、用意したセッションを順に返すJenkinsControler。
+     */
+    private static class StubSessionJenkins extends JenkinsControler {
+        private final LinkedList<StubSession> sessions = new LinkedList<StubSession>();
+
+        private int opened = 0;
+
+        StubSessionJenkins() {
+            setLog(new CustomSystemStreamLog());
+            setReadyTimeoutMillis(5000);
+        }
+
+        @Override
+        protected CliSession openSession() throws IOException {
+            opened++;
+            if (sessions.isEmpty()) {
+                throw new IOException("no more session");
+            }
+            return sessions.removeFirst();
+        }
+
+        @Override
+        protected void execCli(InputStream is, OutputStream os, String... args)
+                throws IOException, InterruptedException {
+            // 標準入力を待たないよう、空の入力とする。
+            super.execCli(is != null ? is : new ByteArrayInputStream(new byte[0]), os, args);
+        }
+    }
+
+    private static class StubSession implements JenkinsControler.CliSession {
+        private final List<String> commands = new ArrayList<String>();
+
+        private boolean ready = true;
+
+        private String lostAfter = null;
+
+        private String output = "";
+
+        private boolean closeFails = false;
+
+        private boolean closed = false;
+
+        StubSession notReady() {
+            ready = false;
+            return this;
+        }
+
+        StubSession lostAfter(String partialOutput) {
+            lostAfter = partialOutput;
+            return this;
+        }
+
+        public int execute(List<String> args, InputStream is, OutputStream os,
+                           OutputStream err) throws IOException {
+            if (lostAfter != null) {
+                os.write(lostAfter.getBytes("UTF-8"));
+                throw new IllegalStateException("channel is closed");
+            }
+            commands.add(String.join(" ", args));
+            os.write(output.getBytes("UTF-8"));
+            return 0;
+        }
+
+        public void ping() {
+            if (!ready) {
+                throw new IllegalStateException("not ready");
+            }
+        }
+
+        public void close() throws IOException {
+            closed = true;
+            if (closeFails) {
+                throw new IOException("close on dead channel");
+            }
+        }
+    }
+
 }
@@ -0,0 +1,212 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutationResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * JenkinsHttpControlerのテストクラス。組み込みHTTPサーバ(JenkinsStandIn)を相手に行う。
+ *
+ * @author Kazuhito Miura
+ */
+public class JenkinsHttpControlerTest {
+
+    /**
+     * テスト対象クラスオブジェクト
+     */
+    private JenkinsHttpControler sut;
+
+    private JenkinsStandIn jenkins;
+
+    @Before
+    public void setUp() throws Exception {
+        jenkins = new JenkinsStandIn();
+        jenkins.start();
+        jenkins.jobs.put("base-jobs-kikker", "<project><publishers/></project>");
+        jenkins.jobs.put("test", "<project/>");
+
+        JenkinsHttpControler t = new JenkinsHttpControler();
+        CustomSystemStreamLog log = new CustomSystemStreamLog();
+        log.setDebugEnabled(true);
+        t.setLog(log);
+        t.setUrlPath(jenkins.getUrl());
+
+        this.sut = t;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        jenkins.stop();
+    }
+
+    @Test
+    public void job名の一覧が取得できる() throws Exception {
+        List<String> names = sut.getJobNames();
+
+        assertThat(names, is(Arrays.asList("base-jobs-kikker", "test")));
+        assertThat(jenkins.requests, is(Arrays.asList("GET /api/xml")));
+    }
+
+    @Test
+    public void jobの追加と無効化と削除ができcrumbは使い回される() throws Exception {
+        sut.addJob("日本語のjob", new ByteArrayInputStream(
+                "<project><description>説明</description></project>".getBytes("UTF-8")));
+        sut.desibleJob("日本語のjob");
+
+        assertThat(jenkins.jobs.get("日本語のjob"),
+                is("<project><description>説明</description></project>"));
+        assertThat(jenkins.disabledJobs.contains("日本語のjob"), is(true));
+
+        sut.enableJob("日本語のjob");
+        assertThat(jenkins.disabledJobs.contains("日本語のjob"), is(false));
+
+        sut.deleteJob("日本語のjob");
+        assertThat(jenkins.jobs.containsKey("日本語のjob"), is(false));
+
+        // crumbの取得は最初の一回だけ。
+        int crumbRequests = 0;
+        for (String request : jenkins.requests) {
+            if (request.contains("crumbIssuer")) {
+                crumbRequests++;
+            }
+        }
+        assertThat(crumbRequests, is(1));
+        assertThat(jenkins.requests.size(), is(5));
+    }
+
+    @Test
+    public void コントロールjobの下位job一覧が更新できる() throws Exception {
+        List<String> children = new ArrayList<String>(Arrays.asList("a", "b"));
+
+        sut.updateManagingJobNamesForControlJob("base-jobs-kikker", children);
+
+        assertThat(jenkins.jobs.get("base-jobs-kikker"),
+                containsString("<childProjects>a,b</childProjects>"));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        sut.fetchJobConfig("base-jobs-kikker", os);
+        assertThat(os.toString("UTF-8"), containsString("hudson.tasks.BuildTrigger"));
+    }
+
+    @Test
+    public void コントロールjobの下位job一覧は名前順となり同じ内容なら送らない() throws Exception {
+        sut.updateManagingJobNamesForControlJob("base-jobs-kikker",
+                Arrays.asList("test", "b", "a", "b"));
+        assertThat(jenkins.jobs.get("base-jobs-kikker"),
+                containsString("<childProjects>a,b,test</childProjects>"));
+        int requests = jenkins.requests.size();
+
+        // 並びや空白が違っても、中身が同じなら取得のみ。
+        jenkins.jobs.put("base-jobs-kikker", jenkins.jobs.get("base-jobs-kikker")
+                .replace("a,b,test", "test, a, b"));
+        sut.updateManagingJobNamesForControlJob("base-jobs-kikker",
+                Arrays.asList("b", "test", "a"));
+        assertThat(jenkins.requests.size(), is(requests + 1));
+        assertThat(jenkins.requests.get(requests).startsWith("GET "), is(true));
+    }
+
+    @Test
+    public void job変更群は既定では一件ずつRESTで適用され一件ごとの結果が返る() throws Exception {
+        List<JobMutation> mutations = Arrays.asList(
+                JobMutation.create("新規job", "<project><description>説明</description></project>"),
+                JobMutation.create("test", "<project/>"),
+                JobMutation.disable("base-jobs-kikker"),
+                JobMutation.disable("no-such-job"));
+
+        List<JobMutationResult> results = sut.applyJobMutations(mutations);
+
+        assertThat(results.size(), is(4));
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).isSucceed(), is(false));
+        assertThat(results.get(1).getErrorMessage(), containsString("HTTP 400"));
+        assertThat(results.get(2).isSucceed(), is(true));
+        assertThat(results.get(3).isSucceed(), is(false));
+        assertThat(jenkins.jobs.get("新規job"),
+                is("<project><description>説明</description></project>"));
+        assertThat(jenkins.disabledJobs.contains("base-jobs-kikker"), is(true));
+        // scriptText(管理者権限が要る)は使わない。
+        assertThat(jenkins.scripts.isEmpty(), is(true));
+        assertThat(jenkins.requests.get(1), is("POST /createItem"));
+    }
+
+    @Test
+    public void job変更群が一往復でまとめて適用され一件ごとの結果が返る() throws Exception {
+        sut.setScriptBatch(true);
+        List<JobMutation> mutations = Arrays.asList(
+                JobMutation.create("新規job", "<project><description>説明</description></project>"),
+                JobMutation.create("test", "<project/>"),
+                JobMutation.disable("base-jobs-kikker"),
+                JobMutation.disable("no-such-job"),
+                JobMutation.enable("base-jobs-kikker"));
+
+        List<JobMutationResult> results = sut.applyJobMutations(mutations);
+
+        assertThat(results.size(), is(5));
+        assertThat(results.get(0).isSucceed(), is(true));
+        assertThat(results.get(1).isSucceed(), is(false));
+        assertThat(results.get(1).getErrorMessage(), containsString("already exists"));
+        assertThat(results.get(2).isSucceed(), is(true));
+        assertThat(results.get(3).isSucceed(), is(false));
+        assertThat(results.get(3).getErrorMessage(), containsString("no such job : no-such-job"));
+        assertThat(results.get(4).isSucceed(), is(true));
+        assertThat(results.get(4).getMutation().getJobName(), is("base-jobs-kikker"));
+
+        assertThat(jenkins.jobs.get("新規job"),
+                is("<project><description>説明</description></project>"));
+        assertThat(jenkins.disabledJobs.isEmpty(), is(true));
+        assertThat(jenkins.requests,
+                is(Arrays.asList("GET /crumbIssuer/api/xml", "POST /scriptText")));
+    }
+
+    @Test
+    public void job変更群は指定件数ごとに分けて送られる() throws Exception {
+        sut.setScriptBatch(true);
+        sut.setMutationBatchSize(2);
+        List<JobMutation> mutations = new ArrayList<JobMutation>();
+        for (int i = 0; i < 4; i++) {
+            mutations.add(JobMutation.create("job" + i, "<project/>"));
+        }
+        // 一つの文字列定数に収まらない大きさのconfig.xmlも送れる。
+        StringBuilder big = new StringBuilder("<project><description>");
+        for (int i = 0; i < 10000; i++) {
+            big.append("大きな説明");
+        }
+        String bigConfig = big.append("</description></project>").toString();
+        mutations.add(JobMutation.create("job4", bigConfig));
+
+        List<JobMutationResult> results = sut.applyJobMutations(mutations);
+
+        assertThat(results.size(), is(5));
+        for (JobMutationResult result : results) {
+            assertThat(result.isSucceed(), is(true));
+        }
+        assertThat(jenkins.scripts.size(), is(3));
+        assertThat(jenkins.jobs.get("job4"), is(bigConfig));
+    }
+
+    @Test
+    public void エラー応答は例外となる() throws Exception {
+        try {
+            sut.addJob("test", new ByteArrayInputStream("<project/>".getBytes("UTF-8")));
+            fail("既存jobの追加で例外が起こらない。");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("HTTP 400"));
+        }
+    }
+
+}
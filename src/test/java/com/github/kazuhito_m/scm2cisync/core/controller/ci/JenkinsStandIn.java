@@ -0,0 +1,223 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * テスト用の「Jenkinsのふりをする」組み込みHTTPサーバ。<br>
+ * JenkinsHttpControlerが使うREST APIだけを、メモリ上のjob群に対して応答する。
+ *
+ * @author Kazuhito Miura
+ */
+public class JenkinsStandIn implements HttpHandler {
+
+    /**
+     * POST時に要求するcrumb。
+     */
+    public static final String CRUMB = "test-crumb-0123";
+
+    /**
+     * groovyスクリプト中の変更一件分の行。
+     */
+    private static final Pattern OP_LINE =
+            Pattern.compile("^\\['([CDE])', ([^,]+), (null|[^\\]]+)\\],$", Pattern.MULTILINE);
+
+    /**
+     * job名とconfig.xmlの内容。
+     */
+    public final Map<String, String> jobs =
+            Collections.synchronizedMap(new TreeMap<String, String>());
+
+    /**
+     * 無効化されているjob名。
+     */
+    public final Set<String> disabledJobs =
+            Collections.synchronizedSet(new TreeSet<String>());
+
+    /**
+     * 受け付けたリクエスト("メソッド パス")の記録。
+     */
+    public final List<String> requests =
+            Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * 受け付けたgroovyスクリプトの記録。
+     */
+    public final List<String> scripts =
+            Collections.synchronizedList(new ArrayList<String>());
+
+    private HttpServer server;
+
+    /**
+     * 空いているポートで起動する。
+     *
+     * @throws IOException 起動できない場合。
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this);
+        server.start();
+    }
+
+    /**
+     * 停止する。
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * このサーバのURL("/"終わり)を返す。
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public void handle(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+        String path = ex.getRequestURI().getRawPath();
+        String query = ex.getRequestURI().getRawQuery();
+        requests.add(method + " " + path);
+        byte[] body = readAll(ex.getRequestBody());
+
+        // POSTはcrumb必須。
+        if ("POST".equals(method)
+                && !CRUMB.equals(ex.getRequestHeaders().getFirst("Jenkins-Crumb"))) {
+            respond(ex, 403, "No valid crumb was included in the request");
+            return;
+        }
+
+        if (path.equals("/crumbIssuer/api/xml")) {
+            respond(ex, 200, "<defaultCrumbIssuer><crumb>" + CRUMB
+                    + "</crumb><crumbRequestField>Jenkins-Crumb</crumbRequestField>"
+                    + "</defaultCrumbIssuer>");
+        } else if (path.equals("/api/xml")) {
+            StringBuilder sb = new StringBuilder("<hudson>");
+            synchronized (jobs) {
+                for (String name : jobs.keySet()) {
+                    sb.append("<job><name>").append(name).append("</name><color>")
+                            .append(disabledJobs.contains(name) ? "disabled" : "blue")
+                            .append("</color></job>");
+                }
+            }
+            respond(ex, 200, sb.append("</hudson>").toString());
+        } else if (path.equals("/scriptText") && "POST".equals(method)) {
+            String form = new String(body, "UTF-8");
+            String script = URLDecoder.decode(form.substring("script=".length()), "UTF-8");
+            respond(ex, 200, runMutationScript(script));
+        } else if (path.equals("/createItem") && "POST".equals(method)) {
+            String name = URLDecoder.decode(query.substring("name=".length()), "UTF-8");
+            if (jobs.containsKey(name)) {
+                respond(ex, 400, "A job already exists with the name " + name);
+                return;
+            }
+            jobs.put(name, new String(body, "UTF-8"));
+            respond(ex, 200, "");
+        } else if (path.startsWith("/job/")) {
+            String rest = path.substring("/job/".length());
+            String name = URLDecoder.decode(rest.substring(0, rest.indexOf('/')), "UTF-8");
+            String action = rest.substring(rest.indexOf('/') + 1);
+            if (!jobs.containsKey(name)) {
+                respond(ex, 404, "no such job " + name);
+            } else if (action.equals("config.xml") && "GET".equals(method)) {
+                respond(ex, 200, jobs.get(name));
+            } else if (action.equals("config.xml")) {
+                jobs.put(name, new String(body, "UTF-8"));
+                respond(ex, 200, "");
+            } else if (action.equals("disable")) {
+                disabledJobs.add(name);
+                respond(ex, 200, "");
+            } else if (action.equals("enable")) {
+                disabledJobs.remove(name);
+                respond(ex, 200, "");
+            } else if (action.equals("doDelete")) {
+                jobs.remove(name);
+                disabledJobs.remove(name);
+                respond(ex, 200, "");
+            } else {
+                respond(ex, 404, "unknown action " + action);
+            }
+        } else {
+            respond(ex, 404, "not found " + path);
+        }
+    }
+
+    /**
+     * JenkinsControlerが組み立てる「job変更をまとめたgroovyスクリプト」だけを解釈し、実行したふりをする。
+     */
+    private String runMutationScript(String script) throws IOException {
+        scripts.add(script);
+        StringBuilder out = new StringBuilder();
+        Matcher m = OP_LINE.matcher(script);
+        for (int i = 0; m.find(); i++) {
+            String name = base64(m.group(2));
+            String error = null;
+            if (m.group(1).equals("C")) {
+                if (jobs.containsKey(name)) {
+                    error = "java.lang.IllegalArgumentException: " + name + " already exists";
+                } else {
+                    jobs.put(name, base64(m.group(3)));
+                }
+            } else if (!jobs.containsKey(name)) {
+                error = "java.lang.IllegalArgumentException: no such job : " + name;
+            } else if (m.group(1).equals("D")) {
+                disabledJobs.add(name);
+            } else {
+                disabledJobs.remove(name);
+            }
+            out.append("RESULT\t").append(i);
+            if (error == null) {
+                out.append("\tOK\n");
+            } else {
+                out.append("\tNG\t").append(Base64.getEncoder()
+                        .encodeToString(error.getBytes("UTF-8"))).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String base64(String literal) throws IOException {
+        String b64 = literal.replace("' + '", "").replace("'", "");
+        return new String(Base64.getDecoder().decode(b64), "UTF-8");
+    }
+
+    private static void respond(HttpExchange ex, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        OutputStream os = ex.getResponseBody();
+        if (bytes.length > 0) {
+            os.write(bytes);
+        }
+        os.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            bos.write(buf, 0, len);
+        }
+        return bos.toByteArray();
+    }
+
+}
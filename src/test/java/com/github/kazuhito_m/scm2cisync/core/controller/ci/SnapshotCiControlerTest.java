@@ -0,0 +1,167 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.ci;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.JobMutation;
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * SnapshotCiControlerのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SnapshotCiControlerTest {
+
+    private static final String CI_URL = "mem://snapshot-ci?jobs=3";
+
+    private CountingCiControler delegate;
+
+    private JobNameSnapshot snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = new CountingCiControler();
+        delegate.setUrlPath(CI_URL);
+        snapshot = new JobNameSnapshot(CI_URL);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        InMemoryCiServer.clear();
+    }
+
+    @Test
+    public void 一度取得した後は作成と削除を反映した控えから返す() throws Exception {
+        SnapshotCiControler sut = new SnapshotCiControler(delegate, snapshot, -1);
+
+        assertThat(sut.getJobNames(),
+                is(Arrays.asList("project00001", "project00002", "project00003")));
+        sut.applyJobMutations(Arrays.asList(JobMutation.create("added", "<project/>"),
+                JobMutation.disable("project00001")));
+        sut.deleteJob("project00002");
+
+        assertThat(sut.getJobNames(), is(Arrays.asList("added", "project00001", "project00003")));
+        assertThat(sut.getJobNames(), is(delegate.getServer().getJobNames()));
+        assertThat(delegate.listCount, is(1));
+    }
+
+    @Test
+    public void 有効期間を過ぎたか操作に失敗したら取得し直す() throws Exception {
+        snapshot.replace(Arrays.asList("old"), System.currentTimeMillis() - 10000L);
+        SnapshotCiControler sut = new SnapshotCiControler(delegate, snapshot, 5000L);
+
+        // 期限切れ
+        assertThat(sut.getJobNames().size(), is(3));
+        assertThat(delegate.listCount, is(1));
+
+        // 既にあるjobの作成は失敗し、控えは捨てられる。
+        List<String> before = sut.getJobNames();
+        sut.applyJobMutations(Arrays.asList(JobMutation.create("project00001", "<project/>")));
+        assertThat(snapshot.isFresh(System.currentTimeMillis(), 5000L), is(false));
+        assertThat(sut.getJobNames(), is(before));
+        assertThat(delegate.listCount, is(2));
+    }
+
+    @Test
+    public void 下位job一覧が控えと同じなら更新しない() throws Exception {
+        SnapshotCiControler sut = new SnapshotCiControler(delegate, snapshot, -1);
+        sut.getJobNames();
+
+        assertThat(sut.updateManagingJobNamesForControlJob("project00001",
+                Arrays.asList("b", "a")), is(true));
+        assertThat(sut.updateManagingJobNamesForControlJob("project00001",
+                Arrays.asList("a", "b", "a")), is(false));
+        assertThat(delegate.updateCount, is(1));
+
+        assertThat(sut.updateManagingJobNamesForControlJob("project00001",
+                Arrays.asList("a")), is(true));
+        assertThat(delegate.updateCount, is(2));
+
+        // 全量を取得し直した後は、一度確かめ直す。(サーバ上は同じ内容のため、更新はされない)
+        snapshot.replace(snapshot.toList(), System.currentTimeMillis());
+        assertThat(sut.updateManagingJobNamesForControlJob("project00001",
+                Arrays.asList("a")), is(false));
+        assertThat(delegate.updateCount, is(3));
+    }
+
+    @Test
+    public void 全量取得の最中に行われた作成と削除は控えに残る() throws Exception {
+        final BlockingCiControler blocking = new BlockingCiControler();
+        blocking.setUrlPath(CI_URL);
+        final SnapshotCiControler sut = new SnapshotCiControler(blocking, snapshot, -1);
+
+        // 一覧を読み終えたところで止まる全量取得を、別スレッドで走らせる。
+        final Exception[] error = new Exception[1];
+        Thread enumerator = new Thread(() -> {
+            try {
+                sut.getJobNames();
+            } catch (Exception e) {
+                error[0] = e;
+            }
+        });
+        enumerator.start();
+        assertThat(blocking.listed.await(10, TimeUnit.SECONDS), is(true));
+
+        // Act-実行 取得の最中に、他の同期対象が作成・削除する。
+        sut.addJob("added", new ByteArrayInputStream("<project/>".getBytes("UTF-8")));
+        sut.deleteJob("project00003");
+        blocking.resume.countDown();
+        enumerator.join(10 * 1000);
+
+        // Assert-検証
+        assertThat(error[0] == null, is(true));
+        assertThat(snapshot.isFresh(System.currentTimeMillis(), -1), is(true));
+        assertThat(snapshot.toList(), is(Arrays.asList("added", "project00001", "project00002")));
+        assertThat(snapshot.toList(), is(blocking.getServer().getJobNames()));
+    }
+
+    /**
+     * 一覧を読み終えた後、resumeが開くまで返さないCI側コントローラ。
+     */
+    private static class BlockingCiControler extends InMemoryCiControler {
+        private final CountDownLatch listed = new CountDownLatch(1);
+
+        private final CountDownLatch resume = new CountDownLatch(1);
+
+        @Override
+        public void enumerateJobNames(Consumer<String> consumer) throws Exception {
+            List<String> names = getJobNames();
+            listed.countDown();
+            resume.await(10, TimeUnit.SECONDS);
+            for (String name : names) {
+                consumer.accept(name);
+            }
+        }
+    }
+
+    private static class CountingCiControler extends InMemoryCiControler {
+        private int listCount = 0;
+
+        private int updateCount = 0;
+
+        @Override
+        public List<String> getJobNames() throws Exception {
+            listCount++;
+            return super.getJobNames();
+        }
+
+        @Override
+        public boolean updateManagingJobNamesForControlJob(String contJobName,
+                                                           List<String> manageTargetJobNames) throws Exception {
+            updateCount++;
+            return super.updateManagingJobNamesForControlJob(contJobName, manageTargetJobNames);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.DirectoryDelta;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * LogDirectoryChangeCollectorのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class LogDirectoryChangeCollectorTest {
+
+    /**
+     * テスト対象クラスオブジェクト
+     */
+    private LogDirectoryChangeCollector sut;
+
+    private long revision = 10;
+
+    @Before
+    public void setUp() throws Exception {
+        this.sut = new LogDirectoryChangeCollector("/scenario/trunk/");
+    }
+
+    @Test
+    public void 直下の追加と削除だけが集計される() throws Exception {
+        commit("/scenario/trunk/projA", 'A',
+                "/scenario/trunk/projA/pom.xml", 'A',
+                "/scenario/trunk/projB", 'D',
+                "/scenario/trunk/projC/src/Main.java", 'M',
+                "/scenario/branches/projD", 'A');
+
+        DirectoryDelta delta = sut.getDirectoryDelta();
+
+        assertThat(delta.getAddedNames(), is(Arrays.asList("projA")));
+        assertThat(delta.getDeletedNames(), is(Arrays.asList("projB")));
+        assertThat(sut.isBaseReplaced(), is(false));
+    }
+
+    @Test
+    public void 期間内に追加して削除したものは相殺される() throws Exception {
+        commit("/scenario/trunk/tmp", 'A');
+        commit("/scenario/trunk/tmp", 'D');
+        // 削除して戻したものも、前後で変化無し。
+        commit("/scenario/trunk/keep", 'D');
+        commit("/scenario/trunk/keep", 'A');
+        // 置換は前後とも存在する。
+        commit("/scenario/trunk/replaced", 'R');
+
+        assertThat(sut.getDirectoryDelta().isEmpty(), is(true));
+    }
+
+    @Test
+    public void 基点ディレクトリ自身の付け替えを検出する() throws Exception {
+        commit("/scenario/trunk", 'R');
+
+        assertThat(sut.isBaseReplaced(), is(true));
+    }
+
+    /**
+     * 変更パスの組(パス,種別,パス,種別...)から1リビジョン分のログを作り、ハンドラに渡す。
+     */
+    private void commit(Object... pathAndTypes) throws Exception {
+        Map<String, SVNLogEntryPath> paths = new HashMap<String, SVNLogEntryPath>();
+        for (int i = 0; i < pathAndTypes.length; i += 2) {
+            String path = (String) pathAndTypes[i];
+            char type = (Character) pathAndTypes[i + 1];
+            paths.put(path, new SVNLogEntryPath(path, type, null, -1));
+        }
+        sut.handleLogEntry(new SVNLogEntry(paths, revision++, "svntest",
+                new Date(), "test"));
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.github.kazuhito_m.scm2cisync.core.controller.scm;
+
+import com.github.kazuhito_m.commons.log.CustomSystemStreamLog;
+import com.github.kazuhito_m.scm2cisync.core.TestConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * SvnSessionPoolのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class SvnSessionPoolTest {
+
+    /**
+     * テスト対象クラスオブジェクト
+     */
+    private SvnSessionPool sut;
+
+    /**
+     * テスト用の現在時刻(ミリ秒)。
+     */
+    private long now = 0L;
+
+    private SubversionControler controler;
+
+    @Before
+    public void setUp() throws Exception {
+        // 時刻をテストから操作できるプールを用意。
+        this.sut = new SvnSessionPool() {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+        sut.setIdleTimeoutMillis(1000L);
+
+        controler = new SubversionControler();
+        controler.setLog(new CustomSystemStreamLog());
+        controler.setUrlPath(TestConstants.TEST_SVN_URL);
+    }
+
+    @Test
+    public void 返却した接続が次の貸し出しで使い回される() {
+        SVNClientManager first = sut.borrow(controler);
+        sut.release(controler, first);
+
+        SVNClientManager second = sut.borrow(controler);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(sut.getIdleCount(), is(0));
+    }
+
+    @Test
+    public void 認証情報が異なれば別の接続が貸し出される() {
+        SVNClientManager first = sut.borrow(controler);
+        sut.release(controler, first);
+
+        SubversionControler other = new SubversionControler();
+        other.setUrlPath(TestConstants.TEST_SVN_URL);
+        other.setAuthType("basic");
+        other.setUserName("svntest");
+        other.setPassword("svntest");
+        SVNClientManager second = sut.borrow(other);
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(sut.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void 保持時間を過ぎた未使用の接続は破棄される() {
+        sut.release(controler, sut.borrow(controler));
+        assertThat(sut.getIdleCount(), is(1));
+
+        now += 1001L;
+        sut.evictIdle();
+
+        assertThat(sut.getIdleCount(), is(0));
+    }
+
+    @Test
+    public void 破棄後に返却された接続はプールされない() {
+        SVNClientManager manager = sut.borrow(controler);
+        sut.dispose();
+
+        sut.release(controler, manager);
+
+        assertThat(sut.getIdleCount(), is(0));
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.github.kazuhito_m.scm2cisync.core.store;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.JobNameSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * JobNameSnapshotStoreのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class JobNameSnapshotStoreTest {
+
+    private static final String CI_URL = "http://localhost:8080/jenkins";
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("jobNameSnapshot", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void 保存した控えが別のストアから読み込める() throws Exception {
+        JobNameSnapshotStore sut = new JobNameSnapshotStore();
+        JobNameSnapshot snapshot = sut.get(dir, CI_URL);
+        assertThat(snapshot.isFresh(1000L, -1), is(false));
+        assertThat(sut.get(dir, CI_URL), sameInstance(snapshot)); // 同じCIなら共有。
+
+        snapshot.replace(Arrays.asList("func0002", "func0001", "共通"), 5000L);
+        snapshot.add("func0003");
+        snapshot.remove("func0002");
+        sut.save(dir, snapshot);
+        assertThat(snapshot.isModified(), is(false));
+
+        JobNameSnapshot actual = new JobNameSnapshotStore().get(dir, CI_URL);
+        assertThat(actual.toList(), is(Arrays.asList("func0001", "func0003", "共通")));
+        assertThat(actual.getEnumeratedAtMillis(), is(5000L));
+        assertThat(actual.isFresh(6000L, 1000L), is(true));
+        assertThat(actual.isFresh(6001L, 1000L), is(false));
+        assertThat(actual.isFresh(6000L, 0L), is(false));
+    }
+
+    @Test
+    public void 壊れた控えや別のCIの控えは空として扱う() throws Exception {
+        JobNameSnapshotStore store = new JobNameSnapshotStore();
+        JobNameSnapshot snapshot = store.get(dir, CI_URL);
+        snapshot.replace(Arrays.asList("a", "b"), 5000L);
+        store.save(dir, snapshot);
+        assertThat(JobNameSnapshotStore.fileOf(dir, CI_URL),
+                not(JobNameSnapshotStore.fileOf(dir, CI_URL + "/other")));
+
+        RandomAccessFile raf = new RandomAccessFile(JobNameSnapshotStore.fileOf(dir, CI_URL), "rw");
+        raf.seek(raf.length() - 12);
+        raf.write('x');
+        raf.close();
+
+        JobNameSnapshot actual = new JobNameSnapshotStore().get(dir, CI_URL);
+        assertThat(actual.size(), is(0));
+        assertThat(actual.isFresh(5000L, -1), is(false));
+    }
+
+}
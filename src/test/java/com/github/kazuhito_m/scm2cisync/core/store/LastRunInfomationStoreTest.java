@@ -0,0 +1,106 @@
+package com.github.kazuhito_m.scm2cisync.core.store;
+
+import com.github.kazuhito_m.scm2cisync.core.vo.LastRunInfomation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.XMLEncoder;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * LastRunInfomationStoreのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class LastRunInfomationStoreTest {
+
+    /**
+     * テスト対象クラスオブジェクト
+     */
+    private LastRunInfomationStore sut;
+
+    private File dir;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        this.sut = new LastRunInfomationStore();
+        dir = File.createTempFile("lastProfile", "");
+        dir.delete();
+        dir.mkdirs();
+        file = new File(dir, "scmSyncLastProfile.xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void 保存したものが読み込める() throws Exception {
+        LastRunInfomation info = new LastRunInfomation();
+        info.setScmHeadRevisionNumber(1234L);
+        info.storeScmDirNames(Arrays.asList("func0001", "func0002", "共通"));
+
+        sut.save(file, info);
+        LastRunInfomation actual = sut.load(file);
+
+        assertThat(actual.getScmHeadRevisionNumber(), is(1234L));
+        assertThat(actual.restoreScmDirNames(),
+                is(Arrays.asList("func0001", "func0002", "共通")));
+        // 一時ファイルは残らない。
+        assertThat(dir.listFiles().length, is(1));
+    }
+
+    @Test
+    public void ファイルが無ければnull() throws Exception {
+        assertThat(sut.load(file), is(nullValue()));
+    }
+
+    @Test
+    public void 旧形式のXMLを読み込める() throws Exception {
+        LastRunInfomation info = new LastRunInfomation();
+        info.setScmHeadRevisionNumber(99L);
+        XMLEncoder xmlEnc = new XMLEncoder(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        xmlEnc.writeObject(info);
+        xmlEnc.close();
+
+        LastRunInfomation actual = sut.load(file);
+
+        assertThat(actual.getScmHeadRevisionNumber(), is(99L));
+        assertThat(actual.restoreScmDirNames(), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void 壊れたファイルは例外() throws Exception {
+        LastRunInfomation info = new LastRunInfomation();
+        info.setScmHeadRevisionNumber(1234L);
+        sut.save(file, info);
+
+        // 途中の1byteを書き換える。
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(20);
+        int b = raf.read();
+        raf.seek(20);
+        raf.write(b ^ 0xFF);
+        raf.close();
+
+        sut.load(file);
+    }
+
+}
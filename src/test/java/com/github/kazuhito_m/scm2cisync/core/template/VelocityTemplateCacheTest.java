@@ -0,0 +1,97 @@
+package com.github.kazuhito_m.scm2cisync.core.template;
+
+import org.apache.velocity.VelocityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * VelocityTemplateCacheのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class VelocityTemplateCacheTest {
+
+    /**
+     * テスト対象クラスオブジェクト
+     */
+    private VelocityTemplateCache sut;
+
+    private File template;
+
+    @Before
+    public void setUp() throws Exception {
+        sut = new VelocityTemplateCache();
+        template = File.createTempFile("template", ".xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        template.delete();
+    }
+
+    @Test
+    public void テンプレートの置換ができ解析結果は使い回される() throws Exception {
+        write(template, "<project><name>$jobName</name><description>日本語</description></project>");
+
+        assertThat(sut.merge(template, context("a")),
+                is("<project><name>a</name><description>日本語</description></project>"));
+        assertThat(sut.merge(template, context("b")),
+                is("<project><name>b</name><description>日本語</description></project>"));
+
+        assertThat(sut.getTemplate(template), is(sameInstance(sut.getTemplate(template))));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void ファイルが更新されたら解析し直す() throws Exception {
+        write(template, "old:$jobName");
+        assertThat(sut.merge(template, context("a")), is("old:a"));
+        Object before = sut.getTemplate(template);
+
+        write(template, "new:$jobName");
+        assertThat(template.setLastModified(template.lastModified() + 2000), is(true));
+
+        assertThat(sut.merge(template, context("a")), is("new:a"));
+        assertThat(sut.getTemplate(template), is(not(sameInstance(before))));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void parseはテンプレートと同じディレクトリから読む() throws Exception {
+        File part = new File(template.getParentFile(), template.getName() + ".part.vm");
+        try {
+            write(part, "<name>$jobName</name>");
+            write(template, "<project>#parse(\"" + part.getName() + "\")</project>");
+
+            assertThat(sut.merge(template, context("a")), is("<project><name>a</name></project>"));
+        } finally {
+            part.delete();
+        }
+    }
+
+    private static VelocityContext context(String jobName) {
+        VelocityContext context = new VelocityContext();
+        context.put("jobName", jobName);
+        return context;
+    }
+
+    private static void write(File file, String text) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(text.getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+    }
+
+}
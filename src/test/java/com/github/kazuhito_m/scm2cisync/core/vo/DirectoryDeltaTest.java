@@ -0,0 +1,70 @@
+package com.github.kazuhito_m.scm2cisync.core.vo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * DirectoryDeltaのテストクラス。
+ *
+ * @author Kazuhito Miura
+ */
+public class DirectoryDeltaTest {
+
+    @Test
+    public void 前回と最新の一覧から追加と削除が名前順で求まる() {
+        DirectoryDelta actual = DirectoryDelta.diff(
+                Arrays.asList("func0003", "func0001", "common", "old"),
+                Arrays.asList("func0001", "new2", "common", "func0003", "new1"));
+
+        assertThat(actual.getAddedNames(), is(Arrays.asList("new1", "new2")));
+        assertThat(actual.getDeletedNames(), is(Arrays.asList("old")));
+    }
+
+    @Test
+    public void 片方が空の場合() {
+        DirectoryDelta actual = DirectoryDelta.diff(new ArrayList<String>(),
+                Arrays.asList("b", "a"));
+
+        assertThat(actual.getAddedNames(), is(Arrays.asList("a", "b")));
+        assertThat(actual.getDeletedNames().isEmpty(), is(true));
+
+        actual = DirectoryDelta.diff(Arrays.asList("b", "a"),
+                new ArrayList<String>());
+
+        assertThat(actual.getAddedNames().isEmpty(), is(true));
+        assertThat(actual.getDeletedNames(), is(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void 重複があっても一件として扱う() {
+        DirectoryDelta actual = DirectoryDelta.diff(
+                Arrays.asList("a", "a", "c"),
+                Arrays.asList("a", "b", "b"));
+
+        assertThat(actual.getAddedNames(), is(Arrays.asList("b")));
+        assertThat(actual.getDeletedNames(), is(Arrays.asList("c")));
+    }
+
+    @Test
+    public void 変更が無ければ空() {
+        DirectoryDelta actual = DirectoryDelta.diff(Arrays.asList("a", "b"),
+                Arrays.asList("b", "a"));
+
+        assertThat(actual.isEmpty(), is(true));
+    }
+
+    @Test
+    public void 前回の一覧へ差分を当てると今回の一覧になる() {
+        DirectoryDelta delta = new DirectoryDelta(Arrays.asList("new"),
+                Arrays.asList("old"));
+
+        assertThat(delta.applyTo(Arrays.asList("old", "keep", "a")),
+                is(Arrays.asList("a", "keep", "new")));
+    }
+
+}